@@ -0,0 +1,164 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+// Runs AI requests on one shared, bounded pool instead of a new thread per request.
+//
+// Single flight: requests for the same operation and key (e.g. "analysis" of one article's content) that
+// overlap share one upstream call; every caller gets its own future completed with the shared result. Each
+// operation also has a cap on how many of its calls run at once; calls beyond it wait in a FIFO queue
+// without holding a thread, so a burst costs at most one call per distinct key and never more threads than
+// the pool has.
+//
+// Cancelling a caller's future only unsubscribes that caller. When the last subscriber of a call is gone, the
+// call is taken out of the queue, or interrupted if it is already running.
+class AIRequestScheduler {
+    private static final class Flight<T> {
+        final String id;
+        final Operation operation;
+        final Supplier<T> call;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        int subscribers;
+        boolean submitted;
+        Thread worker;       // set while the call runs
+
+        Flight(String id, Operation operation, Supplier<T> call) {
+            this.id = id;
+            this.operation = operation;
+            this.call = call;
+        }
+    }
+
+    // Per-operation cap and queue
+    private static final class Operation {
+        int limit;
+        int running;
+        final java.util.ArrayDeque<Flight<?>> waiting = new java.util.ArrayDeque<>();
+
+        Operation(int limit) {
+            this.limit = limit;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final int defaultLimit;
+    // Guarded by this
+    private final MyMap<String, Flight<?>> flights = new MyMap<>();
+    private final MyMap<String, Operation> operations = new MyMap<>();
+    private int upstreamCalls;
+
+    /**
+     * @param threads Size of the shared pool, i.e. the most AI calls running at once overall
+     * @param defaultLimit The most calls of one operation running at once, unless set with setLimit
+     */
+    public AIRequestScheduler(int threads, int defaultLimit) {
+        this.defaultLimit = Math.max(1, defaultLimit);
+        java.util.concurrent.atomic.AtomicInteger number = new java.util.concurrent.atomic.AtomicInteger();
+        this.executor = java.util.concurrent.Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "ai-request-" + number.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // How many calls of an operation may run at once
+    public synchronized int limit(String operation) {
+        return operation(operation).limit;
+    }
+
+    // Change how many calls of an operation may run at once
+    public synchronized void setLimit(String operation, int limit) {
+        operation(operation).limit = Math.max(1, limit);
+        drain(operation(operation));
+    }
+
+    /**
+     * Run call, or join the identical call already queued or running.
+     *
+     * @param operation What kind of request this is; the concurrency cap is per operation
+     * @param key What the request is about, e.g. a content hash; calls with the same operation and key
+     *            are assumed to return the same result
+     * @param call The upstream call, run on the shared pool
+     * @return A future for this caller only; cancel it to stop waiting
+     */
+    public synchronized <T> CompletableFuture<T> submit(String operation, String key, Supplier<T> call) {
+        String id = operation + '/' + key;
+        @SuppressWarnings("unchecked")
+        Flight<T> flight = (Flight<T>) flights.get(id);
+        if (flight == null) {
+            flight = new Flight<>(id, operation(operation), call);
+            flights.put(id, flight);
+            flight.operation.waiting.add(flight);
+            drain(flight.operation);
+        }
+        flight.subscribers++;
+
+        CompletableFuture<T> mine = new CompletableFuture<>();
+        Flight<T> shared = flight;
+        shared.result.whenComplete((value, error) -> {
+            if (error != null) mine.completeExceptionally(error);
+            else mine.complete(value);
+        });
+        mine.whenComplete((value, error) -> {
+            if (mine.isCancelled()) unsubscribe(shared);
+        });
+        return mine;
+    }
+
+    // Calls actually started so far, deduplicated requests not counted
+    public synchronized int upstreamCalls() {
+        return upstreamCalls;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Operation operation(String name) {
+        Operation operation = operations.get(name);
+        if (operation == null) {
+            operation = new Operation(defaultLimit);
+            operations.put(name, operation);
+        }
+        return operation;
+    }
+
+    // Start waiting calls while the operation is under its cap
+    private void drain(Operation operation) {
+        while (operation.running < operation.limit && !operation.waiting.isEmpty()) {
+            Flight<?> flight = operation.waiting.poll();
+            operation.running++;
+            flight.submitted = true;
+            executor.execute(() -> run(flight));
+        }
+    }
+
+    private <T> void run(Flight<T> flight) {
+        try {
+            synchronized (this) {
+                if (flight.result.isDone()) return; // everyone gave up before it started
+                flight.worker = Thread.currentThread();
+                upstreamCalls++;
+            }
+            flight.result.complete(flight.call.get());
+        } catch (Throwable e) {
+            flight.result.completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                flight.worker = null;
+                if (flights.get(flight.id) == flight) flights.remove(flight.id);
+                flight.operation.running--;
+                drain(flight.operation);
+            }
+            Thread.interrupted(); // don't pass a cancellation on to the next call on this thread
+        }
+    }
+
+    private synchronized void unsubscribe(Flight<?> flight) {
+        if (--flight.subscribers > 0 || flight.result.isDone()) return;
+        flights.remove(flight.id);
+        if (!flight.submitted) flight.operation.waiting.remove(flight);
+        else if (flight.worker != null) flight.worker.interrupt();
+        flight.result.cancel(false);
+    }
+}
@@ -0,0 +1,295 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Cache for AI results (summaries, sentiment, related topics), so opening an article again doesn't call the
+// API again.
+//
+// Keys combine a SHA-256 hash of the article content with the operation, the model and the prompt version, so
+// a changed article, a different model or a reworded prompt simply misses. Entries expire after a TTL.
+// Two tiers: a bounded LRU map in memory, and an append-only log file that survives restarts. The log is
+// replayed into an in-memory offset index at startup (and compacted if it is mostly dead records); a memory
+// miss reads the one record at its offset and promotes it.
+//
+// Record layout: length (int), CRC32 of the body (int), body = expiry millis (long), kind (byte: 1 put,
+// 0 removal), key and value as length-prefixed UTF-8. A torn record at the end of the log is cut off on open.
+// An interrupt during file I/O closes the channel; it is reopened on next use and cut back to the last whole
+// record, so cancelling a request never damages the log.
+class AIResultCache {
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 0;
+    private static final int HEADER_BYTES = 8;
+    private static final long COMPACT_MIN_BYTES = 1 << 20;
+
+    private static final class Cached {
+        final String value;
+        final long expiresAt;
+
+        Cached(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // Where a live record is in the log
+    private static final class Location {
+        final long offset;
+        final int length;
+        final long expiresAt;
+
+        Location(long offset, int length, long expiresAt) {
+            this.offset = offset;
+            this.length = length;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Path file;
+    private final long ttlMillis;
+    private final java.util.LinkedHashMap<String, Cached> memory;
+    private final MyMap<String, Location> onDisk = new MyMap<>();
+    private FileChannel log;
+    private long end;          // end of the last whole record
+    private long liveBytes;
+    private boolean closed;
+
+    /**
+     * @param file The log file; created if missing
+     * @param maxEntries How many results to keep in memory
+     * @param ttlMillis How long a result stays valid
+     */
+    public AIResultCache(Path file, int maxEntries, long ttlMillis) throws IOException {
+        this.file = file;
+        this.ttlMillis = ttlMillis;
+        this.memory = new java.util.LinkedHashMap<String, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<String, Cached> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        log = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replay();
+        end = log.size();
+        if (log.size() > COMPACT_MIN_BYTES && log.size() > 2 * liveBytes) compact();
+    }
+
+    // Cache key for an operation on some article content; version names the model and prompt that answer it
+    static String key(String content, String operation, String version) {
+        return hashKey(contentHash(content), operation, version);
+    }
+
+    // The same, for content whose contentHash is already known
+    static String hashKey(String contentHash, String operation, String version) {
+        return contentHash + '/' + operation + '/' + version;
+    }
+
+    static String contentHash(String content) {
+        try {
+            byte[] digest = java.security.MessageDigest.getInstance("SHA-256")
+                    .digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) hex.append(Character.forDigit(b >> 4 & 15, 16)).append(Character.forDigit(b & 15, 16));
+            return hex.toString();
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The cached result, or null if there is none or it expired
+    public synchronized String get(String key) {
+        long now = System.currentTimeMillis();
+        Cached entry = memory.get(key);
+        if (entry != null) {
+            if (entry.expiresAt > now) return entry.value;
+            memory.remove(key);
+        }
+        Location location = onDisk.get(key);
+        if (location == null || location.expiresAt <= now) return null;
+        try {
+            ByteBuffer record = readFully(channel(), location.offset, location.length);
+            record.position(HEADER_BYTES + 8 + 1);
+            readString(record);
+            String value = readString(record);
+            memory.put(key, new Cached(value, location.expiresAt));
+            return value;
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to read AI cache: " + e);
+            return null;
+        }
+    }
+
+    public synchronized void put(String key, String value) {
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        memory.put(key, new Cached(value, expiresAt));
+        try {
+            append(PUT, key, value, expiresAt);
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to write AI cache: " + e);
+        }
+    }
+
+    /**
+     * The cached result for key, or the result of compute, which is then cached. compute runs without
+     * holding the cache lock; if it throws, nothing is cached.
+     */
+    public String get(String key, java.util.function.Supplier<String> compute) {
+        String value = get(key);
+        if (value != null) return value;
+        value = compute.get();
+        if (value != null) put(key, value);
+        return value;
+    }
+
+    // Drop every result for some article content, e.g. after the article changed or was deleted
+    public synchronized void invalidateContent(String content) {
+        String prefix = contentHash(content) + '/';
+        memory.keySet().removeIf(key -> key.startsWith(prefix));
+        MyList<String> removed = new MyList<>();
+        for (MyMap.Entry<String, Location> entry : onDisk) {
+            if (entry.getKey().startsWith(prefix)) removed.add(entry.getKey());
+        }
+        try {
+            for (int i = 0; i < removed.size(); i++) append(REMOVE, removed.get(i), "", 0);
+        } catch (IOException e) {
+            System.err.println("Warning: Failed to write AI cache: " + e);
+        }
+    }
+
+    public synchronized int memorySize() {
+        return memory.size();
+    }
+
+    public synchronized void close() throws IOException {
+        closed = true;
+        log.close();
+    }
+
+    // The log, reopened if an interrupt closed it
+    private FileChannel channel() throws IOException {
+        if (!log.isOpen() && !closed) {
+            log = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (log.size() > end) log.truncate(end);
+        }
+        return log;
+    }
+
+    private void append(byte kind, String key, String value, long expiresAt) throws IOException {
+        byte[] record = encode(kind, key, value, expiresAt);
+        long offset = end;
+        FileChannel channel = channel();
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) channel.write(buffer, offset + buffer.position());
+        end += record.length;
+        Location previous = onDisk.remove(key);
+        if (previous != null) liveBytes -= previous.length;
+        if (kind == PUT) {
+            onDisk.put(key, new Location(offset, record.length, expiresAt));
+            liveBytes += record.length;
+        }
+    }
+
+    private static byte[] encode(byte kind, String key, String value, long expiresAt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeLong(expiresAt);
+        body.writeByte(kind);
+        writeString(body, key);
+        writeString(body, value);
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        record.putInt(HEADER_BYTES + payload.length).putInt((int) crc.getValue()).put(payload);
+        return record.array();
+    }
+
+    // Rebuild the offset index from the log, skipping expired entries and cutting off a torn tail
+    private void replay() throws IOException {
+        long now = System.currentTimeMillis();
+        long size = log.size();
+        long offset = 0;
+        if (size > Integer.MAX_VALUE) throw new IOException("AI cache too large: " + size + " bytes");
+        ByteBuffer all = readFully(log, 0, (int) size);
+        while (all.remaining() >= HEADER_BYTES) {
+            int length = all.getInt(all.position());
+            if (length < HEADER_BYTES + 10 || length > all.remaining()) break;
+            int expectedCrc = all.getInt(all.position() + 4);
+            CRC32 crc = new CRC32();
+            ByteBuffer body = all.duplicate();
+            body.position(all.position() + HEADER_BYTES).limit(all.position() + length);
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != expectedCrc) break;
+            long expiresAt = body.getLong();
+            byte kind = body.get();
+            String key = readString(body);
+            Location previous = onDisk.remove(key);
+            if (previous != null) liveBytes -= previous.length;
+            if (kind == PUT && expiresAt > now) {
+                onDisk.put(key, new Location(offset, length, expiresAt));
+                liveBytes += length;
+            }
+            offset += length;
+            all.position(all.position() + length);
+        }
+        if (offset < size) {
+            System.err.println("Warning: Dropping " + (size - offset) + " damaged byte(s) at the end of the AI cache");
+            log.truncate(offset);
+        }
+    }
+
+    // Rewrite the log with only the live records
+    private void compact() throws IOException {
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), "ai-cache", ".tmp");
+        MyMap<String, Location> moved = new MyMap<>(onDisk.size());
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            long offset = 0;
+            for (MyMap.Entry<String, Location> entry : onDisk) {
+                Location location = entry.getValue();
+                ByteBuffer record = readFully(log, location.offset, location.length);
+                while (record.hasRemaining()) offset += out.write(record);
+                moved.put(entry.getKey(), new Location(offset - location.length, location.length, location.expiresAt));
+            }
+            out.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        log.close();
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        end = log.size();
+        for (MyMap.Entry<String, Location> entry : moved) onDisk.put(entry.getKey(), entry.getValue());
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) throw new IOException("Unexpected end of AI cache");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        String text = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return text;
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.function.Consumer;
+
+// Something that can summarize a news article, judge its sentiment and suggest related topics: OpenAIService,
+// which asks the OpenAI API, or LocalAnalyzer, which works offline in milliseconds.
+interface AnalysisBackend {
+    // Everything the article window shows
+    class Analysis {
+        public final String summary;
+        public final String sentiment;
+        public final String relatedTopics;
+
+        public Analysis(String summary, String sentiment, String relatedTopics) {
+            this.summary = summary;
+            this.sentiment = sentiment;
+            this.relatedTopics = relatedTopics;
+        }
+
+        // All three parts from the cache, or null if any of them is missing
+        static Analysis fromCache(AIResultCache cache, AnalysisBackend backend, String content) {
+            return fromCacheByHash(cache, backend, AIResultCache.contentHash(content));
+        }
+
+        // The same, by the content's AIResultCache.contentHash
+        static Analysis fromCacheByHash(AIResultCache cache, AnalysisBackend backend, String hash) {
+            String version = backend.version();
+            String summary = cache.get(AIResultCache.hashKey(hash, "summary", version));
+            String sentiment = summary == null ? null : cache.get(AIResultCache.hashKey(hash, "sentiment", version));
+            String related = sentiment == null ? null : cache.get(AIResultCache.hashKey(hash, "related", version));
+            return related == null ? null : new Analysis(summary, sentiment, related);
+        }
+
+        // Cached per part, so the single-answer methods find them too
+        void saveTo(AIResultCache cache, AnalysisBackend backend, String content) {
+            String hash = AIResultCache.contentHash(content);
+            String version = backend.version();
+            cache.put(AIResultCache.hashKey(hash, "summary", version), summary);
+            cache.put(AIResultCache.hashKey(hash, "sentiment", version), sentiment);
+            cache.put(AIResultCache.hashKey(hash, "related", version), relatedTopics);
+        }
+    }
+
+    // Where the backend's answer to an operation ("summary", "sentiment", "related") on some content is cached
+    static String cacheKey(AnalysisBackend backend, String content, String operation) {
+        return AIResultCache.key(content, operation, backend.version());
+    }
+
+    // Identifies the backend and how it asks (e.g. model and prompt version), so cached answers from a
+    // different one are never reused
+    String version();
+
+    // A short summary of the article
+    String summarizeArticle(String content);
+
+    // One word: positive, negative or neutral
+    String analyzeSentiment(String content);
+
+    // A handful of related topics or keywords
+    String suggestRelatedTopics(String content);
+
+    // All three at once; backends that can do this in one go override it
+    default Analysis analyzeArticle(String content) {
+        return new Analysis(summarizeArticle(content), analyzeSentiment(content), suggestRelatedTopics(content));
+    }
+
+    /**
+     * analyzeArticle, passing the answer so far to onText while it is being produced, in the labelled format
+     * OpenAIService.parsePartial reads. Backends that can't stream just return the finished answer.
+     */
+    default Analysis streamAnalysis(String content, Consumer<String> onText) {
+        return analyzeArticle(content);
+    }
+}
@@ -1,20 +1,117 @@
 class Article {
+    static final long UNKNOWN_DATE = Long.MIN_VALUE;
+
     int id;
     String title;
-    String content;
-    MyList<String> keywords;
+    // Body text until it is moved to the content store; after that only the handle stays on the heap
+    private String content;
+    private ContentStore contentStore;
+    // Changes when the store is compacted, possibly while the body is being read
+    private volatile long contentHandle;
+    private int contentLength;
+    // KeywordDictionary ids of the article's normalized keywords
+    int[] keywordIds;
     String date;
+    // Publication time in epoch seconds (UTC), parsed from date at ingest; UNKNOWN_DATE if it can't be parsed
+    long published;
     int popularity;
+    // File the article was loaded from, with its size and modification time, to detect changes on disk
+    String sourceFile;
+    long sourceSize;
+    long sourceModified;
+    // Summary, sentiment and related topics once background enrichment has them; null until then
+    volatile AnalysisBackend.Analysis analysis;
 
     public Article(int id, String title, String content, MyList<String> keywords, String date, int popularity) {
+        this(id, title, content, KeywordDictionary.internAll(keywords), date, popularity);
+    }
+
+    public Article(int id, String title, String content, int[] keywordIds, String date, int popularity) {
         this.id = id;
         this.title = title;
         this.content = content;
-        this.keywords = new MyList<>();
-        for (int i = 0; i < keywords.size(); i++) {
-            this.keywords.add(keywords.get(i).toLowerCase());
-        }
+        this.keywordIds = keywordIds;
         this.date = date;
+        this.published = parseDate(date);
         this.popularity = popularity;
     }
+
+    // Epoch seconds for "2025-03-10", "2025-03-10T14:30[:00]" or "2025-03-10 14:30" (UTC), or with an offset
+    // such as "2025-03-10T14:30:00+01:00"; UNKNOWN_DATE for anything else
+    static long parseDate(String date) {
+        if (date == null) return UNKNOWN_DATE;
+        String text = date.trim();
+        try {
+            if (text.length() == 10) return java.time.LocalDate.parse(text).toEpochDay() * 86400L;
+            text = text.replace(' ', 'T');
+            java.time.temporal.TemporalAccessor parsed = java.time.format.DateTimeFormatter.ISO_DATE_TIME
+                    .parseBest(text, java.time.OffsetDateTime::from, java.time.LocalDateTime::from);
+            if (parsed instanceof java.time.OffsetDateTime) {
+                return ((java.time.OffsetDateTime) parsed).toEpochSecond();
+            }
+            return ((java.time.LocalDateTime) parsed).toEpochSecond(java.time.ZoneOffset.UTC);
+        } catch (java.time.DateTimeException e) {
+            return UNKNOWN_DATE;
+        }
+    }
+
+    // Keyword texts, for display
+    public MyList<String> keywords() {
+        MyList<String> result = new MyList<>(keywordIds.length);
+        for (int keywordId : keywordIds) result.add(KeywordDictionary.keyword(keywordId));
+        return result;
+    }
+
+    // The article body, decoded from the content store if it was moved there
+    public String getContent() {
+        String text = content;
+        if (text != null) return text;
+        long handle = contentHandle;
+        try {
+            return contentStore.read(handle, contentLength);
+        } catch (java.io.IOException e) {
+            // Moved by a compaction after the handle was taken: read it from its new place
+            if (contentHandle != handle) return getContent();
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    // Move the body off the heap; it stays on the heap if the store can't be written
+    void storeContent(ContentStore store) {
+        if (content == null) return;
+        byte[] data = content.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        try {
+            contentHandle = store.append(data);
+        } catch (java.io.IOException e) {
+            System.err.println("Warning: Keeping article " + id + " in memory: " + e.getMessage());
+            return;
+        }
+        contentLength = data.length;
+        contentStore = store;
+        content = null;
+    }
+
+    // Point the article at a body that is already in the store
+    void setStoredContent(ContentStore store, long handle, int length) {
+        contentStore = store;
+        contentHandle = handle;
+        contentLength = length;
+        content = null;
+    }
+
+    boolean isContentStored() {
+        return content == null;
+    }
+
+    boolean isContentStoredIn(ContentStore store) {
+        return content == null && contentStore == store;
+    }
+
+    long contentHandle() {
+        return contentHandle;
+    }
+
+    int contentLength() {
+        return contentLength;
+    }
 }
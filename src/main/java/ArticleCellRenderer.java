@@ -0,0 +1,52 @@
+// Draws one row of the article list. A single instance is reused for every visible row: the list asks it to
+// configure itself for a row and paints it, so no components are created per article. Plain labels with
+// fonts are used instead of HTML, which is much slower to lay out.
+class ArticleCellRenderer extends javax.swing.JPanel implements javax.swing.ListCellRenderer<Article> {
+    private static final long serialVersionUID = 1L;
+    private final javax.swing.JLabel titleLabel = new javax.swing.JLabel();
+    private final javax.swing.JLabel popularityLabel = new javax.swing.JLabel();
+    private final javax.swing.JLabel keywordsLabel = new javax.swing.JLabel();
+    private final StringBuilder text = new StringBuilder();
+
+    public ArticleCellRenderer() {
+        setLayout(new javax.swing.BoxLayout(this, javax.swing.BoxLayout.Y_AXIS));
+        setBorder(javax.swing.BorderFactory.createCompoundBorder(
+                javax.swing.BorderFactory.createMatteBorder(0, 0, 1, 0, java.awt.Color.GRAY),
+                javax.swing.BorderFactory.createEmptyBorder(6, 8, 6, 8)));
+        titleLabel.setFont(new java.awt.Font("SansSerif", java.awt.Font.BOLD, 13));
+        popularityLabel.setFont(new java.awt.Font("SansSerif", java.awt.Font.ITALIC, 12));
+        keywordsLabel.setFont(new java.awt.Font("SansSerif", java.awt.Font.ITALIC, 12));
+        add(titleLabel);
+        add(popularityLabel);
+        add(keywordsLabel);
+    }
+
+    @Override
+    public java.awt.Component getListCellRendererComponent(javax.swing.JList<? extends Article> list, Article article,
+                                                           int index, boolean isSelected, boolean cellHasFocus) {
+        java.awt.Color background = isSelected ? list.getSelectionBackground() : list.getBackground();
+        java.awt.Color foreground = isSelected ? list.getSelectionForeground() : list.getForeground();
+        setBackground(background);
+        titleLabel.setForeground(foreground);
+        popularityLabel.setForeground(isSelected ? foreground : java.awt.Color.DARK_GRAY);
+        keywordsLabel.setForeground(foreground);
+
+        if (article == null) {
+            titleLabel.setText("Loading...");
+            popularityLabel.setText(" ");
+            keywordsLabel.setText(" ");
+            return this;
+        }
+        text.setLength(0);
+        text.append(article.title).append(" (").append(article.date).append(')');
+        titleLabel.setText(text.toString());
+        popularityLabel.setText("🔥 Popularity: " + article.popularity);
+
+        text.setLength(0);
+        for (int keywordId : article.keywordIds) {
+            text.append(text.length() == 0 ? "Keywords: " : ", ").append(KeywordDictionary.keyword(keywordId));
+        }
+        keywordsLabel.setText(text.length() == 0 ? " " : text.toString());
+        return this;
+    }
+}
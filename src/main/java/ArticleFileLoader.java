@@ -1,63 +1,168 @@
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ArticleFileLoader {
+    // Files handed to a worker at a time; large enough to amortize scheduling, small enough to balance load
+    private static final int CHUNK_SIZE = 256;
 
     public static List<Article> loadArticlesFromDirectory(String dirPath) {
-        List<Article> articles = new ArrayList<>();
-        File folder = new File(dirPath);
-        File[] files = folder.listFiles((dir, name) -> name.endsWith(".txt"));
+        return loadArticlesFromDirectory(dirPath, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Reads and parses all .txt files on up to `threads` workers. Files are sorted by name and article ids
+    // follow that order (1, 2, ...), so the same directory always gets the same ids.
+    public static List<Article> loadArticlesFromDirectory(String dirPath, int threads) {
+        return loadArticlesFromDirectory(dirPath, threads, null);
+    }
 
-        if (files == null) {
+    // As above, but each body is moved into the content store right after parsing (when store isn't null),
+    // so the whole corpus never has to fit on the heap at once
+    public static List<Article> loadArticlesFromDirectory(String dirPath, int threads, ContentStore store) {
+        long start = System.nanoTime();
+        Path[] files = listArticleFiles(Paths.get(dirPath));
+        if (files == null || files.length == 0) {
             System.err.println("No article files found in directory: " + dirPath);
-            return articles;
+            return new ArrayList<>();
         }
 
-        int id = 1;
-        for (File file : files) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                String title = "", date = "", content = "";
-                int popularity = 0;
-                List<String> keywords = new ArrayList<>();
-
-                String line;
-                boolean readingContent = false;
-                StringBuilder contentBuilder = new StringBuilder();
-
-                while ((line = reader.readLine()) != null) {
-                    if (line.startsWith("Title:")) {
-                        title = line.substring(6).trim();
-                    } else if (line.startsWith("Date:")) {
-                        date = line.substring(5).trim();
-                    } else if (line.startsWith("Keywords:")) {
-                        String[] kw = line.substring(9).trim().split(",");
-                        for (String k : kw) {
-                            keywords.add(k.trim());
-                        }
-                    } else if (line.startsWith("Popularity:")) {
-                        popularity = Integer.parseInt(line.substring(11).trim());
-                    } else if (line.equals("---")) {
-                        readingContent = true;
-                    } else if (readingContent) {
-                        contentBuilder.append(line).append("\n");
-                    }
-                }
-
-                content = contentBuilder.toString().trim();
-                MyList<String> myKeywordList = new MyList<>();
-                for (String keyword : keywords) {
-                    myKeywordList.add(keyword.trim().toLowerCase());
+        Article[] parsed = new Article[files.length];
+        AtomicLong bytes = new AtomicLong();
+        int workers = Math.max(1, Math.min(threads, (files.length + CHUNK_SIZE - 1) / CHUNK_SIZE));
+        if (workers == 1) {
+            parseRange(files, 0, files.length, parsed, bytes, store);
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+                Thread t = new Thread(r, "article-loader");
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                List<Future<?>> chunks = new ArrayList<>();
+                for (int from = 0; from < files.length; from += CHUNK_SIZE) {
+                    int begin = from, end = Math.min(files.length, from + CHUNK_SIZE);
+                    chunks.add(pool.submit(() -> parseRange(files, begin, end, parsed, bytes, store)));
                 }
-                Article article = new Article(id++, title, content, myKeywordList, date, popularity);
-                articles.add(article);
+                for (Future<?> chunk : chunks) chunk.get();
             } catch (Exception e) {
-                System.err.println("Failed to read file: " + file.getName() + " - " + e.getMessage());
+                System.err.println("Article loading was interrupted: " + e.getMessage());
+            } finally {
+                pool.shutdownNow();
             }
         }
 
+        List<Article> articles = new ArrayList<>(files.length);
+        for (Article article : parsed) {
+            if (article != null) articles.add(article);
+        }
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        double megabytes = bytes.get() / (1024.0 * 1024.0);
+        System.out.printf("Loaded %d articles (%.1f MB) in %.0f ms on %d thread(s): %.0f files/s, %.1f MB/s%n",
+                articles.size(), megabytes, seconds * 1000, workers, files.length / seconds, megabytes / seconds);
         return articles;
     }
+
+    // All .txt files in the directory, sorted by file name
+    static Path[] listArticleFiles(Path dir) {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.txt")) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) files.add(file);
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        Path[] sorted = files.toArray(new Path[0]);
+        Arrays.sort(sorted, (a, b) -> a.getFileName().toString().compareTo(b.getFileName().toString()));
+        return sorted;
+    }
+
+    private static void parseRange(Path[] files, int from, int to, Article[] out, AtomicLong bytes,
+                                   ContentStore store) {
+        long read = 0;
+        for (int i = from; i < to; i++) {
+            try {
+                out[i] = parseFile(files[i], i + 1);
+                read += out[i].sourceSize;
+                if (store != null) out[i].storeContent(store);
+            } catch (Exception e) {
+                System.err.println("Failed to read file: " + files[i].getFileName() + " - " + e.getMessage());
+            }
+        }
+        bytes.addAndGet(read);
+    }
+
+    // Read and parse a single article file as UTF-8, recording where it came from
+    public static Article parseFile(Path file, int id) throws IOException {
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        byte[] data = Files.readAllBytes(file);
+        Article article = parseArticle(id, new String(data, StandardCharsets.UTF_8));
+        article.sourceFile = file.getFileName().toString();
+        article.sourceSize = data.length;
+        article.sourceModified = modified;
+        return article;
+    }
+
+    // Parse the "Header: value" lines up to the "---" separator; everything after it is the body
+    public static Article parseArticle(int id, String text) {
+        String title = "", date = "";
+        int popularity = 0;
+        IntList keywordIds = new IntList(8);
+
+        int length = text.length();
+        int lineStart = 0;
+        int bodyStart = length;
+        while (lineStart < length) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) lineEnd = length;
+            int end = lineEnd;
+            if (end > lineStart && text.charAt(end - 1) == '\r') end--;
+
+            if (text.startsWith("Title:", lineStart)) {
+                title = trimmed(text, lineStart + 6, end);
+            } else if (text.startsWith("Date:", lineStart)) {
+                date = trimmed(text, lineStart + 5, end);
+            } else if (text.startsWith("Keywords:", lineStart)) {
+                parseKeywords(text, lineStart + 9, end, keywordIds);
+            } else if (text.startsWith("Popularity:", lineStart)) {
+                popularity = Integer.parseInt(trimmed(text, lineStart + 11, end));
+            } else if (end - lineStart == 3 && text.startsWith("---", lineStart)) {
+                bodyStart = lineEnd + 1;
+                break;
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        String content = bodyStart < length ? text.substring(bodyStart) : "";
+        if (content.indexOf('\r') >= 0) content = content.replace("\r\n", "\n");
+        return new Article(id, title, content.trim(), keywordIds.toArray(), date, popularity);
+    }
+
+    // Comma-separated keywords, normalized straight from the text into dictionary ids, skipping empty and
+    // repeated entries
+    private static void parseKeywords(String text, int from, int to, IntList out) {
+        int start = from;
+        while (start <= to) {
+            int comma = text.indexOf(',', start);
+            if (comma < 0 || comma > to) comma = to;
+            KeywordDictionary.addUnique(out, KeywordDictionary.intern(text, start, comma));
+            start = comma + 1;
+        }
+    }
+
+    private static String trimmed(String text, int from, int to) {
+        while (from < to && Character.isWhitespace(text.charAt(from))) from++;
+        while (to > from && Character.isWhitespace(text.charAt(to - 1))) to--;
+        return text.substring(from, to);
+    }
 }
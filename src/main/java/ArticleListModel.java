@@ -0,0 +1,115 @@
+// Lazy list model behind the article list. Either wraps results the caller already has, or reads one of the
+// app's sorted views a page at a time as the JList asks for rows, so only pages near the visible rows are ever
+// fetched. Pages are loaded on the query executor, never on the EDT: a row whose page isn't there yet reads as
+// null (the renderer shows a placeholder) and is repainted when the page arrives. Scrolling forward continues
+// from the previous page's cursor; jumping (dragging the scrollbar) seeks by position. Up to MAX_CACHED_PAGES
+// pages are cached, dropping the least recently read first. All methods are called on the EDT.
+class ArticleListModel extends javax.swing.AbstractListModel<Article> {
+    private static final long serialVersionUID = 1L;
+    static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 64;
+
+    private final NewsAggregatorApp app;
+    private final QueryExecutor queries;
+    private final ArticlePage.SortKey sortKey;  // null for a fixed result list
+    private final MyList<Article> results;
+    private IntObjectMap<ArticlePage> pages = new IntObjectMap<>();
+    private IntSet requested = new IntSet();
+    // When each cached page was last read, in reads since the model was made
+    private IntIntMap lastUsed = new IntIntMap();
+    private int reads;
+    private int epoch;  // bumped by refresh() so pages fetched before it are dropped
+    private int size;
+
+    private ArticleListModel(NewsAggregatorApp app, QueryExecutor queries, ArticlePage.SortKey sortKey,
+                             MyList<Article> results, int size) {
+        this.app = app;
+        this.queries = queries;
+        this.sortKey = sortKey;
+        this.results = results;
+        this.size = size;
+    }
+
+    // A model over results that are already in memory
+    static ArticleListModel of(MyList<Article> results) {
+        return new ArticleListModel(null, null, null, results, results.size());
+    }
+
+    // A model over all size articles in a sort order, with pages fetched on demand
+    static ArticleListModel sorted(NewsAggregatorApp app, QueryExecutor queries, ArticlePage.SortKey sortKey,
+                                   int size) {
+        return new ArticleListModel(app, queries, sortKey, null, size);
+    }
+
+    boolean isSortedView() {
+        return sortKey != null;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    // The article at a row, or null while its page is loading (or if the view shrank since the size was read)
+    @Override
+    public Article getElementAt(int index) {
+        if (results != null) return results.get(index);
+        int number = index / PAGE_SIZE;
+        ArticlePage page = pages.get(number);
+        if (page == null) {
+            request(number);
+            return null;
+        }
+        lastUsed.put(number, ++reads);
+        int offset = index % PAGE_SIZE;
+        return offset < page.articles.size() ? page.articles.get(offset) : null;
+    }
+
+    // Forget cached pages and take the new size after articles were added, removed or re-ranked
+    void refresh(int newSize) {
+        if (results != null) return;
+        pages = new IntObjectMap<>();
+        requested = new IntSet();
+        lastUsed = new IntIntMap();
+        epoch++;
+        int oldSize = size;
+        size = newSize;
+        if (size < oldSize) fireIntervalRemoved(this, size, oldSize - 1);
+        else if (size > oldSize) fireIntervalAdded(this, oldSize, size - 1);
+        if (size > 0) fireContentsChanged(this, 0, size - 1);
+    }
+
+    private void request(int number) {
+        if (requested.contains(number)) return;
+        requested.add(number);
+        ArticlePage previous = pages.get(number - 1);
+        ArticlePage.Cursor after = previous != null ? previous.next : null;
+        int requestEpoch = epoch;
+        queries.fetch(() -> after != null
+                ? app.page(sortKey, after, PAGE_SIZE)
+                : app.pageAt(sortKey, number * PAGE_SIZE, PAGE_SIZE), page -> {
+            if (requestEpoch != epoch) return;
+            requested.remove(number);
+            if (pages.size() >= MAX_CACHED_PAGES) evictLeastRecentlyUsed();
+            pages.put(number, page);
+            lastUsed.put(number, ++reads);
+            int first = number * PAGE_SIZE;
+            int last = Math.min(size, first + PAGE_SIZE) - 1;
+            if (first <= last) fireContentsChanged(this, first, last);
+        }, error -> {
+            // Asked again the next time one of its rows is read
+            if (requestEpoch == epoch) requested.remove(number);
+        });
+    }
+
+    // A linear scan is fine for a few dozen pages
+    private void evictLeastRecentlyUsed() {
+        IntList cached = pages.keys();
+        int oldest = cached.get(0);
+        for (int i = 1; i < cached.size(); i++) {
+            if (lastUsed.get(cached.get(i), 0) < lastUsed.get(oldest, 0)) oldest = cached.get(i);
+        }
+        pages.remove(oldest);
+        lastUsed.remove(oldest, 0);
+    }
+}
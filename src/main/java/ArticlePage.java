@@ -0,0 +1,27 @@
+// One page of articles in a sort order, plus the position where the next page starts.
+// Cursors name the last article shown (its sort key value and id) rather than an offset, so paging stays
+// correct while articles are added, removed or re-ranked in between.
+class ArticlePage {
+    enum SortKey {
+        DATE,       // newest first; articles without a valid date come last
+        POPULARITY  // most popular first
+    }
+
+    static final class Cursor {
+        final long key;
+        final int id;
+
+        Cursor(long key, int id) {
+            this.key = key;
+            this.id = id;
+        }
+    }
+
+    final MyList<Article> articles;
+    final Cursor next;  // null on the last page
+
+    ArticlePage(MyList<Article> articles, Cursor next) {
+        this.articles = articles;
+        this.next = next;
+    }
+}
@@ -0,0 +1,123 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Live ingestion of the articles directory.
+//
+// A daemon thread waits on a WatchService for created, modified and deleted .txt files. Events are collected
+// until the directory has been quiet for the debounce period (or at most MAX_DELAY_MILLIS after the first
+// event, so a steady stream of writes can't hold updates back), then only the affected files are parsed and
+// handed to the app as one batch. Parsing happens on this thread; the indexes are locked only while the
+// parsed batch is applied, so queries and the UI keep running.
+class ArticleWatcher implements Closeable {
+    private static final long MAX_DELAY_MILLIS = 1000;
+
+    private final Path dir;
+    private final NewsAggregatorApp app;
+    private final long debounceMillis;
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    public ArticleWatcher(Path dir, NewsAggregatorApp app, long debounceMillis) throws IOException {
+        this.dir = dir;
+        this.app = app;
+        this.debounceMillis = Math.max(0, Math.min(debounceMillis, MAX_DELAY_MILLIS));
+        this.watchService = FileSystems.getDefault().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        this.thread = new Thread(this::run, "article-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+        System.out.println("Watching " + dir + " for article changes.");
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void run() {
+        MySet<String> pending = new MySet<>();
+        boolean fullSync = false;
+        try {
+            while (!closed) {
+                WatchKey key = watchService.take();
+                long first = System.currentTimeMillis();
+                // Keep draining events until the directory goes quiet or the maximum delay is reached
+                while (key != null) {
+                    fullSync |= collect(key, pending);
+                    if (!key.reset()) {
+                        System.err.println("Article directory is no longer accessible: " + dir);
+                        return;
+                    }
+                    long wait = Math.min(debounceMillis, first + MAX_DELAY_MILLIS - System.currentTimeMillis());
+                    key = wait > 0 ? watchService.poll(wait, TimeUnit.MILLISECONDS) : null;
+                }
+
+                try {
+                    if (fullSync) app.syncWithDirectory();
+                    else apply(pending);
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to apply article changes: " + e.getMessage());
+                }
+                pending = new MySet<>();
+                fullSync = false;
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    // Add the names of changed .txt files to pending; returns true if events were lost and a rescan is needed
+    private boolean collect(WatchKey key, MySet<String> pending) {
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            String name = event.context().toString();
+            if (name.endsWith(".txt")) pending.add(name);
+        }
+        return overflow;
+    }
+
+    // Parse the files that still exist, treat the others as deleted
+    private void apply(MySet<String> pending) {
+        List<Article> changed = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        MyList<String> names = pending.getAll();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            Path file = dir.resolve(name);
+            if (!Files.isRegularFile(file)) {
+                deleted.add(name);
+                continue;
+            }
+            try {
+                changed.add(ArticleFileLoader.parseFile(file, 0));
+            } catch (Exception e) {
+                // Usually a file that is still being written; the write's next event retries it
+                System.err.println("Failed to read file: " + name + " - " + e.getMessage());
+            }
+        }
+        int changes = app.applyFileChanges(changed, deleted);
+        if (changes > 0) System.out.println("Applied " + changes + " article change(s) from " + dir + ".");
+    }
+}
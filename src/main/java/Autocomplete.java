@@ -0,0 +1,152 @@
+import java.util.Locale;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Search box completions: keywords ranked by how many articles have them, and article titles ranked by
+// popularity, both looked up by what the user has typed so far.
+//
+// Lookups read a pair of prefix indexes without taking any lock, so they cost microseconds and can run on the
+// EDT for every keystroke. Added and removed articles only mark the indexes stale; they are rebuilt in the
+// background once changes stop arriving for a while, and lookups keep using the previous build until the new
+// one is swapped in, so completions can lag a burst of ingestion by about the rebuild delay. Views change a
+// title's score in place instead (see popularityChanged), which costs a walk up the index's max-tree.
+class Autocomplete {
+    private static final class Snapshot {
+        final PrefixIndex keywords;   // payload: keyword id
+        final PrefixIndex titles;     // payload: position in articles
+        final Article[] articles;
+        final IntIntMap positionById;
+
+        Snapshot(PrefixIndex keywords, PrefixIndex titles, Article[] articles, int count) {
+            this.keywords = keywords;
+            this.titles = titles;
+            this.articles = articles;
+            this.positionById = new IntIntMap(count);
+            for (int i = 0; i < count; i++) positionById.put(articles[i].id, i);
+        }
+    }
+
+    private final NewsAggregatorApp app;
+    private final long rebuildDelayMillis;
+    private final ScheduledExecutorService builder;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile Snapshot snapshot = new Snapshot(PrefixIndex.EMPTY, PrefixIndex.EMPTY, new Article[0], 0);
+
+    /**
+     * @param app The app whose keywords and titles are completed
+     * @param rebuildDelayMillis How long after a change the indexes are rebuilt; later changes in that
+     *                           window are picked up by the same rebuild
+     */
+    public Autocomplete(NewsAggregatorApp app, long rebuildDelayMillis) {
+        this.app = app;
+        this.rebuildDelayMillis = rebuildDelayMillis;
+        this.builder = java.util.concurrent.Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "autocomplete-builder");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    // Note that articles were added or removed (so keywords or titles changed); cheap enough to call on every
+    // change
+    public void invalidate() {
+        if (scheduled.compareAndSet(false, true)) {
+            builder.schedule(this::rebuild, rebuildDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Rank the article's title by its current popularity, without a rebuild
+    public void popularityChanged(Article article) {
+        Snapshot current = snapshot;
+        int position = current.positionById.get(article.id, -1);
+        if (position >= 0 && current.articles[position] == article) {
+            current.titles.setScore(position, article.popularity);
+        }
+    }
+
+    // Up to n keywords starting with prefix, the most widely used first
+    public MyList<String> keywords(String prefix, int n) {
+        IntList ids = snapshot.keywords.complete(normalize(prefix), n);
+        MyList<String> result = new MyList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) result.add(KeywordDictionary.keyword(ids.get(i)));
+        return result;
+    }
+
+    // Up to n articles whose title starts with prefix, the most popular first
+    public MyList<Article> titles(String prefix, int n) {
+        Snapshot current = snapshot;
+        IntList positions = current.titles.complete(normalize(prefix), n);
+        MyList<Article> result = new MyList<>(positions.size());
+        for (int i = 0; i < positions.size(); i++) result.add(current.articles[positions.get(i)]);
+        return result;
+    }
+
+    // Keys and prefixes are compared lowercased, without leading whitespace
+    static String normalize(String text) {
+        int start = 0;
+        while (start < text.length() && Character.isWhitespace(text.charAt(start))) start++;
+        return text.substring(start).toLowerCase(Locale.ROOT);
+    }
+
+    // What a rebuild needs, copied out under the read lock
+    private static final class Sources {
+        final IntList keywordIds = new IntList();
+        final IntList frequencies = new IntList();
+        MyList<Article> articles;
+        int[] popularity;
+    }
+
+    private Sources gather() {
+        Sources sources = new Sources();
+        int dictionarySize = KeywordDictionary.size();
+        for (int id = 0; id < dictionarySize; id++) {
+            PostingList postings = app.keywordIndex.get(id);
+            if (postings == null || postings.isEmpty()) continue;
+            sources.keywordIds.add(id);
+            sources.frequencies.add(postings.size());
+        }
+        sources.articles = app.articlesById.values();
+        sources.popularity = new int[sources.articles.size()];
+        for (int i = 0; i < sources.articles.size(); i++) sources.popularity[i] = sources.articles.get(i).popularity;
+        return sources;
+    }
+
+    private void rebuild() {
+        scheduled.set(false);
+        try {
+            // Sorting and encoding happen after the lock is released
+            Sources sources = app.withReadLock(this::gather);
+
+            String[] keywords = new String[sources.keywordIds.size()];
+            for (int i = 0; i < keywords.length; i++) keywords[i] = KeywordDictionary.keyword(sources.keywordIds.get(i));
+            PrefixIndex keywordIndex = PrefixIndex.build(keywords, sources.frequencies.toArray(),
+                    sources.keywordIds.toArray(), keywords.length);
+
+            MyList<Article> articles = sources.articles;
+            int[] popularity = sources.popularity;
+            String[] titles = new String[articles.size()];
+            int[] positions = new int[articles.size()];
+            Article[] byPosition = new Article[articles.size()];
+            int count = 0;
+            for (int i = 0; i < articles.size(); i++) {
+                Article article = articles.get(i);
+                if (article.title == null || article.title.isEmpty()) continue;
+                titles[count] = normalize(article.title);
+                popularity[count] = popularity[i];
+                positions[count] = count;
+                byPosition[count] = article;
+                count++;
+            }
+            PrefixIndex titleIndex = PrefixIndex.build(titles, popularity, positions, count);
+            snapshot = new Snapshot(keywordIndex, titleIndex, byPosition, count);
+            // Views recorded since gather() went to the previous snapshot
+            for (int i = 0; i < count; i++) {
+                if (byPosition[i].popularity != popularity[i]) popularityChanged(byPosition[i]);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Warning: Failed to rebuild autocomplete: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Append-only, memory-mapped store for article bodies, so the heap only holds article metadata.
+//
+// Bodies are UTF-8 bytes appended to segment files (segment-00000.dat, ...) of SEGMENT_BYTES each. A body is
+// addressed by a handle (segment number in the high 32 bits, byte offset in the low 32) plus its length,
+// which the Article keeps; the bytes are decoded only when the body is asked for. Every segment is mapped
+// once: the segment being written is mapped read-write at full size up front, older ones read-only, so
+// pages live in the OS page cache instead of the Java heap. force() records where writing stopped in
+// store.tail, and the next run carries on appending to that segment from there; bodies written after the
+// last force() belong to no snapshot, so writing over them is fine.
+//
+// Replaced and deleted bodies stay where they are until compact(), which the snapshot writer calls: once at
+// least half the stored bytes are garbage, the live bodies are copied into fresh segments and the old
+// segments are deleted.
+//
+// A random store id is kept in store.id and changes on clear() and compact(), so a snapshot can tell whether
+// the handles it holds still point into this store.
+class ContentStore {
+    static final int SEGMENT_BYTES = 64 << 20;
+    // Garbage worth a compaction, at the least
+    private static final long MIN_GARBAGE_BYTES = 4 << 20;
+
+    private final Path dir;
+    private long id;
+    // Mapped segments by number; replaced (not modified) when a segment is added, so readers need no lock
+    private volatile ByteBuffer[] segments = new ByteBuffer[0];
+    private int writeSegment = -1;
+    private int writePosition;
+    // Segments below this one were compacted away (files that couldn't be deleted yet go on the next start)
+    private int firstSegment;
+
+    public ContentStore(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        Path idFile = dir.resolve("store.id");
+        if (Files.isRegularFile(idFile)) {
+            try {
+                id = Long.parseLong(new String(Files.readAllBytes(idFile), StandardCharsets.UTF_8).trim());
+            } catch (NumberFormatException e) {
+                clear();
+                return;
+            }
+            openSegments();
+        } else {
+            clear();
+        }
+    }
+
+    // Identifies the current contents; changes whenever the store is cleared
+    public long id() {
+        return id;
+    }
+
+    // Drop every stored body and start over with a new store id
+    public synchronized void clear() throws IOException {
+        segments = new ByteBuffer[0];
+        writeSegment = -1;
+        firstSegment = 0;
+        Files.deleteIfExists(dir.resolve("store.tail"));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "segment-*.dat")) {
+            for (Path file : stream) Files.delete(file);
+        }
+        newId();
+    }
+
+    /**
+     * Append a body to the store.
+     *
+     * @param data The body's UTF-8 bytes
+     * @return The handle to read it back with, together with data.length
+     */
+    public synchronized long append(byte[] data) throws IOException {
+        if (writeSegment < 0 || writePosition + data.length > segments[writeSegment].capacity()) {
+            startSegment(Math.max(SEGMENT_BYTES, data.length));
+        }
+        ByteBuffer target = segments[writeSegment].duplicate();
+        target.position(writePosition);
+        target.put(data);
+        long handle = ((long) writeSegment << 32) | writePosition;
+        writePosition += data.length;
+        return handle;
+    }
+
+    // Decode a body written by append
+    public String read(long handle, int length) throws IOException {
+        return new String(bytes(segments, handle, length), StandardCharsets.UTF_8);
+    }
+
+    // Flush written bodies to disk, before a snapshot refers to them, and remember where the next run goes on
+    public synchronized void force() throws IOException {
+        if (writeSegment < 0) return;
+        ((MappedByteBuffer) segments[writeSegment]).force();
+        writeTail();
+    }
+
+    /**
+     * Copy the bodies of the given articles (the ones that still matter) into fresh segments and delete the
+     * old segments, if at least half the stored bytes belong to no article any more. Articles are pointed at
+     * their new handles and the store gets a new id, so snapshots from before no longer match it.
+     *
+     * @param articles Every article whose body may be in this store
+     * @return Whether the store was compacted
+     */
+    public synchronized boolean compact(MyList<Article> articles) throws IOException {
+        long used = 0;
+        for (int i = firstSegment; i < segments.length; i++) {
+            if (segments[i] != null) used += i == writeSegment ? writePosition : segments[i].capacity();
+        }
+        long live = 0;
+        for (int i = 0; i < articles.size(); i++) {
+            Article article = articles.get(i);
+            if (article.isContentStoredIn(this)) live += article.contentLength();
+        }
+        if (used - live < MIN_GARBAGE_BYTES || used - live < live) return false;
+
+        ByteBuffer[] old = segments;
+        int oldCount = old.length;
+        startSegment(SEGMENT_BYTES);
+        for (int i = 0; i < articles.size(); i++) {
+            Article article = articles.get(i);
+            if (!article.isContentStoredIn(this)) continue;
+            int length = article.contentLength();
+            article.setStoredContent(this, append(bytes(old, article.contentHandle(), length)), length);
+        }
+        for (int i = oldCount; i < segments.length; i++) ((MappedByteBuffer) segments[i]).force();
+        newId();
+        firstSegment = oldCount;
+        writeTail();
+
+        // Readers still holding an old handle get an IOException from here on (Article retries those)
+        ByteBuffer[] kept = segments.clone();
+        java.util.Arrays.fill(kept, 0, oldCount, null);
+        segments = kept;
+        deleteBelow(oldCount);
+        System.out.printf("Compacted article content store: %.1f MB of bodies kept, %.1f MB reclaimed%n",
+                live / (1024.0 * 1024.0), (used - live) / (1024.0 * 1024.0));
+        return true;
+    }
+
+    // Fail with an IOException unless a body of this length at handle lies within the store
+    public void check(long handle, int length) throws IOException {
+        segment(segments, handle, length);
+    }
+
+    // A copy of the body at handle in the given segments
+    private byte[] bytes(ByteBuffer[] from, long handle, int length) throws IOException {
+        ByteBuffer source = segment(from, handle, length).duplicate();
+        source.position((int) handle);
+        byte[] data = new byte[length];
+        source.get(data);
+        return data;
+    }
+
+    // The segment holding the body at handle, after checking that the body lies within it
+    private ByteBuffer segment(ByteBuffer[] from, long handle, int length) throws IOException {
+        int number = (int) (handle >>> 32);
+        int offset = (int) handle;
+        ByteBuffer segment = number >= 0 && number < from.length ? from[number] : null;
+        if (segment == null) {
+            throw new IOException("Article body refers to content segment " + number + ", which is not in " + dir);
+        }
+        if (offset < 0 || length < 0 || (long) offset + length > segment.capacity()) {
+            throw new IOException("Article body at " + offset + "+" + length + " is outside content segment "
+                    + number + " in " + dir);
+        }
+        return segment;
+    }
+
+    private void newId() throws IOException {
+        id = new java.security.SecureRandom().nextLong();
+        Files.write(dir.resolve("store.id"), Long.toString(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // "first segment, write segment, write position"
+    private void writeTail() throws IOException {
+        String tail = firstSegment + " " + writeSegment + " " + writePosition;
+        Path tmp = dir.resolve("store.tail.tmp");
+        Files.write(tmp, tail.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, dir.resolve("store.tail"), java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Delete the segment files numbered below first; ones still mapped elsewhere are left for the next start
+    private void deleteBelow(int first) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "segment-*.dat")) {
+            for (Path file : stream) {
+                int number = segmentNumber(file);
+                if (number < 0 || number >= first) continue;
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    System.err.println("Warning: Could not delete compacted " + file + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not delete compacted content segments: " + e.getMessage());
+        }
+    }
+
+    // The number in segment-NNNNN.dat, or -1 for other files
+    private static int segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(8, name.length() - 4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Map the segments left by earlier runs read-only, except the one store.tail says was being written,
+    // which new bodies are appended to
+    private void openSegments() throws IOException {
+        int tailSegment = -1, tailPosition = 0;
+        Path tailFile = dir.resolve("store.tail");
+        if (Files.isRegularFile(tailFile)) {
+            try {
+                String[] tail = new String(Files.readAllBytes(tailFile), StandardCharsets.UTF_8).trim().split(" ");
+                firstSegment = Integer.parseInt(tail[0]);
+                tailSegment = Integer.parseInt(tail[1]);
+                tailPosition = Integer.parseInt(tail[2]);
+            } catch (RuntimeException e) {
+                // Unreadable: keep every segment and append to a new one
+                firstSegment = 0;
+                tailSegment = -1;
+            }
+        }
+        deleteBelow(firstSegment);
+        List<Path> files = new ArrayList<>();
+        IntList numbers = new IntList();
+        int count = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "segment-*.dat")) {
+            for (Path file : stream) {
+                int number = segmentNumber(file);
+                if (number < firstSegment) continue;
+                files.add(file);
+                numbers.add(number);
+                count = Math.max(count, number + 1);
+            }
+        }
+        ByteBuffer[] mapped = new ByteBuffer[count];
+        for (int i = 0; i < files.size(); i++) {
+            int number = numbers.get(i);
+            boolean tail = number == tailSegment;
+            try (FileChannel channel = FileChannel.open(files.get(i), tail
+                    ? new StandardOpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE}
+                    : new StandardOpenOption[] {StandardOpenOption.READ})) {
+                long size = channel.size();
+                if (tail && tailPosition >= 0 && tailPosition <= size) {
+                    mapped[number] = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                    writeSegment = number;
+                    writePosition = tailPosition;
+                } else {
+                    mapped[number] = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                }
+            }
+        }
+        segments = mapped;
+    }
+
+    private void startSegment(int capacity) throws IOException {
+        int number = segments.length;
+        Path file = dir.resolve(String.format("segment-%05d.dat", number));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+        if (writeSegment >= 0) ((MappedByteBuffer) segments[writeSegment]).force();
+        ByteBuffer[] grown = java.util.Arrays.copyOf(segments, number + 1);
+        grown[number] = buffer;
+        segments = grown;
+        writeSegment = number;
+        writePosition = 0;
+    }
+}
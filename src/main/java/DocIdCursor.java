@@ -0,0 +1,16 @@
+// Forward-only iterator over a strictly increasing sequence of article ids
+interface DocIdCursor {
+    int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    // Current id, -1 before the first call to nextDoc/advance
+    int docId();
+
+    // Move to the next id, or NO_MORE_DOCS when exhausted
+    int nextDoc();
+
+    // Move to the first id >= target (target must be greater than docId()), or NO_MORE_DOCS
+    int advance(int target);
+
+    // Upper bound on the number of ids this cursor yields, used to order intersections
+    long cost();
+}
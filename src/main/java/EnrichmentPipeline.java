@@ -0,0 +1,193 @@
+import com.theokanning.openai.OpenAiHttpException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Background stage after ingestion that fetches summary, sentiment and related topics for every article, so
+// opening one shows them straight away instead of waiting for the API.
+//
+// Articles are queued as they are loaded and taken in order by one dispatcher thread. Each request runs on the
+// shared AIRequestScheduler, with at most maxInFlight at a time (held by a semaphore here, not by the
+// scheduler's per-operation cap, which it shares with the article window), and takes its share of a
+// RateLimiter (requests and tokens per minute) once it starts there, so joining the window's request for the
+// same article costs nothing. Rate-limit (429), server (5xx) and network errors are retried with
+// exponential backoff and full jitter: attempt n waits a random time up to base * 2^n, capped at
+// MAX_BACKOFF_MILLIS, so clients that failed together don't retry together. A rejected API key stops the
+// stage; other failures skip the article, which can still be analyzed on demand.
+//
+// Results go on Article.analysis and into the AI result cache, and are always the API's own answers: the
+// window's request for the same article, which this may join, fails rather than falling back. The cache is
+// the checkpoint: after a restart the dispatcher fills articles already answered from it without a request
+// and carries on with the rest.
+class EnrichmentPipeline {
+    // The article window's operation too, so opening an article that is being enriched joins that request
+    static final String OPERATION = "analysis";
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    // Completion tokens OpenAIService.analyzeArticle asks for, charged against the token budget up front
+    private static final int COMPLETION_TOKENS = 260;
+
+    private final AnalysisBackend service;
+    private final AIResultCache cache;
+    private final AIRequestScheduler scheduler;
+    private final RateLimiter limiter;
+    private final Semaphore inFlight;
+    private final int maxRetries;
+    private final long backoffMillis;
+    private final LinkedBlockingQueue<Article> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private volatile boolean stopped;
+
+    // Progress of the current batch (since the queue last ran empty)
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger enriched = new AtomicInteger();
+    private final AtomicInteger resumed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger retries = new AtomicInteger();
+    private volatile long batchStart;
+
+    /**
+     * @param service Where requests go
+     * @param cache Where results are kept across restarts; null to enrich from scratch every time
+     * @param scheduler Shared pool the requests run on
+     * @param limiter Request and token budget
+     * @param maxInFlight Most requests outstanding at once, retries included
+     * @param maxRetries Retries per article after the first attempt
+     * @param backoffMillis Base delay before the first retry
+     */
+    public EnrichmentPipeline(AnalysisBackend service, AIResultCache cache, AIRequestScheduler scheduler,
+                              RateLimiter limiter, int maxInFlight, int maxRetries, long backoffMillis) {
+        this.service = service;
+        this.cache = cache;
+        this.scheduler = scheduler;
+        this.limiter = limiter;
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+        this.maxRetries = Math.max(0, maxRetries);
+        this.backoffMillis = Math.max(1, backoffMillis);
+        // Room for our requests on top of the window's, so enrichment never makes an opened article wait
+        scheduler.setLimit(OPERATION, scheduler.limit(OPERATION) + Math.max(1, maxInFlight));
+        dispatcher = new Thread(this::dispatch, "ai-enrichment");
+        dispatcher.setDaemon(true);
+        dispatcher.setPriority(Thread.MIN_PRIORITY);
+        dispatcher.start();
+    }
+
+    // Queue an article for enrichment; if it already has results by its turn, it is skipped
+    public void enqueue(Article article) {
+        if (stopped) return;
+        if (pending.getAndIncrement() == 0) startBatch();
+        queue.add(article);
+    }
+
+    // Stop taking articles; requests already sent are left to finish
+    public void stop() {
+        stopped = true;
+        dispatcher.interrupt();
+    }
+
+    // Articles enriched per minute in the current batch, by API request (not from the cache)
+    public double articlesPerMinute() {
+        long elapsed = System.nanoTime() - batchStart;
+        return elapsed <= 0 ? 0 : enriched.get() * 60e9 / elapsed;
+    }
+
+    // One line on the current batch, e.g. for the log
+    public String progress() {
+        return String.format("AI enrichment: %d enriched, %d from cache, %d failed, %d retries, %d waiting"
+                        + " (%.0f articles/min)", enriched.get(), resumed.get(), failed.get(), retries.get(),
+                pending.get(), articlesPerMinute());
+    }
+
+    private synchronized void startBatch() {
+        batchStart = System.nanoTime();
+        enriched.set(0);
+        resumed.set(0);
+        failed.set(0);
+        retries.set(0);
+    }
+
+    private void dispatch() {
+        try {
+            while (!stopped) {
+                Article article = queue.take();
+                if (article.analysis != null) {
+                    done();
+                    continue;
+                }
+                String content = article.getContent();
+                AnalysisBackend.Analysis cached = cache == null ? null : AnalysisBackend.Analysis.fromCache(cache, service, content);
+                if (cached != null) {
+                    article.analysis = cached;
+                    resumed.incrementAndGet();
+                    done();
+                    continue;
+                }
+                int tokens = estimateTokens(content);
+                inFlight.acquire();
+                CompletableFuture<AnalysisBackend.Analysis> result = scheduler.submit(OPERATION,
+                        AIResultCache.contentHash(content), () -> fetch(content, tokens));
+                result.whenComplete((analysis, error) -> {
+                    inFlight.release();
+                    if (error == null) {
+                        article.analysis = analysis;
+                        enriched.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        System.err.println("AI enrichment failed for article " + article.id + ": " + cause.getMessage());
+                    }
+                    done();
+                });
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+
+    private void done() {
+        if (pending.decrementAndGet() == 0 && enriched.get() + failed.get() > 0) System.out.println(progress());
+    }
+
+    // The combined request, retried on errors that may go away; each attempt is charged to the limiter
+    private AnalysisBackend.Analysis fetch(String content, int tokens) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                limiter.acquire(tokens);
+                AnalysisBackend.Analysis analysis = service.analyzeArticle(content);
+                if (cache != null) analysis.saveTo(cache, service, content);
+                return analysis;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new java.util.concurrent.CancellationException("Enrichment stopped");
+            } catch (OpenAiHttpException e) {
+                if (e.statusCode == 401 || e.statusCode == 403) {
+                    System.err.println("AI enrichment stopped, the API key was rejected: " + e.getMessage());
+                    stop();
+                    throw e;
+                }
+                if (e.statusCode != 429 && e.statusCode < 500 || attempt == maxRetries) throw e;
+            } catch (IllegalArgumentException e) {
+                throw e; // unparseable answer; retrying the same prompt rarely helps
+            } catch (RuntimeException e) {
+                if (attempt == maxRetries || Thread.currentThread().isInterrupted()) throw e;
+            }
+            retries.incrementAndGet();
+            long ceiling = Math.min(MAX_BACKOFF_MILLIS, backoffMillis << Math.min(attempt, 20));
+            try {
+                Thread.sleep(java.util.concurrent.ThreadLocalRandom.current().nextLong(ceiling + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new java.util.concurrent.CancellationException("Enrichment stopped");
+            }
+        }
+    }
+
+    // Rough token count for the budget: the article, the instructions and the completion. A long article is
+    // sent as summaries of its parts, which fit in MAX_ARTICLE_TOKENS; the part requests themselves go through
+    // the same RateLimiter (see OpenAIService.setChunkThrottle).
+    static int estimateTokens(String content) {
+        return Math.min(OpenAIService.estimateTokens(content), OpenAIService.MAX_ARTICLE_TOKENS) + 100
+                + COMPLETION_TOKENS;
+    }
+}
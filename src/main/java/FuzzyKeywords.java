@@ -0,0 +1,215 @@
+// Finds dictionary keywords within a small edit distance of a misspelled one, e.g. "progamming" -> "programming".
+//
+// Every keyword is split into overlapping 3-character grams, padded with two marker characters on each side
+// ("java" -> "^^j", "^ja", "jav", "ava", "va$", "a$$"), and each gram has a list of the keywords containing
+// it. One edit changes at most four grams (three for an insertion, deletion or substitution, four for swapping
+// two letters), so a keyword within distance k of the term must share all but 4k of the term's grams; k is
+// kept small enough for that to be at least one. Counting shared grams over the term's gram lists yields the
+// candidates. For short terms that bound is loose, so keywords are only counted if they pass two cheap checks
+// that every real match passes too: a length within k of the term's, and a set of letters that differs from
+// the term's in at most 2k letters (one edit adds or removes at most two). Candidates whose letter counts are
+// too far apart are dropped next, and only the few left get the exact distance computed. Nothing ever scans
+// the whole dictionary.
+//
+// The dictionary only grows, so the gram lists are extended with new keywords on the next lookup.
+class FuzzyKeywords {
+    private static final char PAD_START = '\u0002';
+    private static final char PAD_END = '\u0003';
+    private static final long LETTERS = (1L << 56) - 1;
+
+    private final IntObjectMap<IntList> grams = new IntObjectMap<>();
+    private long[] signatures = new long[0];        // keyword id -> length and letter set, see signature()
+    private long[] bags = new long[0];              // keyword id -> letter counts, see bag()
+    private int indexed;                            // keywords [0, indexed) are in the gram lists
+    private int[] counts = new int[0];              // shared grams per keyword id, zeroed between lookups
+
+    // Edits allowed for a term: none for very short terms, where any edit makes a different word, and never
+    // so many that a match could share no gram with the term at all (so 1 up to six letters, 2 from seven)
+    static int maxDistance(String term) {
+        if (term.length() <= 2) return 0;
+        return Math.min(2, (distinctGrams(term).size() - 1) / 4);
+    }
+
+    /**
+     * Keywords close to a term that no article has, the closest first and, at the same distance, the most
+     * used first. Transposing two adjacent letters counts as one edit.
+     *
+     * @param term Normalized (trimmed, lowercased) search term
+     * @param index Keyword index, to skip keywords no article has any more and rank the rest
+     * @param limit Maximum number of corrections
+     * @return Ids of up to limit keywords, never the term itself
+     */
+    public synchronized IntList corrections(String term, KeywordIndex index, int limit) {
+        IntList result = new IntList();
+        int max = maxDistance(term);
+        if (max == 0 || limit <= 0) return result;
+        catchUp();
+
+        IntList termGrams = distinctGrams(term);
+        int threshold = termGrams.size() - 4 * max;
+        long termSignature = signature(term);
+
+        // Keywords that pass the cheap checks are counted; those reaching the threshold are candidates
+        IntList counted = new IntList();
+        IntList candidates = new IntList();
+        for (int g = 0; g < termGrams.size(); g++) {
+            IntList ids = grams.get(termGrams.get(g));
+            if (ids == null) continue;
+            for (int i = 0; i < ids.size(); i++) {
+                int id = ids.get(i);
+                long difference = signatures[id] ^ termSignature;
+                if (Long.bitCount(difference & LETTERS) > 2 * max
+                        || Math.abs((int) (signatures[id] >>> 56) - term.length()) > max) {
+                    continue;
+                }
+                int count = ++counts[id];
+                if (count == 1) counted.add(id);
+                if (count == threshold) candidates.add(id);
+            }
+        }
+        for (int i = 0; i < counted.size(); i++) counts[counted.get(i)] = 0;
+
+        // Verify candidates; keep (distance, -frequency, id) so sorting ranks them
+        int[][] rows = new int[3][term.length() + max + 2];
+        long termBag = bag(term);
+        MyList<long[]> matches = new MyList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            int id = candidates.get(i);
+            if (bagDistance(bags[id], termBag) > max) continue;
+            PostingList postings = index.get(id);
+            if (postings == null || postings.isEmpty()) continue;
+            int distance = distance(term, KeywordDictionary.keyword(id), max, rows);
+            if (distance == 0 || distance > max) continue;
+            matches.add(new long[]{distance, -postings.size(), id});
+        }
+        long[][] sorted = new long[matches.size()][];
+        for (int i = 0; i < sorted.length; i++) sorted[i] = matches.get(i);
+        java.util.Arrays.sort(sorted, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        for (int i = 0; i < Math.min(limit, sorted.length); i++) result.add((int) sorted[i][2]);
+        return result;
+    }
+
+    // Add keywords interned since the last lookup to the gram lists
+    private void catchUp() {
+        int size = KeywordDictionary.size();
+        if (indexed == size) return;
+        if (counts.length < size) {
+            int capacity = Math.max(size, counts.length * 2);
+            counts = java.util.Arrays.copyOf(counts, capacity);
+            signatures = java.util.Arrays.copyOf(signatures, capacity);
+            bags = java.util.Arrays.copyOf(bags, capacity);
+        }
+        for (int id = indexed; id < size; id++) {
+            String keyword = KeywordDictionary.keyword(id);
+            signatures[id] = signature(keyword);
+            bags[id] = bag(keyword);
+            final int keywordId = id;
+            forEachGram(keyword, gram -> {
+                IntList ids = grams.get(gram);
+                if (ids == null) {
+                    ids = new IntList(4);
+                    grams.put(gram, ids);
+                }
+                // Ids arrive in order, so a gram repeated within the keyword shows up as the last entry
+                if (ids.isEmpty() || ids.get(ids.size() - 1) != keywordId) ids.add(keywordId);
+            });
+        }
+        indexed = size;
+    }
+
+    // Length (capped at 255) in the top 8 bits, and which characters occur in the other 56: one bit per
+    // character code mod 56, distinct for a-z. Any mapping of characters to bits keeps the "at most two bits
+    // per edit" property the filter relies on. Both checks read this one long.
+    private static long signature(String text) {
+        long set = 0;
+        for (int i = 0; i < text.length(); i++) set |= 1L << (text.charAt(i) % 56);
+        return (long) Math.min(text.length(), 255) << 56 | set;
+    }
+
+    // How often each character occurs, as 2-bit counts that stop at 3, one per character code mod 28
+    private static long bag(String text) {
+        long bag = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int shift = 2 * (text.charAt(i) % 28);
+            if ((bag >>> shift & 3) < 3) bag += 1L << shift;
+        }
+        return bag;
+    }
+
+    // Lower bound on the edit distance from letter counts alone: characters one side has more of than the
+    // other need at least one edit each, and swapping letters doesn't change the counts
+    private static int bagDistance(long a, long b) {
+        int more = 0, fewer = 0;
+        for (int shift = 0; shift < 56; shift += 2) {
+            int difference = (int) (a >>> shift & 3) - (int) (b >>> shift & 3);
+            if (difference > 0) more += difference;
+            else fewer -= difference;
+        }
+        return Math.max(more, fewer);
+    }
+
+    private static IntList distinctGrams(String text) {
+        IntList result = new IntList();
+        forEachGram(text, gram -> {
+            for (int i = 0; i < result.size(); i++) {
+                if (result.get(i) == gram) return;
+            }
+            result.add(gram);
+        });
+        return result;
+    }
+
+    // Grams as ints: three chars of 10 bits each. Chars beyond that range share codes, which only adds
+    // candidates that the distance check then rejects.
+    private static void forEachGram(String text, java.util.function.IntConsumer action) {
+        int length = text.length() + 4;
+        for (int i = 0; i + 3 <= length; i++) {
+            action.accept((padded(text, i) & 0x3FF) << 20 | (padded(text, i + 1) & 0x3FF) << 10
+                    | (padded(text, i + 2) & 0x3FF));
+        }
+    }
+
+    private static char padded(String text, int i) {
+        if (i < 2) return PAD_START;
+        if (i - 2 >= text.length()) return PAD_END;
+        return text.charAt(i - 2);
+    }
+
+    /**
+     * Edit distance between a and b counting insertions, deletions, substitutions and swaps of adjacent
+     * characters (optimal string alignment). Gives up early and returns max + 1 once the distance must be
+     * greater than max.
+     */
+    static int distance(CharSequence a, CharSequence b, int max) {
+        return distance(a, b, max, new int[3][b.length() + 1]);
+    }
+
+    // The same with three caller-provided rows of at least b.length() + 1 entries, for checking many pairs
+    private static int distance(CharSequence a, CharSequence b, int max, int[][] rows) {
+        int n = a.length(), m = b.length();
+        if (Math.abs(n - m) > max) return max + 1;
+        int[] previous2 = rows[0];
+        int[] previous = rows[1];
+        int[] current = rows[2];
+        for (int j = 0; j <= m; j++) previous[j] = j;
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) return max + 1;
+            int[] tmp = previous2;
+            previous2 = previous;
+            previous = current;
+            current = tmp;
+        }
+        return Math.min(previous[m], max + 1);
+    }
+}
@@ -0,0 +1,228 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Binary snapshot of the app's in-memory indexes, so startup doesn't have to re-parse every article file.
+//
+// Layout: a fixed header (magic, format version, payload length, CRC32 of the payload) followed by the
+// payload: articles with their source file stamps and content store handles, keyword posting lists, the full-text index and the
+// trending heap in heap order. Integers are mostly varints and strings are length-prefixed UTF-8.
+// Snapshots are written to a temporary file and moved into place, and read through a memory-mapped buffer.
+class IndexSnapshot {
+    private static final int MAGIC = 0x4E415331; // "NAS1"
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8;
+
+    public static void write(Path file, NewsAggregatorApp app) throws IOException {
+        long start = System.nanoTime();
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "snapshot", ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream raw = Files.newOutputStream(tmp)) {
+                raw.write(new byte[HEADER_BYTES]);
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(new CheckedOutputStream(raw, crc), 1 << 16));
+                writePayload(out, app);
+                out.flush();
+            }
+            long payloadLength = Files.size(tmp) - HEADER_BYTES;
+            try (RandomAccessFile header = new RandomAccessFile(tmp.toFile(), "rw")) {
+                header.writeInt(MAGIC);
+                header.writeInt(VERSION);
+                header.writeLong(payloadLength);
+                header.writeLong(crc.getValue());
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.printf("Wrote index snapshot (%.1f MB) in %.0f ms%n",
+                    (payloadLength + HEADER_BYTES) / (1024.0 * 1024.0), (System.nanoTime() - start) / 1e6);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Replace the app's indexes with the snapshot's contents.
+     *
+     * @return false (leaving the app untouched) if the file is missing, from another format version,
+     *         truncated or corrupt
+     */
+    public static boolean restore(Path file, NewsAggregatorApp app) {
+        if (!Files.isRegularFile(file)) return false;
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                System.err.println("Ignoring index snapshot: unsupported size " + size);
+                return false;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                System.err.println("Ignoring index snapshot: unknown format");
+                return false;
+            }
+            long payloadLength = buffer.getLong();
+            long expectedCrc = buffer.getLong();
+            if (payloadLength != size - HEADER_BYTES) {
+                System.err.println("Ignoring index snapshot: truncated");
+                return false;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if (crc.getValue() != expectedCrc) {
+                System.err.println("Ignoring index snapshot: checksum mismatch");
+                return false;
+            }
+            readPayload(buffer, app);
+            System.out.printf("Restored %d articles from index snapshot in %.0f ms%n",
+                    app.articlesById.size(), (System.nanoTime() - start) / 1e6);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring index snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void writePayload(DataOutputStream out, NewsAggregatorApp app) throws IOException {
+        MyList<Article> articles = app.articlesById.values();
+        if (app.contentStore != null) {
+            // Before the store id is written: compacting gives the store a new one
+            app.contentStore.compact(articles);
+            app.contentStore.force();
+        }
+        out.writeLong(app.contentStore == null ? 0 : app.contentStore.id());
+        writeVarint(out, articles.size());
+        for (int i = 0; i < articles.size(); i++) {
+            Article article = articles.get(i);
+            out.writeInt(article.id);
+            out.writeInt(article.popularity);
+            writeString(out, article.title);
+            writeString(out, article.date);
+            out.writeBoolean(article.isContentStored());
+            if (article.isContentStored()) {
+                out.writeLong(article.contentHandle());
+                writeVarint(out, article.contentLength());
+            } else {
+                writeString(out, article.getContent());
+            }
+            writeVarint(out, article.keywordIds.length);
+            for (int keywordId : article.keywordIds) writeString(out, KeywordDictionary.keyword(keywordId));
+            writeString(out, article.sourceFile == null ? "" : article.sourceFile);
+            out.writeLong(article.sourceSize);
+            out.writeLong(article.sourceModified);
+        }
+
+        app.keywordIndex.writeTo(out);
+
+        app.textIndex.writeTo(out);
+        app.trendingEngine.writeTo(out);
+    }
+
+    // Build everything into fresh structures first so a corrupt payload leaves the app untouched
+    private static void readPayload(ByteBuffer in, NewsAggregatorApp app) throws IOException {
+        long storeId = in.getLong();
+        ContentStore store = app.contentStore != null && app.contentStore.id() == storeId ? app.contentStore : null;
+        int articleCount = readVarint(in);
+        IntObjectMap<Article> articlesById = new IntObjectMap<>(articleCount);
+        MyList<Article> articles = new MyList<>(articleCount);
+        OrderedIndex dateIndex = new OrderedIndex();
+        OrderedIndex popularityIndex = new OrderedIndex();
+        for (int i = 0; i < articleCount; i++) {
+            int id = in.getInt();
+            int popularity = in.getInt();
+            String title = readString(in);
+            String date = readString(in);
+            boolean stored = in.get() != 0;
+            long handle = 0;
+            int length = 0;
+            String content = null;
+            if (stored) {
+                if (store == null) throw new IllegalStateException("article content store was replaced");
+                handle = in.getLong();
+                length = readVarint(in);
+                store.check(handle, length);
+            } else {
+                content = readString(in);
+            }
+            int keywordCount = readVarint(in);
+            int[] keywordIds = new int[keywordCount];
+            for (int k = 0; k < keywordCount; k++) keywordIds[k] = KeywordDictionary.intern(readString(in));
+            Article article = new Article(id, title, content, keywordIds, date, popularity);
+            if (stored) article.setStoredContent(store, handle, length);
+            String sourceFile = readString(in);
+            article.sourceFile = sourceFile.isEmpty() ? null : sourceFile;
+            article.sourceSize = in.getLong();
+            article.sourceModified = in.getLong();
+            articlesById.put(id, article);
+            articles.add(article);
+            dateIndex.add(id, article.published);
+            popularityIndex.add(id, popularity);
+        }
+
+        KeywordIndex keywordIndex = KeywordIndex.readFrom(in);
+
+        TextIndex textIndex = TextIndex.readFrom(in);
+        TrendingEngine trendingEngine = app.trendingEngine.emptyCopy();
+        if (!trendingEngine.restoreFrom(in, articlesById)) {
+            // Trending settings changed since the snapshot was taken: rank from popularity and dates again
+            trendingEngine = app.trendingEngine.emptyCopy();
+            for (int i = 0; i < articles.size(); i++) {
+                trendingEngine.add(articles.get(i), NewsAggregatorApp.publishedMillis(articles.get(i)));
+            }
+        }
+
+        app.articlesById = articlesById;
+        app.keywordIndex = keywordIndex;
+        app.dateIndex = dateIndex;
+        app.popularityIndex = popularityIndex;
+        app.textIndex = textIndex;
+        app.trendingEngine = trendingEngine;
+    }
+
+    static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarint(ByteBuffer in) {
+        int value = 0, shift = 0;
+        byte b;
+        do {
+            if (shift > 28) throw new IllegalStateException("Malformed varint");
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = readVarint(in);
+        if (length < 0 || length > in.remaining()) throw new IllegalStateException("Malformed string length");
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
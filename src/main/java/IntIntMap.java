@@ -0,0 +1,135 @@
+// Open-addressing map from primitive int keys to primitive int values.
+// Key 0 marks an empty slot in the table, so a mapping for 0 is kept on the side.
+class IntIntMap {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    public IntIntMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntIntMap(int expectedSize) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Negative size: " + expectedSize);
+        long needed = (long) Math.ceil(expectedSize / (double) LOAD_FACTOR) + 1;
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < needed && capacity < MAX_CAPACITY) capacity <<= 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = Math.min(capacity - 1, (int) (capacity * LOAD_FACTOR));
+    }
+
+    private int slotFor(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int findSlot(int key) {
+        int slot = slotFor(key);
+        int existing;
+        while ((existing = keys[slot]) != 0) {
+            if (existing == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Add or update a key-value pair
+    public void put(int key, int value) {
+        if (key == 0) {
+            if (!hasZeroKey) size++;
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int slot = findSlot(key);
+        if (keys[slot] != 0) {
+            values[slot] = value;
+            return;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) rehash(keys.length << 1);
+    }
+
+    // Get the value for a key, or missingValue if it is absent
+    public int get(int key, int missingValue) {
+        if (key == 0) return hasZeroKey ? zeroValue : missingValue;
+        int slot = findSlot(key);
+        return keys[slot] != 0 ? values[slot] : missingValue;
+    }
+
+    public boolean containsKey(int key) {
+        if (key == 0) return hasZeroKey;
+        return keys[findSlot(key)] != 0;
+    }
+
+    // Remove a key and return its previous value, or missingValue if it was absent
+    public int remove(int key, int missingValue) {
+        if (key == 0) {
+            if (!hasZeroKey) return missingValue;
+            hasZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+        int slot = findSlot(key);
+        if (keys[slot] == 0) return missingValue;
+        int old = values[slot];
+        // Backward-shift deletion, see MyMap.shiftBack
+        int hole = slot;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int k = keys[slot];
+            if (k == 0) break;
+            int home = slotFor(k);
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = k;
+                values[hole] = values[slot];
+                hole = slot;
+            }
+        }
+        keys[hole] = 0;
+        size--;
+        return old;
+    }
+
+    private void rehash(int newCapacity) {
+        if (keys.length >= MAX_CAPACITY) {
+            if (size >= keys.length - 1) throw new IllegalStateException("IntIntMap is full");
+            return;
+        }
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key == 0) continue;
+            int slot = slotFor(key);
+            while (keys[slot] != 0) slot = (slot + 1) & mask;
+            keys[slot] = key;
+            values[slot] = oldValues[i];
+        }
+    }
+}
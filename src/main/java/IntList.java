@@ -0,0 +1,68 @@
+// Growable list of primitive ints, the unboxed counterpart of MyList<Integer>
+class IntList {
+    private int[] data;
+    private int size;
+
+    // Default constructor
+    public IntList() {
+        this(10);
+    }
+
+    // Constructor with an initial capacity
+    public IntList(int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("Negative capacity: " + initialCapacity);
+        data = new int[Math.max(initialCapacity, 1)];
+    }
+
+    // Add a new element
+    public void add(int value) {
+        if (size == data.length) resize(size + 1);
+        data[size++] = value;
+    }
+
+    // Get element at index
+    public int get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException();
+        return data[index];
+    }
+
+    // Set value at index
+    public void set(int index, int value) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException();
+        data[index] = value;
+    }
+
+    // Remove the last element
+    public void removeLast() {
+        if (size > 0) size--;
+    }
+
+    // Get number of elements
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // Copy of the elements in insertion order
+    public int[] toArray() {
+        return java.util.Arrays.copyOf(data, size);
+    }
+
+    // Sort the elements in ascending order
+    public void sort() {
+        java.util.Arrays.sort(data, 0, size);
+    }
+
+    // Resize internal array
+    private void resize(int minCapacity) {
+        int newCapacity = Math.max(minCapacity, data.length * 2);
+        data = java.util.Arrays.copyOf(data, newCapacity);
+    }
+}
@@ -0,0 +1,172 @@
+// Open-addressing map from primitive int keys to objects, the unboxed counterpart of MyMap<Integer, V>.
+// Key 0 marks an empty slot in the table, so a mapping for 0 is kept on the side.
+class IntObjectMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float DEFAULT_LOAD_FACTOR = 0.5f;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+    private final float loadFactor;
+
+    private boolean hasZeroKey;
+    private V zeroValue;
+
+    public IntObjectMap() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    public IntObjectMap(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    public IntObjectMap(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Negative size: " + expectedSize);
+        if (!(loadFactor > 0f && loadFactor < 1f))
+            throw new IllegalArgumentException("Load factor must be in (0, 1): " + loadFactor);
+        this.loadFactor = loadFactor;
+        long needed = (long) Math.ceil(expectedSize / (double) loadFactor) + 1;
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < needed && capacity < MAX_CAPACITY) capacity <<= 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    private int slotFor(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // Returns the slot holding key, or the empty slot where it would go
+    private int findSlot(int key) {
+        int slot = slotFor(key);
+        int existing;
+        while ((existing = keys[slot]) != 0) {
+            if (existing == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Add or update a key-value pair
+    public void put(int key, V value) {
+        if (key == 0) {
+            if (!hasZeroKey) size++;
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int slot = findSlot(key);
+        if (keys[slot] != 0) {
+            values[slot] = value;
+            return;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) rehash(keys.length << 1);
+    }
+
+    // Get the value for a given key
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == 0) return zeroValue;
+        return (V) values[findSlot(key)];
+    }
+
+    public boolean containsKey(int key) {
+        if (key == 0) return hasZeroKey;
+        return keys[findSlot(key)] != 0;
+    }
+
+    // Remove a key and return its previous value
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key == 0) {
+            V old = zeroValue;
+            if (hasZeroKey) size--;
+            hasZeroKey = false;
+            zeroValue = null;
+            return old;
+        }
+        int slot = findSlot(key);
+        if (keys[slot] == 0) return null;
+        V old = (V) values[slot];
+        shiftBack(slot);
+        size--;
+        return old;
+    }
+
+    // Backward-shift deletion, see MyMap.shiftBack
+    private void shiftBack(int hole) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int key = keys[slot];
+            if (key == 0) break;
+            int home = slotFor(key);
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = key;
+                values[hole] = values[slot];
+                hole = slot;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = null;
+    }
+
+    private void rehash(int newCapacity) {
+        if (keys.length >= MAX_CAPACITY) {
+            if (size >= keys.length - 1) throw new IllegalStateException("IntObjectMap is full");
+            return;
+        }
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key == 0) continue;
+            int slot = slotFor(key);
+            while (keys[slot] != 0) slot = (slot + 1) & mask;
+            keys[slot] = key;
+            values[slot] = oldValues[i];
+        }
+    }
+
+    // All keys currently in the map, in table order
+    public IntList keys() {
+        IntList result = new IntList(size);
+        if (hasZeroKey) result.add(0);
+        for (int key : keys) {
+            if (key != 0) result.add(key);
+        }
+        return result;
+    }
+
+    // All values currently in the map, in table order
+    @SuppressWarnings("unchecked")
+    public MyList<V> values() {
+        MyList<V> result = new MyList<>(size);
+        if (hasZeroKey) result.add(zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) result.add((V) values[i]);
+        }
+        return result;
+    }
+}
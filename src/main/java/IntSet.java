@@ -0,0 +1,125 @@
+// Open-addressing hash set of primitive ints, the unboxed counterpart of MySet<Integer>.
+// 0 marks an empty slot in the table, so membership of 0 is tracked on the side.
+class IntSet {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] table;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+    private boolean hasZero;
+
+    public IntSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntSet(int expectedSize) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Negative size: " + expectedSize);
+        long needed = (long) Math.ceil(expectedSize / (double) LOAD_FACTOR) + 1;
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < needed && capacity < MAX_CAPACITY) capacity <<= 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        table = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = Math.min(capacity - 1, (int) (capacity * LOAD_FACTOR));
+    }
+
+    private int slotFor(int value) {
+        int h = value * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int findSlot(int value) {
+        int slot = slotFor(value);
+        int existing;
+        while ((existing = table[slot]) != 0) {
+            if (existing == value) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Returns true if the value was not already present
+    public boolean add(int value) {
+        if (value == 0) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int slot = findSlot(value);
+        if (table[slot] != 0) return false;
+        table[slot] = value;
+        if (++size > resizeThreshold) rehash(table.length << 1);
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value == 0) return hasZero;
+        return table[findSlot(value)] != 0;
+    }
+
+    public boolean remove(int value) {
+        if (value == 0) {
+            if (!hasZero) return false;
+            hasZero = false;
+            size--;
+            return true;
+        }
+        int slot = findSlot(value);
+        if (table[slot] == 0) return false;
+        // Backward-shift deletion, see MyMap.shiftBack
+        int hole = slot;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int v = table[slot];
+            if (v == 0) break;
+            int home = slotFor(v);
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                table[hole] = v;
+                hole = slot;
+            }
+        }
+        table[hole] = 0;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void rehash(int newCapacity) {
+        if (table.length >= MAX_CAPACITY) {
+            if (size >= table.length - 1) throw new IllegalStateException("IntSet is full");
+            return;
+        }
+        int[] old = table;
+        allocate(newCapacity);
+        for (int v : old) {
+            if (v == 0) continue;
+            int slot = slotFor(v);
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = v;
+        }
+    }
+
+    // All elements, in table order
+    public IntList getAll() {
+        IntList result = new IntList(size);
+        if (hasZero) result.add(0);
+        for (int v : table) {
+            if (v != 0) result.add(v);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,58 @@
+// Process-wide dictionary of normalized (trimmed, lowercased) keywords.
+// Every distinct keyword is stored once and gets a dense int id, which is what articles and the keyword index
+// hold instead of Strings. Ids are never reused or removed, so they stay valid for the life of the process.
+// The loader interns from worker threads, hence the lock; an uncontended lock is cheap next to parsing.
+class KeywordDictionary {
+    private static final TermDictionary terms = new TermDictionary();
+    private static char[] scratch = new char[64];
+
+    private KeywordDictionary() {
+    }
+
+    // Id of an already normalized keyword, adding it if it is new
+    public static synchronized int intern(String keyword) {
+        return terms.intern(keyword);
+    }
+
+    // Id of text[from, to) after trimming and lowercasing, adding it if it is new; -1 if it is blank
+    public static synchronized int intern(CharSequence text, int from, int to) {
+        while (from < to && Character.isWhitespace(text.charAt(from))) from++;
+        while (to > from && Character.isWhitespace(text.charAt(to - 1))) to--;
+        if (from == to) return -1;
+        if (scratch.length < to - from) scratch = new char[Math.max(to - from, scratch.length * 2)];
+        for (int i = from; i < to; i++) scratch[i - from] = Character.toLowerCase(text.charAt(i));
+        return terms.intern(scratch, 0, to - from);
+    }
+
+    // Ids of raw keywords, normalized, without blanks or duplicates, in their original order
+    public static int[] internAll(MyList<String> keywords) {
+        IntList ids = new IntList(keywords.size());
+        for (int i = 0; i < keywords.size(); i++) {
+            String keyword = keywords.get(i);
+            addUnique(ids, intern(keyword, 0, keyword.length()));
+        }
+        return ids.toArray();
+    }
+
+    // Append id unless it is -1 or already present (keyword lists are short, so a scan is fine)
+    static void addUnique(IntList ids, int id) {
+        if (id < 0) return;
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) == id) return;
+        }
+        ids.add(id);
+    }
+
+    // Id of a normalized keyword, or -1 if no article ever had it
+    public static synchronized int lookup(CharSequence keyword) {
+        return terms.lookup(keyword);
+    }
+
+    public static synchronized String keyword(int id) {
+        return terms.term(id);
+    }
+
+    public static synchronized int size() {
+        return terms.size();
+    }
+}
@@ -0,0 +1,74 @@
+// Keyword -> article ids, with posting lists in a flat array indexed by KeywordDictionary id.
+// A lookup by text is one dictionary probe followed by an array access; callers that already hold term ids
+// (articles do) skip the probe entirely.
+class KeywordIndex {
+    private PostingList[] postings = new PostingList[64];
+    private int keywords;   // number of non-empty posting lists
+
+    // Number of keywords with at least one article
+    public int size() {
+        return keywords;
+    }
+
+    // Articles tagged with a normalized keyword, or null if there are none
+    public PostingList get(CharSequence keyword) {
+        return get(KeywordDictionary.lookup(keyword));
+    }
+
+    public PostingList get(int keywordId) {
+        if (keywordId < 0 || keywordId >= postings.length) return null;
+        return postings[keywordId];
+    }
+
+    // Tag an article with each of the keyword ids
+    public void add(int articleId, int[] keywordIds) {
+        for (int keywordId : keywordIds) {
+            if (keywordId >= postings.length) {
+                postings = java.util.Arrays.copyOf(postings, Math.max(keywordId + 1, postings.length * 2));
+            }
+            PostingList ids = postings[keywordId];
+            if (ids == null) {
+                ids = new PostingList();
+                postings[keywordId] = ids;
+                keywords++;
+            }
+            ids.add(articleId);
+        }
+    }
+
+    // Untag an article; posting lists that become empty are dropped
+    public void remove(int articleId, int[] keywordIds) {
+        for (int keywordId : keywordIds) {
+            PostingList ids = get(keywordId);
+            if (ids != null && ids.remove(articleId) && ids.isEmpty()) {
+                postings[keywordId] = null;
+                keywords--;
+            }
+        }
+    }
+
+    // Non-empty posting lists keyed by keyword text, since ids are only stable within one process
+    void writeTo(java.io.DataOutputStream out) throws java.io.IOException {
+        IndexSnapshot.writeVarint(out, keywords);
+        for (int keywordId = 0; keywordId < postings.length; keywordId++) {
+            if (postings[keywordId] == null) continue;
+            IndexSnapshot.writeString(out, KeywordDictionary.keyword(keywordId));
+            postings[keywordId].writeTo(out);
+        }
+    }
+
+    static KeywordIndex readFrom(java.nio.ByteBuffer in) {
+        KeywordIndex index = new KeywordIndex();
+        int count = IndexSnapshot.readVarint(in);
+        for (int i = 0; i < count; i++) {
+            int keywordId = KeywordDictionary.intern(IndexSnapshot.readString(in));
+            PostingList ids = PostingList.readFrom(in);
+            if (keywordId >= index.postings.length) {
+                index.postings = java.util.Arrays.copyOf(index.postings, Math.max(keywordId + 1, index.postings.length * 2));
+            }
+            if (index.postings[keywordId] == null) index.keywords++;
+            index.postings[keywordId] = ids;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,266 @@
+// Boolean query over keyword posting lists.
+// Syntax: whitespace-separated terms are ANDed, "a|b" or "a OR b" matches either term,
+// and "-a" or "NOT a" excludes articles tagged with a. Example: "java tech|cloud -python".
+class KeywordQuery {
+    // Close spellings a misspelled term is replaced by
+    private static final int MAX_CORRECTIONS = 3;
+    // Each group is a disjunction of terms; all groups must match
+    private final MyList<MyList<String>> required = new MyList<>();
+    private final MyList<String> excluded = new MyList<>();
+
+    public static KeywordQuery parse(String text) {
+        KeywordQuery query = new KeywordQuery();
+        String[] tokens = text.trim().toLowerCase().split("\\s+");
+        boolean negateNext = false;
+        boolean orNext = false;
+        for (String token : tokens) {
+            if (token.isEmpty()) continue;
+            if (token.equals("not")) {
+                negateNext = true;
+                continue;
+            }
+            if (token.equals("or")) {
+                orNext = true;
+                continue;
+            }
+            boolean negate = negateNext || token.startsWith("-");
+            if (token.startsWith("-")) token = token.substring(1);
+            String[] terms = token.split("\\|");
+            if (negate) {
+                for (String term : terms) {
+                    if (!term.isEmpty()) query.excluded.add(term);
+                }
+            } else {
+                MyList<String> group;
+                if (orNext && query.required.size() > 0) {
+                    group = query.required.get(query.required.size() - 1);
+                } else {
+                    group = new MyList<>();
+                    query.required.add(group);
+                }
+                for (String term : terms) {
+                    if (!term.isEmpty()) group.add(term);
+                }
+                if (group.size() == 0) query.required.removeLast();
+            }
+            negateNext = false;
+            orNext = false;
+        }
+        return query;
+    }
+
+    public KeywordQuery all(String... terms) {
+        for (String term : terms) {
+            MyList<String> group = new MyList<>();
+            group.add(term);
+            required.add(group);
+        }
+        return this;
+    }
+
+    public KeywordQuery any(String... terms) {
+        MyList<String> group = new MyList<>();
+        for (String term : terms) group.add(term);
+        if (group.size() > 0) required.add(group);
+        return this;
+    }
+
+    public KeywordQuery not(String... terms) {
+        for (String term : terms) excluded.add(term);
+        return this;
+    }
+
+    /**
+     * The same query with misspelled terms fixed: a required term that no article has is replaced by the
+     * keywords within a small edit distance of it, any of which may match. Exclusions are kept as typed.
+     *
+     * @param index Keyword index the query will run against
+     * @param fuzzy Where to look up close spellings
+     * @return A new query, or this one if every term is found as typed
+     */
+    public KeywordQuery corrected(KeywordIndex index, FuzzyKeywords fuzzy) {
+        KeywordQuery result = new KeywordQuery();
+        boolean changed = false;
+        for (int g = 0; g < required.size(); g++) {
+            MyList<String> terms = required.get(g);
+            MyList<String> group = new MyList<>();
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                PostingList postings = index.get(term);
+                if (postings != null && !postings.isEmpty()) {
+                    group.add(term);
+                    continue;
+                }
+                IntList corrections = fuzzy.corrections(term, index, MAX_CORRECTIONS);
+                for (int c = 0; c < corrections.size(); c++) group.add(KeywordDictionary.keyword(corrections.get(c)));
+                if (corrections.isEmpty()) group.add(term);
+                else changed = true;
+            }
+            result.required.add(group);
+        }
+        if (!changed) return this;
+        for (int i = 0; i < excluded.size(); i++) result.excluded.add(excluded.get(i));
+        return result;
+    }
+
+    // Matching ids in ascending order. Queries with only exclusions match nothing.
+    public IntList execute(KeywordIndex index) {
+        IntList result = new IntList();
+        if (required.size() == 0) return result;
+
+        DocIdCursor[] cursors = new DocIdCursor[required.size()];
+        for (int g = 0; g < required.size(); g++) {
+            cursors[g] = groupCursor(required.get(g), index);
+            if (cursors[g] == null) return result; // a required group with no postings empties the AND
+        }
+        // Drive the intersection from the rarest group so the others only gallop
+        java.util.Arrays.sort(cursors, (a, b) -> Long.compare(a.cost(), b.cost()));
+
+        DocIdCursor[] exclusions = new DocIdCursor[excluded.size()];
+        int exclusionCount = 0;
+        for (int i = 0; i < excluded.size(); i++) {
+            PostingList postings = index.get(excluded.get(i));
+            if (postings != null && !postings.isEmpty()) exclusions[exclusionCount++] = postings.cursor();
+        }
+
+        DocIdCursor lead = cursors[0];
+        int candidate = lead.nextDoc();
+        int steps = 0;
+        outer:
+        while (candidate != DocIdCursor.NO_MORE_DOCS) {
+            checkCancelled(++steps);
+            for (int i = 1; i < cursors.length; i++) {
+                int doc = cursors[i].advance(candidate);
+                if (doc != candidate) {
+                    candidate = doc == DocIdCursor.NO_MORE_DOCS ? doc : lead.advance(doc);
+                    continue outer;
+                }
+            }
+            boolean keep = true;
+            for (int i = 0; i < exclusionCount; i++) {
+                if (exclusions[i].advance(candidate) == candidate) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) result.add(candidate);
+            candidate = lead.nextDoc();
+        }
+        return result;
+    }
+
+    // Long-running queries give up when their thread is interrupted, e.g. because a newer query superseded them
+    static void checkCancelled(long steps) {
+        if ((steps & 4095) == 0 && Thread.currentThread().isInterrupted()) {
+            throw new java.util.concurrent.CancellationException("Query cancelled");
+        }
+    }
+
+    /**
+     * Test single articles against the query without touching the posting lists, for walking another index
+     * (e.g. by date) and filtering as you go. Terms are resolved to keyword ids once, when this is called.
+     */
+    public java.util.function.Predicate<Article> matcher() {
+        int[][] groups = new int[required.size()][];
+        for (int g = 0; g < groups.length; g++) groups[g] = keywordIds(required.get(g));
+        int[] exclusions = keywordIds(excluded);
+        return article -> {
+            if (groups.length == 0) return false;
+            for (int[] group : groups) {
+                if (!containsAny(article.keywordIds, group)) return false;
+            }
+            return !containsAny(article.keywordIds, exclusions);
+        };
+    }
+
+    // Upper bound on the number of matches: the size of the smallest required group's postings
+    public long cost(KeywordIndex index) {
+        if (required.size() == 0) return 0;
+        long cost = Long.MAX_VALUE;
+        for (int g = 0; g < required.size(); g++) {
+            MyList<String> terms = required.get(g);
+            long groupCost = 0;
+            for (int i = 0; i < terms.size(); i++) {
+                PostingList postings = index.get(terms.get(i));
+                if (postings != null) groupCost += postings.size();
+            }
+            cost = Math.min(cost, groupCost);
+        }
+        return cost;
+    }
+
+    private static int[] keywordIds(MyList<String> terms) {
+        IntList ids = new IntList(terms.size());
+        for (int i = 0; i < terms.size(); i++) {
+            int id = KeywordDictionary.lookup(terms.get(i));
+            if (id >= 0) ids.add(id);
+        }
+        return ids.toArray();
+    }
+
+    private static boolean containsAny(int[] keywordIds, int[] wanted) {
+        for (int id : keywordIds) {
+            for (int w : wanted) {
+                if (id == w) return true;
+            }
+        }
+        return false;
+    }
+
+    // Cursor over the union of the group's postings, or null if none of its terms are indexed
+    private static DocIdCursor groupCursor(MyList<String> terms, KeywordIndex index) {
+        MyList<DocIdCursor> cursors = new MyList<>();
+        for (int i = 0; i < terms.size(); i++) {
+            PostingList postings = index.get(terms.get(i));
+            if (postings != null && !postings.isEmpty()) cursors.add(postings.cursor());
+        }
+        if (cursors.size() == 0) return null;
+        if (cursors.size() == 1) return cursors.get(0);
+        return new UnionCursor(cursors);
+    }
+
+    // Lazy OR of several cursors: advance() is pushed down to every sub-cursor, so a union used inside an
+    // AND only decodes the blocks the intersection actually visits
+    private static class UnionCursor implements DocIdCursor {
+        private final DocIdCursor[] subs;
+        private final long cost;
+        private int doc = -1;
+
+        UnionCursor(MyList<DocIdCursor> cursors) {
+            subs = new DocIdCursor[cursors.size()];
+            long total = 0;
+            for (int i = 0; i < subs.length; i++) {
+                subs[i] = cursors.get(i);
+                total += subs[i].cost();
+            }
+            cost = total;
+        }
+
+        @Override
+        public int docId() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+            return advance(doc + 1);
+        }
+
+        @Override
+        public int advance(int target) {
+            if (doc == NO_MORE_DOCS) return doc;
+            int min = NO_MORE_DOCS;
+            for (DocIdCursor sub : subs) {
+                int d = sub.docId();
+                if (d < target) d = sub.advance(target);
+                if (d < min) min = d;
+            }
+            return doc = min;
+        }
+
+        @Override
+        public long cost() {
+            return cost;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+// AnalysisBackend that needs no network or API key and answers in about a millisecond. The summary is the
+// article's most central sentences, picked by TextRank; sentiment comes from a word list with simple negation;
+// related topics are the article's most distinctive words and phrases by TF-IDF against the search index.
+// Less fluent than a language model, but good enough to show while one answers, or instead of one when there
+// is no key or the API is down.
+class LocalAnalyzer implements AnalysisBackend {
+    static final String VERSION = "local/1";
+    // About what the prompts ask OpenAI for
+    private static final int SUMMARY_WORDS = 40;
+    private static final int TOPICS = 5;
+    // TextRank compares every pair of sentences, so longer articles are ranked on their first MAX_SENTENCES
+    private static final int MAX_SENTENCES = 200;
+    private static final double DAMPING = 0.85;
+    private static final int MAX_ITERATIONS = 50;
+    // Sentiment words after one of these (within NEGATION_WINDOW tokens) count the other way
+    private static final int NEGATION_WINDOW = 3;
+
+    private static final MySet<String> STOPWORDS = words("a about above after again against all also am an and"
+            + " any are as at be because been before being below between both but by can could did do does doing"
+            + " down during each even few for from further had has have having he her here hers herself him himself"
+            + " his how however i if in into is it its itself just like many may me might more most much must my"
+            + " myself new no nor not now of off on once one only or other our ours ourselves out over own same"
+            + " says said she should so some such than that the their theirs them themselves then there these they"
+            + " this those through to too under until up us very was we were what when where which while who whom"
+            + " why will with within without would yet you your yours yourself s t ll ve re d m don didn doesn isn"
+            + " aren wasn weren won hasn haven hadn couldn shouldn wouldn cannot"
+            // Common verbs and adverbs that say little about what an article is about
+            + " already become becomes becoming get gets got help helps helped include includes including make"
+            + " makes made making longer offer offers offering often still take takes use used uses using various"
+            + " way ways well");
+    private static final MySet<String> NEGATIONS = words("not no never none nobody nothing neither nor without"
+            + " hardly barely cannot don didn doesn isn aren wasn weren hasn haven hadn couldn shouldn wouldn");
+    private static final MySet<String> POSITIVE = words("accurate achieve achieved achievement advance advances"
+            + " advanced agreement approve approved award benefit benefits best better boost boosted breakthrough"
+            + " celebrate celebrated comfortable confident convenience convenient deal efficient elegant encouraging"
+            + " enhance enhanced enhancements enhancing excellent exciting expand expanded faster favorable gain"
+            + " gained gains good great grow growing growth happy hope hopeful improve improved improvement improves"
+            + " improving innovation innovative launch leading modern optimistic opportunity peace popular positive"
+            + " praise praised praising profit profitable progress promising prosper rally revolutionized record"
+            + " recover recovery relief resolve resolved reward rise rising robust safe safety save saved secure"
+            + " simplify stable stability strong stronger success successful support surge thrive thriving triumph"
+            + " upgrade victory welcome win wins winning");
+    private static final MySet<String> NEGATIVE = words("abuse accident accused alarm anger angry attack"
+            + " attacks bad ban bankrupt bankruptcy breach bug bugs collapse concern concerns conflict corruption"
+            + " crash crime crisis criticism criticized cut cuts damage danger dangerous dead death deaths decline"
+            + " declined deficit delay delayed deny disaster dispute drop dropped emergency failed failing fails"
+            + " failure fall fear fears fell fined flaw fraud harm hurt illegal injured injury inflation killed"
+            + " lawsuit layoff layoffs lose loses losing loss losses negative outage panic poor problem problems"
+            + " protest recall recession reject rejected risk risks scandal scare shortage shortfall shutdown slow"
+            + " slump strike struggle struggling suffer suspect terrible threat threats trouble uncertainty"
+            + " unemployment victim violence vulnerability vulnerable war warn warning weak worse worst");
+
+    private final java.util.function.Supplier<TextIndex> corpus;
+
+    /**
+     * @param corpus Where document frequencies for TF-IDF come from, asked on every call since the app's index
+     *               is replaced when a snapshot is loaded; null to rank topics by frequency alone
+     */
+    public LocalAnalyzer(java.util.function.Supplier<TextIndex> corpus) {
+        this.corpus = corpus;
+    }
+
+    @Override
+    public String version() {
+        return VERSION;
+    }
+
+    // The highest-ranked sentences, in article order, up to about SUMMARY_WORDS words
+    @Override
+    public String summarizeArticle(String content) {
+        MyList<String> sentences = sentences(content);
+        int n = Math.min(sentences.size(), MAX_SENTENCES);
+        if (n == 0) return "";
+        MyList<MySet<String>> words = new MyList<>(n);
+        for (int i = 0; i < n; i++) {
+            MySet<String> set = new MySet<>();
+            MyList<String> terms = Tokenizer.terms(sentences.get(i));
+            for (int t = 0; t < terms.size(); t++) {
+                if (!STOPWORDS.contains(terms.get(t))) set.add(stem(terms.get(t)));
+            }
+            words.add(set);
+        }
+        double[] rank = textRank(words);
+
+        // Best first, earlier sentences winning ties
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        java.util.Arrays.sort(order, (a, b) -> rank[a] != rank[b] ? Double.compare(rank[b], rank[a]) : a - b);
+        boolean[] chosen = new boolean[n];
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            int length = Tokenizer.terms(sentences.get(order[i])).size();
+            if (total > 0 && total + length > SUMMARY_WORDS) continue;
+            chosen[order[i]] = true;
+            total += length;
+            if (total >= SUMMARY_WORDS * 3 / 4) break;
+        }
+        StringBuilder summary = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (!chosen[i]) continue;
+            if (summary.length() > 0) summary.append(' ');
+            summary.append(sentences.get(i));
+        }
+        return summary.toString();
+    }
+
+    // positive, negative or neutral, by the balance of sentiment words; a handful either way is neutral
+    @Override
+    public String analyzeSentiment(String content) {
+        int positive = 0, negative = 0;
+        MyList<String> sentences = sentences(content);
+        for (int s = 0; s < sentences.size(); s++) {
+            MyList<String> terms = Tokenizer.terms(sentences.get(s));
+            int negated = 0;
+            for (int t = 0; t < terms.size(); t++) {
+                String term = terms.get(t);
+                if (NEGATIONS.contains(term)) {
+                    negated = NEGATION_WINDOW;
+                    continue;
+                }
+                int polarity = POSITIVE.contains(term) ? 1 : NEGATIVE.contains(term) ? -1 : 0;
+                if (negated > 0) {
+                    polarity = -polarity;
+                    negated--;
+                }
+                if (polarity > 0) positive++;
+                else if (polarity < 0) negative++;
+            }
+        }
+        int total = positive + negative;
+        if (total < 2) return "neutral";
+        double balance = (positive - negative) / (double) total;
+        return balance > 0.25 ? "positive" : balance < -0.25 ? "negative" : "neutral";
+    }
+
+    // The TOPICS best words and phrases by TF-IDF, comma separated, no two sharing a word
+    @Override
+    public String suggestRelatedTopics(String content) {
+        // Candidates are runs of up to three non-stopwords within a sentence; a phrase has to recur to count.
+        // Per candidate: occurrences and where it first appears, which breaks ties (news leads with the point)
+        MyMap<String, int[]> counts = new MyMap<>();
+        MyList<String> sentences = sentences(content);
+        for (int s = 0; s < sentences.size(); s++) {
+            MyList<String> terms = Tokenizer.terms(sentences.get(s));
+            int runStart = 0;
+            for (int t = 0; t <= terms.size(); t++) {
+                if (t < terms.size() && !STOPWORDS.contains(terms.get(t)) && terms.get(t).length() > 1) continue;
+                for (int from = runStart; from < t; from++) {
+                    if (!hasLetter(terms.get(from))) continue;
+                    StringBuilder phrase = new StringBuilder();
+                    for (int to = from; to < t && to < from + 3; to++) {
+                        if (to > from) phrase.append(' ');
+                        phrase.append(terms.get(to));
+                        String key = phrase.toString();
+                        int[] count = counts.get(key);
+                        if (count == null) counts.put(key, count = new int[]{0, counts.size()});
+                        count[0]++;
+                    }
+                }
+                runStart = t + 1;
+            }
+        }
+
+        TextIndex index = corpus == null ? null : corpus.get();
+        int documents = index == null ? 0 : index.size();
+        MyMap<String, Double> idf = new MyMap<>();
+        MyList<String> candidates = new MyList<>();
+        MyList<Double> scores = new MyList<>();
+        IntList firstSeen = new IntList();
+        for (MyMap.Entry<String, int[]> entry : counts) {
+            String phrase = entry.getKey();
+            int frequency = entry.getValue()[0];
+            String[] parts = phrase.split(" ");
+            if (parts.length > 1 && frequency < 2) continue;
+            double weight = 0;
+            for (String part : parts) {
+                Double w = idf.get(part);
+                if (w == null) {
+                    w = index == null ? 1.0
+                            : Math.log((documents + 1.0) / (index.documentFrequency(part) + 1.0)) + 1;
+                    idf.put(part, w);
+                }
+                weight += w;
+            }
+            candidates.add(phrase);
+            scores.add(frequency * weight);
+            firstSeen.add(entry.getValue()[1]);
+        }
+
+        Integer[] order = new Integer[candidates.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        java.util.Arrays.sort(order, (a, b) -> {
+            int c = Double.compare(scores.get(b), scores.get(a));
+            return c != 0 ? c : firstSeen.get(a) - firstSeen.get(b);
+        });
+        MySet<String> used = new MySet<>();
+        StringBuilder topics = new StringBuilder();
+        int picked = 0;
+        for (int i = 0; i < order.length && picked < TOPICS; i++) {
+            String[] parts = candidates.get(order[i]).split(" ");
+            boolean overlaps = false;
+            for (String part : parts) overlaps |= used.contains(stem(part));
+            if (overlaps) continue;
+            for (String part : parts) used.add(stem(part));
+            if (picked++ > 0) topics.append(", ");
+            topics.append(candidates.get(order[i]));
+        }
+        return topics.toString();
+    }
+
+    // PageRank over sentences, linked by shared words: overlap / (log |Si| + log |Sj|), as in TextRank
+    private static double[] textRank(MyList<MySet<String>> words) {
+        int n = words.size();
+        double[][] weight = new double[n][n];
+        MyMap<String, IntList> sentencesWith = new MyMap<>();
+        for (int i = 0; i < n; i++) {
+            MyList<String> all = words.get(i).getAll();
+            for (int w = 0; w < all.size(); w++) {
+                IntList list = sentencesWith.get(all.get(w));
+                if (list == null) sentencesWith.put(all.get(w), list = new IntList());
+                list.add(i);
+            }
+        }
+        for (MyMap.Entry<String, IntList> entry : sentencesWith) {
+            IntList list = entry.getValue();
+            for (int a = 0; a < list.size(); a++) {
+                for (int b = a + 1; b < list.size(); b++) weight[list.get(a)][list.get(b)]++;
+            }
+        }
+        double[] outWeight = new double[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (weight[i][j] == 0) continue;
+                double norm = Math.log(words.get(i).size()) + Math.log(words.get(j).size());
+                double w = weight[i][j] / (norm > 0 ? norm : 1);
+                weight[i][j] = w;
+                weight[j][i] = w;
+                outWeight[i] += w;
+                outWeight[j] += w;
+            }
+        }
+
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        java.util.Arrays.fill(rank, 1.0 / n);
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double change = 0;
+            for (int i = 0; i < n; i++) {
+                double sum = 0;
+                for (int j = 0; j < n; j++) {
+                    if (weight[j][i] != 0) sum += rank[j] * weight[j][i] / outWeight[j];
+                }
+                next[i] = (1 - DAMPING) / n + DAMPING * sum;
+                change += Math.abs(next[i] - rank[i]);
+            }
+            double[] swap = rank;
+            rank = next;
+            next = swap;
+            if (change < 1e-6) break;
+        }
+        return rank;
+    }
+
+    // Sentences of the text, trimmed. A sentence ends at . ! or ? before a space or a capital letter (for
+    // "language.Tooling"), or at a blank line; initials and common abbreviations don't end one.
+    static MyList<String> sentences(String text) {
+        MyList<String> result = new MyList<>();
+        if (text == null) return result;
+        int start = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            boolean end;
+            if (c == '.' || c == '!' || c == '?') {
+                char after = i + 1 < n ? text.charAt(i + 1) : ' ';
+                end = Character.isWhitespace(after) || Character.isUpperCase(after) && i > 0
+                        && Character.isLowerCase(text.charAt(i - 1));
+                if (end && c == '.' && isAbbreviation(text, i)) end = false;
+            } else {
+                end = c == '\n' && i + 1 < n && text.charAt(i + 1) == '\n';
+            }
+            if (end) {
+                addSentence(result, text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        addSentence(result, text.substring(start));
+        return result;
+    }
+
+    private static void addSentence(MyList<String> sentences, String sentence) {
+        sentence = sentence.trim();
+        if (hasLetter(sentence)) sentences.add(sentence);
+    }
+
+    // Whether the word before the period at dot is an initial ("J.") or a title such as "Dr."
+    private static boolean isAbbreviation(String text, int dot) {
+        int start = dot;
+        while (start > 0 && Character.isLetter(text.charAt(start - 1))) start--;
+        String word = text.substring(start, dot).toLowerCase();
+        if (word.length() == 1) return Character.isUpperCase(text.charAt(start));
+        switch (word) {
+            case "mr": case "mrs": case "ms": case "dr": case "prof": case "st": case "jr": case "sr": case "vs":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Crude plural folding so "feature" and "features" count as one word
+    private static String stem(String term) {
+        boolean plural = term.length() > 3 && term.endsWith("s") && !term.endsWith("ss");
+        return plural ? term.substring(0, term.length() - 1) : term;
+    }
+
+    private static boolean hasLetter(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetter(text.charAt(i))) return true;
+        }
+        return false;
+    }
+
+    private static MySet<String> words(String list) {
+        MySet<String> set = new MySet<>();
+        for (String word : list.split(" ")) set.add(word);
+        return set;
+    }
+}
@@ -1,17 +1,104 @@
 class MyHeap<T> {
     private MyList<T> heap = new MyList<>();
     private java.util.Comparator<T> comparator;
+    // Optional: element id -> slot in heap, which makes update and remove O(log n)
+    private final java.util.function.ToIntFunction<T> idOf;
+    private final IntIntMap positions;
 
     public MyHeap(java.util.Comparator<T> comparator) {
+        this(comparator, null);
+    }
+
+    // Indexed heap: idOf must give each element a unique, stable id
+    public MyHeap(java.util.Comparator<T> comparator, java.util.function.ToIntFunction<T> idOf) {
         this.comparator = comparator;
+        this.idOf = idOf;
+        this.positions = idOf != null ? new IntIntMap() : null;
     }
 
     // To add a new value and maintain heap structure
     public void add(T value) {
+        if (positions != null && positions.containsKey(idOf.applyAsInt(value))) {
+            throw new IllegalArgumentException("Element with id " + idOf.applyAsInt(value) + " is already in the heap");
+        }
         heap.add(value);
+        track(heap.size() - 1);
         bubbleUp(heap.size() - 1);
     }
 
+    // To get the element at a slot of the underlying array, e.g. to save the heap in its current order
+    public T elementAt(int index) {
+        return heap.get(index);
+    }
+
+    // To check whether an element with the given id is in an indexed heap
+    public boolean containsId(int id) {
+        return indexOf(id) >= 0;
+    }
+
+    // To get the element with the given id from an indexed heap, or null
+    public T getById(int id) {
+        int index = indexOf(id);
+        return index >= 0 ? heap.get(index) : null;
+    }
+
+    // To restore heap order after the element's priority went up
+    public void increaseKey(T value) {
+        bubbleUp(requireIndex(value));
+    }
+
+    // To restore heap order after the element's priority went down
+    public void decreaseKey(T value) {
+        bubbleDown(requireIndex(value));
+    }
+
+    // To restore heap order after the element's priority changed in either direction
+    public void update(T value) {
+        bubbleDown(bubbleUp(requireIndex(value)));
+    }
+
+    // To remove an element from an indexed heap; returns false if it was not there
+    public boolean remove(T value) {
+        return removeById(idOf(value)) != null;
+    }
+
+    // To remove the element with the given id from an indexed heap, returning it or null
+    public T removeById(int id) {
+        int index = indexOf(id);
+        if (index < 0) return null;
+        T removed = heap.get(index);
+        int lastIndex = heap.size() - 1;
+        if (index != lastIndex) {
+            heap.set(index, heap.get(lastIndex));
+            track(index);
+        }
+        heap.removeLast();
+        positions.remove(id, -1);
+        if (index < heap.size()) bubbleDown(bubbleUp(index));
+        return removed;
+    }
+
+    private int idOf(T value) {
+        if (positions == null) throw new UnsupportedOperationException("Heap was created without an id function");
+        return idOf.applyAsInt(value);
+    }
+
+    private int indexOf(int id) {
+        if (positions == null) throw new UnsupportedOperationException("Heap was created without an id function");
+        return positions.get(id, -1);
+    }
+
+    private int requireIndex(T value) {
+        int index = indexOf(idOf(value));
+        if (index < 0) throw new IllegalArgumentException("Element with id " + idOf(value) + " is not in the heap");
+        return index;
+    }
+
+    // To record the slot of the element at index
+    private void track(int index) {
+        if (positions != null) positions.put(idOf.applyAsInt(heap.get(index)), index);
+    }
+
     // To get the top element without removing it
     public T peek() {
         return heap.size() > 0 ? heap.get(0) : null;
@@ -25,12 +112,16 @@ class MyHeap<T> {
         T last = heap.get(heap.size() - 1);
         heap.set(0, last);
         heap.removeLast();
+        if (positions != null) {
+            positions.remove(idOf.applyAsInt(top), -1);
+            if (heap.size() > 0) track(0);
+        }
         bubbleDown(0);
         return top;
     }
 
-    // To move a node up until the heap condition is satisfied
-    private void bubbleUp(int index) {
+    // To move a node up until the heap condition is satisfied, returning where it ended up
+    private int bubbleUp(int index) {
         while (index > 0) {
             int parent = (index - 1) / 2;
             if (comparator.compare(heap.get(index), heap.get(parent)) > 0) {
@@ -40,6 +131,7 @@ class MyHeap<T> {
                 break;
             }
         }
+        return index;
     }
 
     // To move a node down until the heap condition is satisfied
@@ -69,6 +161,69 @@ class MyHeap<T> {
         T temp = heap.get(i);
         heap.set(i, heap.get(j));
         heap.set(j, temp);
+        if (positions != null) {
+            track(i);
+            track(j);
+        }
+    }
+
+    // To get the number of elements in the heap
+    public int size() {
+        return heap.size();
+    }
+
+    // To return the k largest elements in order without changing the heap.
+    // Walks the heap best-first with a small auxiliary heap of candidate slots: the next best element is
+    // always a child of one already taken, so only O(k) slots are ever looked at, in O(k log k) time.
+    public MyList<T> topK(int k) {
+        int n = Math.min(k, heap.size());
+        MyList<T> result = new MyList<>(Math.max(n, 1));
+        if (n <= 0) return result;
+
+        int[] candidates = new int[2 * n + 1];
+        int count = 0;
+        candidates[count++] = 0;
+        while (result.size() < n) {
+            int best = candidates[0];
+            candidates[0] = candidates[--count];
+            siftDownSlots(candidates, count);
+            result.add(heap.get(best));
+
+            int left = 2 * best + 1;
+            for (int child = left; child <= left + 1 && child < heap.size(); child++) {
+                candidates[count] = child;
+                siftUpSlots(candidates, count++);
+            }
+        }
+        return result;
+    }
+
+    // Auxiliary heap helpers over slot indices, ordered by the elements they point at
+    private void siftUpSlots(int[] slots, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (comparator.compare(heap.get(slots[index]), heap.get(slots[parent])) <= 0) break;
+            int tmp = slots[index];
+            slots[index] = slots[parent];
+            slots[parent] = tmp;
+            index = parent;
+        }
+    }
+
+    private void siftDownSlots(int[] slots, int size) {
+        int index = 0;
+        while (true) {
+            int left = 2 * index + 1;
+            int right = left + 1;
+            int largest = index;
+            if (left < size && comparator.compare(heap.get(slots[left]), heap.get(slots[largest])) > 0) largest = left;
+            if (right < size && comparator.compare(heap.get(slots[right]), heap.get(slots[largest])) > 0) largest = right;
+            if (largest == index) return;
+            int tmp = slots[index];
+            slots[index] = slots[largest];
+            slots[largest] = tmp;
+            index = largest;
+        }
     }
 
     // To return a sorted list of elements (without changing the original heap)
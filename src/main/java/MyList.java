@@ -14,6 +14,13 @@ public class MyList<T> {
         size = 0;
     }
 
+    // Constructor with an initial capacity
+    public MyList(int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("Negative capacity: " + initialCapacity);
+        data = new Object[Math.max(initialCapacity, 1)];
+        size = 0;
+    }
+
     // Remove the last element
     public void removeLast() {
         if (size > 0) {
@@ -1,94 +1,223 @@
-class MyMap<K, V> {
-    // Internal class to represent key-value pairs
-    private class Entry<K, V> {
-        K key;
-        V value;
-        Entry<K, V> next;
+class MyMap<K, V> implements Iterable<MyMap.Entry<K, V>> {
+    // Key-value pair handed out by the entry iterator
+    static class Entry<K, V> {
+        final K key;
+        final V value;
 
         Entry(K key, V value) {
             this.key = key;
             this.value = value;
         }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
     }
 
-    private final int SIZE = 100; 
-    private Entry<K, V>[] buckets; 
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float DEFAULT_LOAD_FACTOR = 0.5f;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    // Open addressing with linear probing: slot i holds keys[i] -> values[i], null key means empty
+    private Object[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    // 32 - log2(capacity): slots come from the top bits of the multiplied hash
+    private int shift;
+    private int resizeThreshold;
+    private final float loadFactor;
 
     // Constructor
     public MyMap() {
-        buckets = new Entry[SIZE];
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
     }
 
-    // Get all values in a specific bucket index
-    public MyList<V> getBucket(int index) {
-        MyList<V> values = new MyList<>();
-        Entry<K, V> node = buckets[index];
-        while (node != null) {
-            values.add(node.value);
-            node = node.next;
-        }
-        return values;
+    public MyMap(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    public MyMap(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Negative size: " + expectedSize);
+        if (!(loadFactor > 0f && loadFactor < 1f))
+            throw new IllegalArgumentException("Load factor must be in (0, 1): " + loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(capacityFor(expectedSize, loadFactor));
+    }
+
+    // Smallest power of two that keeps expectedSize under the load factor
+    private static int capacityFor(int expectedSize, float loadFactor) {
+        long needed = (long) Math.ceil(expectedSize / (double) loadFactor) + 1;
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < needed && capacity < MAX_CAPACITY) capacity <<= 1;
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        shift = 32 - Integer.numberOfTrailingZeros(capacity);
+        resizeThreshold = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    // Fibonacci hashing: the top bits of hash * 2^32/phi depend on every bit of the hash, so keys with poor
+    // low bits (e.g. sequential Integers, or hashes differing only in high bits) don't cluster
+    private int slotFor(Object key) {
+        return (key.hashCode() * 0x9E3779B9) >>> shift;
     }
 
-    // Get all keys in a specific bucket index
-    public MyList<K> getKeysInBucket(int index) {
-        MyList<K> keys = new MyList<>();
-        Entry<K, V> node = buckets[index];
-        while (node != null) {
-            keys.add(node.key);
-            node = node.next;
+    // Returns the slot holding key, or the empty slot where it would go
+    private int findSlot(Object key) {
+        int slot = slotFor(key);
+        Object existing;
+        while ((existing = keys[slot]) != null) {
+            if (existing == key || existing.equals(key)) return slot;
+            slot = (slot + 1) & mask;
         }
-        return keys;
+        return slot;
     }
 
-    // Hash the key to get the index
-    private int getIndex(K key) {
-        return Math.abs(key.hashCode()) % SIZE;
+    // Number of key-value pairs
+    public int size() {
+        return size;
     }
 
-    // Get number of buckets
-    public int bucketCount() {
-        return buckets.length;
+    public boolean isEmpty() {
+        return size == 0;
     }
 
     // Add or update a key-value pair
     public void put(K key, V value) {
-        int index = getIndex(key);
-        Entry<K, V> node = buckets[index];
-
-        // If bucket is empty, insert directly
-        if (node == null) {
-            buckets[index] = new Entry<>(key, value);
+        if (key == null) throw new IllegalArgumentException("Null keys are not supported");
+        int slot = findSlot(key);
+        if (keys[slot] != null) {
+            values[slot] = value;
             return;
         }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) rehash(keys.length << 1);
+    }
 
-        // Traverse the list to update or add at end
-        while (node != null) {
-            if (node.key.equals(key)) {
-                node.value = value; 
-                return;
+    // Get the value for a given key
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        if (key == null) return null;
+        return (V) values[findSlot(key)];
+    }
+
+    // Check if key exists in the map (also true for keys mapped to null)
+    public boolean containsKey(K key) {
+        if (key == null) return false;
+        return keys[findSlot(key)] != null;
+    }
+
+    // Remove a key and return its previous value
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        if (key == null) return null;
+        int slot = findSlot(key);
+        if (keys[slot] == null) return null;
+        V old = (V) values[slot];
+        shiftBack(slot);
+        size--;
+        return old;
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(keys, null);
+        java.util.Arrays.fill(values, null);
+        size = 0;
+    }
+
+    // Backward-shift deletion: pull later entries of the probe run into the hole so no tombstones are needed
+    private void shiftBack(int hole) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            Object key = keys[slot];
+            if (key == null) break;
+            int home = slotFor(key);
+            // Move the entry only if its home slot is not cyclically within (hole, slot]
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = key;
+                values[hole] = values[slot];
+                hole = slot;
             }
-            if (node.next == null) break;
-            node = node.next;
         }
+        keys[hole] = null;
+        values[hole] = null;
+    }
 
-        // Add new entry at the end
-        node.next = new Entry<>(key, value);
+    private void rehash(int newCapacity) {
+        if (keys.length >= MAX_CAPACITY) {
+            if (size >= keys.length - 1) throw new IllegalStateException("MyMap is full");
+            return;
+        }
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object key = oldKeys[i];
+            if (key == null) continue;
+            int slot = slotFor(key);
+            while (keys[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = key;
+            values[slot] = oldValues[i];
+        }
     }
 
-    // Get the value for a given key
-    public V get(K key) {
-        int index = getIndex(key);
-        Entry<K, V> node = buckets[index];
-        while (node != null) {
-            if (node.key.equals(key)) return node.value;
-            node = node.next;
+    // All keys currently in the map, in table order
+    @SuppressWarnings("unchecked")
+    public MyList<K> keys() {
+        MyList<K> result = new MyList<>(size);
+        for (Object key : keys) {
+            if (key != null) result.add((K) key);
         }
-        return null;
+        return result;
     }
 
-    // Check if key exists in the map
-    public boolean containsKey(K key) {
-        return get(key) != null;
+    // All values currently in the map, in table order
+    @SuppressWarnings("unchecked")
+    public MyList<V> values() {
+        MyList<V> result = new MyList<>(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) result.add((V) values[i]);
+        }
+        return result;
+    }
+
+    // Iterate over key-value pairs; the map must not be modified while iterating
+    @Override
+    public java.util.Iterator<Entry<K, V>> iterator() {
+        return new java.util.Iterator<Entry<K, V>>() {
+            private int next = advance(0);
+            private final int expectedSize = size;
+
+            private int advance(int from) {
+                while (from < keys.length && keys[from] == null) from++;
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < keys.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Entry<K, V> next() {
+                if (size != expectedSize) throw new java.util.ConcurrentModificationException();
+                if (next >= keys.length) throw new java.util.NoSuchElementException();
+                Entry<K, V> entry = new Entry<>((K) keys[next], (V) values[next]);
+                next = advance(next + 1);
+                return entry;
+            }
+        };
     }
 }
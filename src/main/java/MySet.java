@@ -9,15 +9,15 @@ class MySet<T> {
         return map.containsKey(value);
     }
 
+    public boolean remove(T value) {
+        return map.remove(value) != null;
+    }
+
+    public int size() {
+        return map.size();
+    }
+
     public MyList<T> getAll() {
-        MyList<T> list = new MyList<>();
-        for (int i = 0; i < map.bucketCount(); i++) {
-            MyList<Boolean> bucketValues = map.getBucket(i);
-            MyList<T> bucketKeys = map.getKeysInBucket(i); // You need this helper function
-            for (int j = 0; j < bucketKeys.size(); j++) {
-                list.add(bucketKeys.get(j));
-            }
-        }
-        return list;
+        return map.keys();
     }
-}
\ No newline at end of file
+}
@@ -1,23 +1,68 @@
 
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Properties;
 
 public class NewsAggregatorApp {
-    MyMap<Integer, Article> articlesById = new MyMap<>();
-    MyMap<String, MySet<Integer>> articlesByKeyword = new MyMap<>();
-    MyHeap<Article> trendingHeap = new MyHeap<>((a1, a2) -> Integer.compare(a1.popularity, a2.popularity));
+    IntObjectMap<Article> articlesById = new IntObjectMap<>();
+    KeywordIndex keywordIndex = new KeywordIndex();
+    // Close spellings for keywords no article has, so typos still find something
+    FuzzyKeywords fuzzyKeywords = new FuzzyKeywords();
+    // Secondary orderings kept up to date on every change, so sorted views never sort
+    OrderedIndex dateIndex = new OrderedIndex();
+    OrderedIndex popularityIndex = new OrderedIndex();
+    TextIndex textIndex = new TextIndex();
+    TrendingEngine trendingEngine;
+    ContentStore contentStore;
+    Autocomplete autocomplete;
+    private MyMap<String, Article> articlesBySourceFile = new MyMap<>();
+    private int maxArticleId;
+    // Queries hold the read lock; ingestion applies each batch of changes under the write lock
+    private final java.util.concurrent.locks.ReentrantReadWriteLock indexLock =
+            new java.util.concurrent.locks.ReentrantReadWriteLock();
+    private final List<java.util.function.IntConsumer> changeListeners =
+            new java.util.concurrent.CopyOnWriteArrayList<>();
+    private ArticleWatcher articleWatcher;
 
+    // The OpenAI API; null when running on the local analyzer alone
     private OpenAIService openAIService;
+    // Offline summaries, sentiment and topics: the backend when there is no API key, and otherwise an
+    // instant preview and a fallback when the API fails
+    private LocalAnalyzer localAnalyzer;
+    private boolean localFallback = true;
+    private boolean localPreview = true;
+    // Shared pool for AI calls; identical concurrent requests share one call
+    private AIRequestScheduler aiRequests;
+    // Fetches AI results for new and changed articles in the background; null when turned off
+    private EnrichmentPipeline enrichment;
+    // Ask for summary, sentiment and related topics in one request rather than three
+    private boolean combinedAIRequests = true;
+    // Stream combined answers into the article window as they are written
+    private boolean streamAIAnswers = true;
+    // Answers streaming in right now, by content hash, so every window waiting on one sees the text
+    private final java.util.concurrent.ConcurrentHashMap<String, StreamingText> streamingAnswers =
+            new java.util.concurrent.ConcurrentHashMap<>();
+    // Summaries, sentiment and related topics already fetched, so reopening an article costs no API call
+    private AIResultCache aiCache;
     private static final String DEFAULT_API_KEY = "your-api-key-here";
+    private static final String ARTICLES_DIR = "src/articles";
     private Properties config = new Properties();
 
     public NewsAggregatorApp() {
         loadConfig();
+        initializeTrending();
+        initializeContentStore();
+        initializeAutocomplete();
         initializeOpenAI();
+        initializeAICache();
+        initializeEnrichment();
         insertSampleData();
         new NewsAggregatorUI(this);
+        startWatcher();
     }
 
     private void loadConfig() {
@@ -30,14 +75,68 @@ public class NewsAggregatorApp {
         }
     }
 
+    private void initializeTrending() {
+        double halfLifeHours = 24;
+        try {
+            halfLifeHours = Double.parseDouble(config.getProperty("trending.half.life.hours", "24"));
+        } catch (NumberFormatException e) {
+            System.err.println("Warning: Invalid trending.half.life.hours, using 24.");
+        }
+        long hour = 60L * 60 * 1000;
+        trendingEngine = new TrendingEngine((long) (halfLifeHours * hour), hour, 24);
+    }
+
+    // Article bodies live in memory-mapped segment files; without the store they stay on the heap
+    private void initializeContentStore() {
+        try {
+            contentStore = new ContentStore(Paths.get(config.getProperty("content.store.path", "content-store")));
+        } catch (Exception e) {
+            System.err.println("Warning: Keeping article content in memory: " + e.getMessage());
+        }
+    }
+
+    private void initializeAutocomplete() {
+        long delay = 2000;
+        try {
+            delay = Long.parseLong(config.getProperty("autocomplete.rebuild.delay.ms", "2000"));
+        } catch (NumberFormatException e) {
+            System.err.println("Warning: Invalid autocomplete.rebuild.delay.ms, using 2000.");
+        }
+        autocomplete = new Autocomplete(this, delay);
+    }
+
     private void initializeOpenAI() {
         String apiKey = System.getenv("OPENAI_API_KEY");
         if (apiKey == null || apiKey.isEmpty()) {
             apiKey = config.getProperty("openai.api.key", DEFAULT_API_KEY);
         }
 
+        combinedAIRequests = Boolean.parseBoolean(config.getProperty("openai.combined.requests", "true"));
+        streamAIAnswers = Boolean.parseBoolean(config.getProperty("openai.stream", "true"));
+        // Reads textIndex on each call: loading the index snapshot replaces it after this
+        localAnalyzer = new LocalAnalyzer(() -> textIndex);
+        localFallback = Boolean.parseBoolean(config.getProperty("ai.local.fallback", "true"));
+        localPreview = Boolean.parseBoolean(config.getProperty("ai.local.preview", "true"));
+
+        // auto: OpenAI when there is a key, otherwise the local analyzer
+        String backend = config.getProperty("ai.backend", "auto").trim().toLowerCase();
+        boolean noKey = apiKey == null || apiKey.trim().isEmpty() || DEFAULT_API_KEY.equals(apiKey.trim());
+        if (backend.equals("local") || backend.equals("auto") && noKey) {
+            System.out.println("Using the local analyzer for summaries, sentiment and related topics.");
+            return;
+        }
+        if (!backend.equals("openai") && !backend.equals("auto")) {
+            System.err.println("Warning: Unknown ai.backend '" + backend + "', using auto.");
+        }
+        String baseUrl = config.getProperty("openai.base.url", "").trim();
         try {
-            openAIService = new OpenAIService(apiKey);
+            openAIService = baseUrl.isEmpty() ? new OpenAIService(apiKey) : new OpenAIService(apiKey, baseUrl);
+            try {
+                openAIService.setMaxArticleTokens(Integer.parseInt(config.getProperty("openai.max.article.tokens",
+                        String.valueOf(OpenAIService.MAX_ARTICLE_TOKENS))));
+            } catch (NumberFormatException e) {
+                System.err.println("Warning: Invalid openai.max.article.tokens, using " + OpenAIService.MAX_ARTICLE_TOKENS + ".");
+            }
             System.out.println("OpenAI service initialized successfully.");
         } catch (Exception e) {
             System.err.println("Failed to initialize OpenAI service: " + e.getMessage());
@@ -45,110 +144,709 @@ public class NewsAggregatorApp {
         }
     }
 
+    // Without the cache every AI request goes to the API
+    private void initializeAICache() {
+        int threads = 4;
+        int perOperation = 2;
+        try {
+            threads = Integer.parseInt(config.getProperty("ai.threads", "4"));
+            perOperation = Integer.parseInt(config.getProperty("ai.max.concurrent.per.operation", "2"));
+        } catch (NumberFormatException e) {
+            System.err.println("Warning: Invalid ai.threads or ai.max.concurrent.per.operation, using 4 and 2.");
+        }
+        aiRequests = new AIRequestScheduler(threads, perOperation);
+
+        int entries = 1000;
+        double ttlHours = 720;
+        try {
+            entries = Integer.parseInt(config.getProperty("ai.cache.entries", "1000"));
+            ttlHours = Double.parseDouble(config.getProperty("ai.cache.ttl.hours", "720"));
+        } catch (NumberFormatException e) {
+            System.err.println("Warning: Invalid ai.cache settings, using 1000 entries for 720 hours.");
+        }
+        try {
+            aiCache = new AIResultCache(Paths.get(config.getProperty("ai.cache.path", "ai-cache.dat")),
+                    entries, (long) (ttlHours * 60 * 60 * 1000));
+        } catch (Exception e) {
+            System.err.println("Warning: AI results will not be cached: " + e.getMessage());
+        }
+        if (openAIService != null) openAIService.setChunkCache(aiCache);
+    }
+
+    private void initializeEnrichment() {
+        if (openAIService == null || !Boolean.parseBoolean(config.getProperty("ai.enrich.enabled", "true"))) return;
+        int requestsPerMinute = 500, tokensPerMinute = 60_000, inFlight = 2, retries = 5;
+        long backoff = 500;
+        try {
+            requestsPerMinute = Integer.parseInt(config.getProperty("ai.enrich.requests.per.minute", "500"));
+            tokensPerMinute = Integer.parseInt(config.getProperty("ai.enrich.tokens.per.minute", "60000"));
+            inFlight = Integer.parseInt(config.getProperty("ai.enrich.max.in.flight", "2"));
+            retries = Integer.parseInt(config.getProperty("ai.enrich.max.retries", "5"));
+            backoff = Long.parseLong(config.getProperty("ai.enrich.backoff.ms", "500"));
+        } catch (NumberFormatException e) {
+            System.err.println("Warning: Invalid ai.enrich settings, using the defaults.");
+        }
+        RateLimiter limiter = new RateLimiter(requestsPerMinute, tokensPerMinute);
+        // A long article sends a request per part before its own; those count against the same limits
+        openAIService.setChunkThrottle(limiter::acquire);
+        enrichment = new EnrichmentPipeline(openAIService, aiCache, aiRequests, limiter, inFlight, retries, backoff);
+    }
+
+    // Start from the index snapshot when there is a valid one and re-ingest only files changed since it
+    // was taken; otherwise load every file and write a fresh snapshot for the next start
     private void insertSampleData() {
-        List<Article> loadedArticles = ArticleFileLoader.loadArticlesFromDirectory("src/articles");
-        for (Article article : loadedArticles) {
-            insertArticle(article);
+        Path snapshot = Paths.get(config.getProperty("snapshot.path", "index.snapshot"));
+        int changes;
+        if (IndexSnapshot.restore(snapshot, this)) {
+            rebuildFileIndex();
+            changes = syncWithDirectory();
+            if (changes > 0) System.out.println("Re-ingested " + changes + " changed article file(s).");
+        } else {
+            // Nothing refers to the stored bodies any more, so start the store over
+            if (contentStore != null) {
+                try {
+                    contentStore.clear();
+                } catch (Exception e) {
+                    System.err.println("Warning: Keeping article content in memory: " + e.getMessage());
+                    contentStore = null;
+                }
+            }
+            List<Article> loadedArticles = ArticleFileLoader.loadArticlesFromDirectory(ARTICLES_DIR,
+                    Runtime.getRuntime().availableProcessors(), contentStore);
+            for (Article article : loadedArticles) {
+                insertArticle(article);
+            }
+            changes = loadedArticles.size();
+        }
+        autocomplete.invalidate();
+        if (enrichment != null) {
+            MyList<Article> articles = withReadLock(articlesById::values);
+            for (int i = 0; i < articles.size(); i++) enrichment.enqueue(articles.get(i));
+        }
+        if (changes > 0) {
+            try {
+                indexLock.readLock().lock();
+                try {
+                    IndexSnapshot.write(snapshot, this);
+                } finally {
+                    indexLock.readLock().unlock();
+                }
+            } catch (Exception e) {
+                System.err.println("Warning: Failed to write index snapshot: " + e.getMessage());
+            }
+        }
+    }
+
+    // Watch the articles directory and apply new, changed and deleted files while the app runs
+    private void startWatcher() {
+        if (!Boolean.parseBoolean(config.getProperty("watch.enabled", "true"))) return;
+        long debounce = 250;
+        try {
+            debounce = Long.parseLong(config.getProperty("watch.debounce.ms", "250"));
+        } catch (NumberFormatException e) {
+            System.err.println("Warning: Invalid watch.debounce.ms, using 250.");
+        }
+        try {
+            articleWatcher = new ArticleWatcher(Paths.get(ARTICLES_DIR), this, debounce);
+            articleWatcher.start();
+        } catch (Exception e) {
+            System.err.println("Warning: Live article updates disabled: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get notified after articles were added, changed or removed in the background.
+     * Listeners run on the ingesting thread and receive the number of changed articles.
+     */
+    public void addChangeListener(java.util.function.IntConsumer listener) {
+        changeListeners.add(listener);
+    }
+
+    private void fireChanged(int changes) {
+        if (changes == 0) return;
+        for (java.util.function.IntConsumer listener : changeListeners) {
+            listener.accept(changes);
         }
     }
+
+    // Recompute the file name lookup and the highest id after the indexes were replaced wholesale
+    private void rebuildFileIndex() {
+        articlesBySourceFile = new MyMap<>(articlesById.size());
+        maxArticleId = 0;
+        MyList<Article> articles = articlesById.values();
+        for (int i = 0; i < articles.size(); i++) {
+            Article article = articles.get(i);
+            if (article.sourceFile != null) articlesBySourceFile.put(article.sourceFile, article);
+            maxArticleId = Math.max(maxArticleId, article.id);
+        }
+    }
+
+    // Bring the indexes in line with the articles directory: parse new or modified files, drop deleted ones
+    int syncWithDirectory() {
+        Path[] files = ArticleFileLoader.listArticleFiles(Paths.get(ARTICLES_DIR));
+        if (files == null) return 0;
+        MyMap<String, Article> unseen = new MyMap<>(articlesBySourceFile.size());
+        indexLock.readLock().lock();
+        try {
+            for (MyMap.Entry<String, Article> entry : articlesBySourceFile) unseen.put(entry.getKey(), entry.getValue());
+        } finally {
+            indexLock.readLock().unlock();
+        }
+
+        List<Article> changed = new java.util.ArrayList<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            Article known = unseen.remove(name);
+            try {
+                if (known != null && known.sourceSize == Files.size(file)
+                        && known.sourceModified == Files.getLastModifiedTime(file).toMillis()) {
+                    continue;
+                }
+                changed.add(ArticleFileLoader.parseFile(file, 0));
+            } catch (Exception e) {
+                System.err.println("Failed to read file: " + name + " - " + e.getMessage());
+            }
+        }
+        List<String> deleted = new java.util.ArrayList<>();
+        for (MyMap.Entry<String, Article> entry : unseen) deleted.add(entry.getKey());
+        return applyFileChanges(changed, deleted);
+    }
+
+    /**
+     * Apply parsed article files and deletions to every index in one short write-locked step.
+     * An article keeps the id of the file it replaces; articles from new files get fresh ids.
+     *
+     * @param changed Articles parsed from new or modified files (their id is assigned here)
+     * @param deletedFiles Names of files that no longer exist
+     * @return The number of articles added, replaced or removed
+     */
+    int applyFileChanges(List<Article> changed, List<String> deletedFiles) {
+        int changes = 0;
+        List<String> staleContent = new java.util.ArrayList<>();
+        indexLock.writeLock().lock();
+        try {
+            for (Article article : changed) {
+                Article known = articlesBySourceFile.get(article.sourceFile);
+                article.id = known != null ? known.id : ++maxArticleId;
+                if (known != null && aiCache != null) staleContent.add(known.getContent());
+                insertArticle(article);
+                changes++;
+            }
+            for (String name : deletedFiles) {
+                Article known = articlesBySourceFile.get(name);
+                if (known == null) continue;
+                if (aiCache != null) staleContent.add(known.getContent());
+                removeArticle(known.id);
+                changes++;
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        // Results for the old text would never be asked for again; drop them rather than wait for the TTL
+        for (int i = 0; i < changed.size(); i++) {
+            staleContent.remove(changed.get(i).getContent());
+        }
+        for (String content : staleContent) aiCache.invalidateContent(content);
+        if (enrichment != null) {
+            for (Article article : changed) enrichment.enqueue(article);
+        }
+        fireChanged(changes);
+        return changes;
+    }
+
+    // Add an article to every index, replacing any previous article with the same id
     private void insertArticle(Article article) {
-        articlesById.put(article.id, article);
-        for (int i = 0; i < article.keywords.size(); i++) {
-            String kw = article.keywords.get(i);
-            MySet<Integer> ids = articlesByKeyword.get(kw);
-            if (ids == null) {
-                ids = new MySet<>();
-                articlesByKeyword.put(kw, ids);
+        indexLock.writeLock().lock();
+        try {
+            if (articlesById.containsKey(article.id)) removeArticle(article.id);
+            articlesById.put(article.id, article);
+            if (article.sourceFile != null) articlesBySourceFile.put(article.sourceFile, article);
+            maxArticleId = Math.max(maxArticleId, article.id);
+            keywordIndex.add(article.id, article.keywordIds);
+            dateIndex.add(article.id, article.published);
+            popularityIndex.add(article.id, article.popularity);
+            textIndex.add(article.id, article.title, article.getContent());
+            if (contentStore != null) article.storeContent(contentStore);
+            trendingEngine.add(article, publishedMillis(article));
+            autocomplete.invalidate();
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    // Remove an article from every index
+    private void removeArticle(int articleId) {
+        indexLock.writeLock().lock();
+        try {
+            Article article = articlesById.remove(articleId);
+            if (article == null) return;
+            if (article.sourceFile != null && articlesBySourceFile.get(article.sourceFile) == article) {
+                articlesBySourceFile.remove(article.sourceFile);
             }
-            ids.add(article.id);
+            keywordIndex.remove(articleId, article.keywordIds);
+            dateIndex.remove(articleId, article.published);
+            popularityIndex.remove(articleId, article.popularity);
+            textIndex.remove(articleId);
+            trendingEngine.remove(articleId);
+            autocomplete.invalidate();
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    // Publication time in millis, or now if the date can't be parsed
+    static long publishedMillis(Article article) {
+        if (article.published == Article.UNKNOWN_DATE) return System.currentTimeMillis();
+        return article.published * 1000;
+    }
+
+    /**
+     * Record reads of an article. Its all-time popularity goes up by delta and the views feed the
+     * time-decayed trending score, which re-ranks the article in place.
+     *
+     * @param articleId The article that was read
+     * @param delta Number of new views (negative to correct an earlier count)
+     * @return false if the article is unknown
+     */
+    public boolean recordView(int articleId, int delta) {
+        indexLock.writeLock().lock();
+        try {
+            Article article = articlesById.get(articleId);
+            if (article == null) return false;
+            popularityIndex.remove(articleId, article.popularity);
+            article.popularity += delta;
+            popularityIndex.add(articleId, article.popularity);
+            autocomplete.popularityChanged(article);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        return trendingEngine.recordEvent(articleId, delta);
+    }
+
+    /**
+     * One page of articles in a sort order. Costs O(limit) plus a logarithmic seek, however many articles
+     * there are.
+     *
+     * @param sortKey The order to page through
+     * @param cursor The previous page's next cursor, or null for the first page
+     * @param limit Maximum number of articles on the page
+     */
+    public ArticlePage page(ArticlePage.SortKey sortKey, ArticlePage.Cursor cursor, int limit) {
+        indexLock.readLock().lock();
+        try {
+            OrderedIndex index = orderedIndex(sortKey);
+            return collectPage(cursor == null
+                    ? index.descending(Long.MAX_VALUE, Integer.MAX_VALUE)
+                    : index.descending(cursor.key, cursor.id), limit);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The page starting at a position in a sort order, for jumping anywhere in a long list. Seeking costs
+     * one step per index block; when paging forward, continuing from the previous page's cursor is cheaper.
+     *
+     * @param sortKey The order to page through
+     * @param offset Position of the first article on the page (0 is the first article)
+     * @param limit Maximum number of articles on the page
+     */
+    public ArticlePage pageAt(ArticlePage.SortKey sortKey, int offset, int limit) {
+        indexLock.readLock().lock();
+        try {
+            return collectPage(orderedIndex(sortKey).descendingFromRank(Math.max(0, offset)), limit);
+        } finally {
+            indexLock.readLock().unlock();
         }
-        trendingHeap.add(article);
     }
 
+    private OrderedIndex orderedIndex(ArticlePage.SortKey sortKey) {
+        return sortKey == ArticlePage.SortKey.POPULARITY ? popularityIndex : dateIndex;
+    }
+
+    // Up to limit articles from the cursor on; the caller holds the read lock
+    private ArticlePage collectPage(OrderedIndex.Cursor entries, int limit) {
+        MyList<Article> articles = new MyList<>(Math.max(0, Math.min(limit, 1024)));
+        int id = entries.next();
+        long lastKey = 0;
+        int lastId = 0;
+        while (id >= 0 && articles.size() < limit) {
+            Article art = articlesById.get(id);
+            if (art != null) articles.add(art);
+            lastKey = entries.key();
+            lastId = id;
+            id = entries.next();
+        }
+        // id is the first entry of the next page, if there is one
+        return new ArticlePage(articles, id >= 0 && articles.size() > 0 ? new ArticlePage.Cursor(lastKey, lastId) : null);
+    }
+
+    // Run a read-only query against the indexes under the read lock
+    <T> T withReadLock(java.util.function.Supplier<T> query) {
+        indexLock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keywords starting with what has been typed, for search box completion. Lock-free and fast enough to
+     * call on every keystroke; may lag the latest changes by the autocomplete rebuild delay.
+     *
+     * @param prefix The typed text (case doesn't matter)
+     * @param n Maximum number of keywords
+     * @return Up to n keywords, the ones on the most articles first
+     */
+    public MyList<String> completeKeywords(String prefix, int n) {
+        return autocomplete.keywords(prefix, n);
+    }
+
+    // Articles whose title starts with prefix, the most popular first; see completeKeywords
+    public MyList<Article> completeTitles(String prefix, int n) {
+        return autocomplete.titles(prefix, n);
+    }
+
+    public int articleCount() {
+        indexLock.readLock().lock();
+        try {
+            return articlesById.size();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    // Every article, in no particular order; copies the whole collection, so prefer page() for display
     public MyList<Article> getAllArticles() {
-        MyList<Article> allarticles = new MyList<>();
-        for (int i = 0; i < articlesById.bucketCount(); i++) {
-            MyList<Article> bucket = articlesById.getBucket(i);
-            for (int j = 0; j < bucket.size(); j++) {
-                allarticles.add(bucket.get(j));
-            }
+        indexLock.readLock().lock();
+        try {
+            return articlesById.values();
+        } finally {
+            indexLock.readLock().unlock();
         }
-        return allarticles;
     }
 
+    // Articles with a keyword; a keyword no article has is treated as a typo and its close spellings are used
     public MyList<Article> getArticlesByKeyword(String keyword) {
-        MyList<Article> result = new MyList<>();
-        MySet<Integer> ids = articlesByKeyword.get(keyword);
-        if (ids != null) {
-            MyList<Integer> idList = ids.getAll();
-            for (int i = 0; i < idList.size(); i++) {
-                Article art = articlesById.get(idList.get(i));
+        indexLock.readLock().lock();
+        try {
+            PostingList ids = keywordIndex.get(keyword);
+            if (ids == null || ids.isEmpty()) return toArticles(new KeywordQuery().any(keyword)
+                    .corrected(keywordIndex, fuzzyKeywords).execute(keywordIndex));
+            MyList<Article> result = new MyList<>();
+            DocIdCursor cursor = ids.cursor();
+            for (int id = cursor.nextDoc(); id != DocIdCursor.NO_MORE_DOCS; id = cursor.nextDoc()) {
+                Article art = articlesById.get(id);
+                if (art != null)
+                    result.add(art);
+            }
+            return result;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Search articles with a boolean keyword query, e.g. "java tech|cloud -python". Misspelled keywords
+     * (ones no article has) match their close spellings instead, e.g. "progamming" finds "programming".
+     *
+     * @param query Query text, see KeywordQuery for the syntax
+     * @return Matching articles in id order
+     */
+    public MyList<Article> searchArticles(String query) {
+        return searchArticles(KeywordQuery.parse(query));
+    }
+
+    public MyList<Article> searchArticles(KeywordQuery query) {
+        indexLock.readLock().lock();
+        try {
+            return toArticles(query.corrected(keywordIndex, fuzzyKeywords).execute(keywordIndex));
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Full-text search over article titles and bodies, ranked by BM25
+     *
+     * @param query Free text; words in double quotes must appear as a phrase
+     * @param topN Maximum number of results
+     * @return The best matching articles, best first
+     */
+    public MyList<Article> searchFullText(String query, int topN) {
+        indexLock.readLock().lock();
+        try {
+            TextIndex.Hits hits = textIndex.search(query, topN);
+            MyList<Article> result = new MyList<>(hits.size);
+            for (int i = 0; i < hits.size; i++) {
+                Article art = articlesById.get(hits.articleIds[i]);
                 if (art != null)
                     result.add(art);
             }
+            return result;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Articles published in [fromSecond, toSecond), newest first
+     *
+     * @param fromSecond Start of the range in epoch seconds, inclusive
+     * @param toSecond End of the range in epoch seconds, exclusive
+     * @param limit Maximum number of results
+     */
+    public MyList<Article> getArticlesBetween(long fromSecond, long toSecond, int limit) {
+        return searchArticles(null, fromSecond, toSecond, limit);
+    }
+
+    // The most recently published articles, newest first
+    public MyList<Article> getLatestArticles(int limit) {
+        return searchArticles(null, Long.MIN_VALUE, Long.MAX_VALUE, limit);
+    }
+
+    /**
+     * Keyword search restricted to a publication date range, newest first. Walks the date index from the end
+     * of the range and checks each article's keywords; if that visits more articles than the keyword query
+     * can match, it switches to the posting lists and filters those by date instead.
+     *
+     * @param query Keyword query, or null for every article in the range
+     * @param fromSecond Start of the range in epoch seconds, inclusive
+     * @param toSecond End of the range in epoch seconds, exclusive
+     * @param limit Maximum number of results
+     */
+    public MyList<Article> searchArticles(KeywordQuery query, long fromSecond, long toSecond, int limit) {
+        MyList<Article> result = new MyList<>();
+        if (limit <= 0 || fromSecond >= toSecond) return result;
+        indexLock.readLock().lock();
+        try {
+            if (query != null) query = query.corrected(keywordIndex, fuzzyKeywords);
+            java.util.function.Predicate<Article> matcher = query == null ? null : query.matcher();
+            long budget = query == null ? Long.MAX_VALUE : query.cost(keywordIndex);
+            OrderedIndex.Cursor cursor = dateIndex.descending(toSecond);
+            long from = Math.max(fromSecond, Article.UNKNOWN_DATE + 1); // undated articles are never in a range
+            long visited = 0;
+            for (int id = cursor.next(); id >= 0 && cursor.key() >= from; id = cursor.next()) {
+                if (++visited > budget) return latestMatches(query, fromSecond, toSecond, limit);
+                KeywordQuery.checkCancelled(visited);
+                Article art = articlesById.get(id);
+                if (art != null && (matcher == null || matcher.test(art))) {
+                    result.add(art);
+                    if (result.size() == limit) break;
+                }
+            }
+            return result;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    // Run the keyword query, keep the matches inside the range and return the newest; caller holds the read lock
+    private MyList<Article> latestMatches(KeywordQuery query, long fromSecond, long toSecond, int limit) {
+        MyHeap<Article> newest = new MyHeap<>((a1, a2) -> a1.published != a2.published
+                ? Long.compare(a1.published, a2.published) : Integer.compare(a1.id, a2.id));
+        IntList ids = query.execute(keywordIndex);
+        for (int i = 0; i < ids.size(); i++) {
+            Article art = articlesById.get(ids.get(i));
+            if (art != null && art.published != Article.UNKNOWN_DATE
+                    && art.published >= fromSecond && art.published < toSecond) {
+                newest.add(art);
+            }
+        }
+        return newest.topK(limit);
+    }
+
+    // Look up articles for ids; the caller holds the read lock
+    private MyList<Article> toArticles(IntList ids) {
+        MyList<Article> result = new MyList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Article art = articlesById.get(ids.get(i));
+            if (art != null)
+                result.add(art);
         }
         return result;
     }
 
     public MyList<Article> getTopTrendingArticles(int topN) {
-        MyList<Article> sorted = trendingHeap.toSortedList();
-        MyList<Article> top = new MyList<>();
-        for (int i = 0; i < topN && i < sorted.size(); i++) {
-            top.add(sorted.get(i));
+        return trendingEngine.topK(topN);
+    }
+
+    // The cached result of an AI operation on the article's content, calling the API on a miss
+    private String cachedAI(Article article, String operation, java.util.function.UnaryOperator<String> call) {
+        String content = article.getContent();
+        if (aiCache == null) return call.apply(content);
+        return aiCache.get(AnalysisBackend.cacheKey(openAIService, content, operation), () -> call.apply(content));
+    }
+
+    /**
+     * Summary, sentiment and related topics for an article: what enrichment already stored on it, else the
+     * cached answers, else a single combined request. If that answer can't be parsed (or combined requests
+     * are turned off), each part is requested on its own instead. Without OpenAI the local analyzer answers;
+     * if OpenAI fails, the local analyzer answers too (or error messages come back if ai.local.fallback is
+     * off), like the individual methods below.
+     *
+     * @param article The article to analyze
+     */
+    public AnalysisBackend.Analysis analyzeArticle(Article article) {
+        if (article.analysis != null) return article.analysis;
+        if (openAIService == null) return localAnalyzer.analyzeArticle(article.getContent());
+        try {
+            return remoteAnalysis(article, AIResultCache.contentHash(article.getContent()), null);
+        } catch (RuntimeException e) {
+            return fallbackAnalysis(article, e);
         }
-        return top;
+    }
+
+    // OpenAI's analysis of content with the given contentHash, passing the combined answer to onText as it
+    // streams in (when streaming is on). Only ever a real answer: failures are thrown, so enrichment joining
+    // this request never stores a fallback as the article's analysis.
+    private AnalysisBackend.Analysis remoteAnalysis(Article article, String hash,
+                                                    java.util.function.Consumer<String> onText) {
+        if (article.analysis != null) return article.analysis;
+        String content = article.getContent();
+        AnalysisBackend.Analysis cached = aiCache == null ? null
+                : AnalysisBackend.Analysis.fromCacheByHash(aiCache, openAIService, hash);
+        if (cached != null) return cached;
+        if (combinedAIRequests) {
+            try {
+                AnalysisBackend.Analysis analysis = onText != null && streamAIAnswers
+                        ? openAIService.streamAnalysis(content, onText) : openAIService.analyzeArticle(content);
+                if (aiCache != null) analysis.saveTo(aiCache, openAIService, content);
+                return analysis;
+            } catch (IllegalArgumentException e) {
+                System.err.println("Combined AI answer unusable, asking separately: " + e.getMessage());
+            }
+        }
+        return new AnalysisBackend.Analysis(cachedAI(article, "summary", openAIService::summarizeArticle),
+                cachedAI(article, "sentiment", openAIService::analyzeSentiment),
+                cachedAI(article, "related", openAIService::suggestRelatedTopics));
+    }
+
+    // What to show when OpenAI failed: the local analyzer's answer, or error messages if ai.local.fallback
+    // is off
+    private AnalysisBackend.Analysis fallbackAnalysis(Article article, Throwable error) {
+        System.err.println("Error analyzing article: " + error.getMessage());
+        if (localFallback) return localAnalyzer.analyzeArticle(article.getContent());
+        String message = "Error contacting OpenAI. Please try again later.";
+        return new AnalysisBackend.Analysis(message, message, message);
+    }
+
+    // What the local analyzer makes of the article, to show while OpenAI answers; null when the final answer
+    // is already at hand (enriched or cached) or previews are turned off
+    private AnalysisBackend.Analysis previewAnalysis(Article article, String hash) {
+        if (article.analysis != null) return null;
+        if (aiCache != null && AnalysisBackend.Analysis.fromCacheByHash(aiCache, openAIService, hash) != null) return null;
+        return localAnalyzer.analyzeArticle(article.getContent());
     }
 
     /**
-     * Summarize an article using OpenAI
+     * analyzeArticle on the shared AI pool. Windows asking about the same article content at the same time
+     * share one request, and join the enrichment stage's request if it is fetching that content right now;
+     * cancel the future when its window closes. Shared requests only ever produce OpenAI's answer; if it
+     * fails, this caller's future gets the fallback (see analyzeArticle) instead. While a combined answer
+     * streams in, onText gets the reply so far (see OpenAIService.parsePartial) on a pool thread. Before
+     * that, when OpenAI answers and previews are on, onPreview gets the local analyzer's answer, also on a
+     * pool thread and only if the final answer isn't in yet.
+     *
+     * @param article The article to analyze
+     * @param onText Called with the partial reply as it grows; may be null
+     * @param onPreview Called with a quick local answer to show meanwhile; may be null
+     * @return This caller's future for the analysis
+     */
+    public java.util.concurrent.CompletableFuture<AnalysisBackend.Analysis> analyzeArticleAsync(
+            Article article, java.util.function.Consumer<String> onText,
+            java.util.function.Consumer<AnalysisBackend.Analysis> onPreview) {
+        if (article.analysis != null) return java.util.concurrent.CompletableFuture.completedFuture(article.analysis);
+        // Hashed once here; everything after this runs on the pool
+        String hash = AIResultCache.contentHash(article.getContent());
+        if (openAIService == null) {
+            return aiRequests.submit("local", hash, () -> localAnalyzer.analyzeArticle(article.getContent()));
+        }
+        StreamingText answer = streamingAnswers.computeIfAbsent(hash, h -> new StreamingText());
+        if (onText != null) answer.subscribe(onText);
+        java.util.concurrent.CompletableFuture<AnalysisBackend.Analysis> shared =
+                aiRequests.submit(EnrichmentPipeline.OPERATION, hash, () -> {
+                    try {
+                        return remoteAnalysis(article, hash, answer::update);
+                    } finally {
+                        streamingAnswers.remove(hash, answer);
+                    }
+                });
+        // A window closed while the request was still queued means the call above never runs, so the entry
+        // goes once nobody reads it anymore
+        shared.whenComplete((analysis, error) -> {
+            if (onText != null) answer.unsubscribe(onText);
+            if (!answer.hasReaders()) streamingAnswers.remove(hash, answer);
+        });
+        java.util.concurrent.CompletableFuture<AnalysisBackend.Analysis> result =
+                new java.util.concurrent.CompletableFuture<>();
+        // Runs on the pool thread that finished the request; nothing to do once this caller has cancelled
+        shared.whenComplete((analysis, error) -> {
+            if (error == null) result.complete(analysis);
+            else if (!result.isDone()) result.complete(fallbackAnalysis(article, error));
+        });
+        result.whenComplete((analysis, error) -> {
+            if (result.isCancelled()) shared.cancel(true);
+        });
+        if (onPreview != null && localPreview) {
+            java.util.concurrent.CompletableFuture<AnalysisBackend.Analysis> preview =
+                    aiRequests.submit("preview", hash, () -> previewAnalysis(article, hash));
+            preview.thenAccept(analysis -> {
+                if (analysis != null && !result.isDone()) onPreview.accept(analysis);
+            });
+            result.whenComplete((analysis, error) -> preview.cancel(true));
+        }
+        return result;
+    }
+
+    /**
+     * Summarize an article using OpenAI, or the local analyzer without it
      *
      * @param article The article to summarize
      * @return A summarized version of the article content
      */
     public String summarizeArticle(Article article) {
-        if (openAIService == null) {
-            return "OpenAI service not available. Please check your API key.";
-        }
+        if (openAIService == null) return localAnalyzer.summarizeArticle(article.getContent());
         try {
-            return openAIService.summarizeArticle(article.content);
+            return cachedAI(article, "summary", openAIService::summarizeArticle);
         } catch (Exception e) {
             System.err.println("Error summarizing article: " + e.getMessage());
+            if (localFallback) return localAnalyzer.summarizeArticle(article.getContent());
             return "Error summarizing article. Please try again later.";
         }
     }
 
     /**
-     * Analyze the sentiment of an article using OpenAI
+     * Analyze the sentiment of an article using OpenAI, or the local analyzer without it
      *
      * @param article The article to analyze
      * @return The sentiment analysis result
      */
     public String analyzeArticleSentiment(Article article) {
-        if (openAIService == null) {
-            return "OpenAI service not available. Please check your API key.";
-        }
+        if (openAIService == null) return localAnalyzer.analyzeSentiment(article.getContent());
         try {
-            return openAIService.analyzeSentiment(article.content);
+            return cachedAI(article, "sentiment", openAIService::analyzeSentiment);
         } catch (Exception e) {
             System.err.println("Error analyzing sentiment: " + e.getMessage());
+            if (localFallback) return localAnalyzer.analyzeSentiment(article.getContent());
             return "Error analyzing sentiment. Please try again later.";
         }
     }
 
     /**
-     * Get related topics for an article using OpenAI
+     * Get related topics for an article using OpenAI, or the local analyzer without it
      *
      * @param article The article to analyze
      * @return A list of related topics
      */
     public String getRelatedTopics(Article article) {
-        if (openAIService == null) {
-            return "OpenAI service not available. Please check your API key.";
-        }
+        if (openAIService == null) return localAnalyzer.suggestRelatedTopics(article.getContent());
         try {
-            return openAIService.suggestRelatedTopics(article.content);
+            return cachedAI(article, "related", openAIService::suggestRelatedTopics);
         } catch (Exception e) {
             System.err.println("Error getting related topics: " + e.getMessage());
+            if (localFallback) return localAnalyzer.suggestRelatedTopics(article.getContent());
             return "Error getting related topics. Please try again later.";
         }
     }
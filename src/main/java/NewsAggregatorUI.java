@@ -1,11 +1,21 @@
 class NewsAggregatorUI extends javax.swing.JFrame {
+    private static final int FULL_TEXT_RESULTS = 50;
+    // Search-as-you-type waits for this long a pause in typing
+    private static final long SEARCH_DELAY_MILLIS = 150;
+    private static final String[] PERIODS = {"Any time", "Last 24 hours", "Last 7 days", "Last 30 days", "Last year"};
+    private static final long[] PERIOD_DAYS = {0, 1, 7, 30, 365};
     private final NewsAggregatorApp app;
+    private final QueryExecutor queries;
     private javax.swing.JTextField searchField;
-    private javax.swing.JPanel articleListPanel;
+    private javax.swing.JComboBox<String> searchModeDropdown;
+    private javax.swing.JComboBox<String> periodDropdown;
+    private javax.swing.JList<Article> articleList;
     private javax.swing.JLabel statusLabel;
+    private ArticlePage.SortKey sortKey = ArticlePage.SortKey.DATE;
 
     public NewsAggregatorUI(NewsAggregatorApp app) {
         this.app = app;
+        this.queries = new QueryExecutor(2, message -> statusLabel.setText("Query failed: " + message));
         buildUI();
         setTitle("News Aggregator");
         setSize(800, 600);
@@ -32,24 +42,39 @@ class NewsAggregatorUI extends javax.swing.JFrame {
         javax.swing.JButton searchButton = new javax.swing.JButton("Search");
         javax.swing.JButton showTrendingButton = new javax.swing.JButton("Show Top Trending");
         javax.swing.JButton resetButton = new javax.swing.JButton("Reset");
+        javax.swing.JButton viewButton = new javax.swing.JButton("View");
+
+        String[] searchModes = {"Keywords", "Full Text"};
+        searchModeDropdown = new javax.swing.JComboBox<>(searchModes);
+
+        periodDropdown = new javax.swing.JComboBox<>(PERIODS);
 
         String[] sortOptions = {"Sort by Date", "Sort by Popularity"};
         javax.swing.JComboBox<String> sortDropdown = new javax.swing.JComboBox<>(sortOptions);
 
         topPanel.add(new javax.swing.JLabel("Keyword:"));
         topPanel.add(searchField);
+        topPanel.add(searchModeDropdown);
+        topPanel.add(periodDropdown);
         topPanel.add(searchButton);
         topPanel.add(showTrendingButton);
         topPanel.add(sortDropdown);
         topPanel.add(resetButton);
-
-        // Article list
-        articleListPanel = new javax.swing.JPanel();
-        articleListPanel.setLayout(new javax.swing.BoxLayout(articleListPanel, javax.swing.BoxLayout.Y_AXIS));
-        javax.swing.JScrollPane scrollPane = new javax.swing.JScrollPane(articleListPanel);
+        topPanel.add(viewButton);
+
+        // Article list: only visible rows are rendered, all by one reused renderer. Rows have a fixed height
+        // and width, so the list never measures every article (which would fetch every page of a sorted view);
+        // the width is only the preferred one, rows still fill the viewport.
+        articleList = new javax.swing.JList<>();
+        articleList.setCellRenderer(new ArticleCellRenderer());
+        articleList.setFixedCellHeight(72);
+        articleList.setFixedCellWidth(600);
+        articleList.setSelectionMode(javax.swing.ListSelectionModel.SINGLE_SELECTION);
+        javax.swing.JScrollPane scrollPane = new javax.swing.JScrollPane(articleList);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(24);
 
         // Status bar
-        statusLabel = new javax.swing.JLabel("Welcome to Boston Daily Times!");
+        statusLabel = new javax.swing.JLabel("Welcome to Boston Daily Times! Double-click an article to read it.");
         statusLabel.setBorder(javax.swing.BorderFactory.createEmptyBorder(5, 10, 5, 10));
 
         // Combine panels
@@ -62,89 +87,150 @@ class NewsAggregatorUI extends javax.swing.JFrame {
         add(scrollPane, java.awt.BorderLayout.CENTER);
         add(statusLabel, java.awt.BorderLayout.SOUTH);
 
-        // Listeners
-        searchField.addActionListener(e -> searchButton.doClick());
-        searchButton.addActionListener(e -> {
-            String keyword = searchField.getText().trim().toLowerCase();
-            loadArticles(app.getArticlesByKeyword(keyword));
-            statusLabel.setText("Search results for: '" + keyword + "'");
+        // Listeners. Queries run on the query executor; only reading the inputs and showing results happen
+        // on the EDT, and each new query supersedes the one before it.
+        searchField.addActionListener(e -> runSearch(0));
+        new SearchSuggestions(app, searchField, this::openArticle);
+        searchButton.addActionListener(e -> runSearch(0));
+        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                runSearch(SEARCH_DELAY_MILLIS);
+            }
+
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                runSearch(SEARCH_DELAY_MILLIS);
+            }
+
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+            }
         });
 
         showTrendingButton.addActionListener(e -> {
-            loadArticles(app.getTopTrendingArticles(3));
-            statusLabel.setText("Top 3 trending articles.");
+            statusLabel.setText("Loading trending articles...");
+            queries.run(() -> app.getTopTrendingArticles(3), trending -> {
+                loadArticles(trending);
+                statusLabel.setText("Top 3 trending articles.");
+            });
         });
 
         sortDropdown.addActionListener(e -> {
             String selected = (String) sortDropdown.getSelectedItem();
-            sortAndReload(selected.contains("Date") ? "date" : "popularity");
-            statusLabel.setText("Articles sorted by " + selected.toLowerCase() + ".");
+            showSorted(selected.contains("Date") ? ArticlePage.SortKey.DATE : ArticlePage.SortKey.POPULARITY,
+                    "Articles sorted by " + selected.toLowerCase() + ".");
         });
 
         resetButton.addActionListener(e -> {
             searchField.setText("");
-            loadArticles(app.getAllArticles());
-            statusLabel.setText("Reset to all articles.");
+            showSorted(sortKey, null);
+        });
+
+        // The View button, a double-click or Enter opens the selected article
+        viewButton.addActionListener(e -> openSelectedArticle());
+        articleList.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                if (e.getClickCount() == 2 && articleList.locationToIndex(e.getPoint()) >= 0) openSelectedArticle();
+            }
+        });
+        articleList.getInputMap().put(javax.swing.KeyStroke.getKeyStroke("ENTER"), "openArticle");
+        articleList.getActionMap().put("openArticle", new javax.swing.AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                openSelectedArticle();
+            }
+        });
+
+        // Articles changed on disk are indexed in the background; sorted views pick them up right away,
+        // search results stay until the next search. The listener runs on the ingesting thread, so the new
+        // count is read there rather than on the EDT.
+        app.addChangeListener(changes -> {
+            int count = app.articleCount();
+            javax.swing.SwingUtilities.invokeLater(() -> {
+                ArticleListModel model = (ArticleListModel) articleList.getModel();
+                if (model.isSortedView()) model.refresh(count);
+                statusLabel.setText(changes + " article(s) updated from disk.");
+            });
         });
 
         // Initial load
-        loadArticles(app.getAllArticles());
+        articleList.setModel(ArticleListModel.of(new MyList<>()));
+        showSorted(sortKey, null);
     }
 
-    private void loadArticles(MyList<Article> articles) {
-        articleListPanel.removeAll();
-        for (int i = 0; i < articles.size(); i++) {
-            addArticleCard(articles.get(i));
+    // Run the search described by the search field and dropdowns, after delayMillis of quiet
+    private void runSearch(long delayMillis) {
+        String keyword = searchField.getText().trim().toLowerCase();
+        long days = PERIOD_DAYS[periodDropdown.getSelectedIndex()];
+        boolean fullText = "Full Text".equals(searchModeDropdown.getSelectedItem());
+        if (keyword.isEmpty() && days == 0) {
+            // Nothing to search for: back to the full list
+            showSorted(sortKey, null);
+            return;
         }
-        articleListPanel.revalidate();
-        articleListPanel.repaint();
+        long since = System.currentTimeMillis() / 1000 - days * 86400;
+        String period = days > 0 ? " (" + PERIODS[periodDropdown.getSelectedIndex()].toLowerCase() + ")" : "";
+        if (delayMillis == 0) statusLabel.setText("Searching for: '" + keyword + "'" + period + "...");
+        queries.runDebounced(delayMillis, () -> {
+            if (fullText) {
+                MyList<Article> hits = app.searchFullText(keyword, FULL_TEXT_RESULTS);
+                return days > 0 ? publishedSince(hits, since) : hits;
+            } else if (days > 0) {
+                KeywordQuery query = keyword.isEmpty() ? null : KeywordQuery.parse(keyword);
+                return app.searchArticles(query, since, Long.MAX_VALUE, Integer.MAX_VALUE);
+            }
+            return app.searchArticles(keyword);
+        }, results -> {
+            loadArticles(results);
+            statusLabel.setText(results.size() + " result(s) for: '" + keyword + "'" + period);
+        });
     }
 
-    private void addArticleCard(Article article) {
-        javax.swing.JPanel card = new javax.swing.JPanel(new java.awt.BorderLayout());
-        card.setBorder(javax.swing.BorderFactory.createLineBorder(java.awt.Color.GRAY));
-        card.setMaximumSize(new java.awt.Dimension(Integer.MAX_VALUE, 90));
-
-        javax.swing.JLabel titleLabel = new javax.swing.JLabel(
-                "<html><b>" + article.title + "</b> (" + article.date + ")</html>");
-        javax.swing.JButton viewButton = new javax.swing.JButton("View");
-
-        javax.swing.JLabel popularityLabel = new javax.swing.JLabel("🔥 Popularity: " + article.popularity);
-        popularityLabel.setFont(new java.awt.Font("SansSerif", java.awt.Font.ITALIC, 12));
-        popularityLabel.setForeground(java.awt.Color.DARK_GRAY);
-
-        viewButton.addActionListener(e -> openEnhancedArticleWindow(article));
+    // Every article in the given order; rows are fetched page by page as they scroll into view
+    private void showSorted(ArticlePage.SortKey key, String status) {
+        sortKey = key;
+        queries.run(app::articleCount, count -> {
+            articleList.setModel(ArticleListModel.sorted(app, queries, key, count));
+            statusLabel.setText(status != null ? status : "Showing all " + count + " articles.");
+        });
+    }
 
-        javax.swing.JPanel centerPanel = new javax.swing.JPanel();
-        centerPanel.setLayout(new javax.swing.BoxLayout(centerPanel, javax.swing.BoxLayout.Y_AXIS));
-        centerPanel.add(titleLabel);
-        centerPanel.add(popularityLabel);
+    // Keep the articles published at or after the given epoch second, in their current order
+    private static MyList<Article> publishedSince(MyList<Article> articles, long since) {
+        MyList<Article> result = new MyList<>();
+        for (int i = 0; i < articles.size(); i++) {
+            Article article = articles.get(i);
+            if (article.published != Article.UNKNOWN_DATE && article.published >= since) result.add(article);
+        }
+        return result;
+    }
 
+    private void loadArticles(MyList<Article> articles) {
+        articleList.setModel(ArticleListModel.of(articles));
+    }
 
-        if (article.keywords != null && article.keywords.size() > 0) {
-            StringBuilder keywordStr = new StringBuilder("Keywords: ");
-            for (int i = 0; i < article.keywords.size(); i++) {
-                keywordStr.append(article.keywords.get(i));
-                if (i < article.keywords.size() - 1) keywordStr.append(", ");
-            }
-            javax.swing.JLabel keywordsLabel = new javax.swing.JLabel("<html><i>" + keywordStr + "</i></html>");
-            centerPanel.add(keywordsLabel);
-        }
+    private void openSelectedArticle() {
+        Article article = articleList.getSelectedValue();
+        if (article != null) openArticle(article);
+    }
 
-        card.add(centerPanel, java.awt.BorderLayout.CENTER);
-        card.add(viewButton, java.awt.BorderLayout.EAST);
-        articleListPanel.add(card);
+    private void openArticle(Article article) {
+        queries.fetch(() -> app.recordView(article.id, 1), recorded -> articleList.repaint());
+        openEnhancedArticleWindow(article);
     }
 
     private void openEnhancedArticleWindow(Article article) {
         javax.swing.JFrame detailFrame = new javax.swing.JFrame("AI-Enhanced: " + article.title);
+        detailFrame.setDefaultCloseOperation(javax.swing.WindowConstants.DISPOSE_ON_CLOSE);
         detailFrame.setSize(700, 600);
         detailFrame.setLocationRelativeTo(this);
 
         javax.swing.JTabbedPane tabbedPane = new javax.swing.JTabbedPane();
 
         javax.swing.JPanel originalPanel = new javax.swing.JPanel(new java.awt.BorderLayout());
-        javax.swing.JTextArea contentArea = new javax.swing.JTextArea(article.content);
+        javax.swing.JTextArea contentArea = new javax.swing.JTextArea(article.getContent());
         contentArea.setWrapStyleWord(true);
         contentArea.setLineWrap(true);
         contentArea.setEditable(false);
@@ -189,81 +275,53 @@ class NewsAggregatorUI extends javax.swing.JFrame {
         detailFrame.add(tabbedPane);
         detailFrame.setVisible(true);
 
-        new Thread(() -> {
-            try {
-                String summary = app.summarizeArticle(article);
-                javax.swing.SwingUtilities.invokeLater(() -> summaryArea.setText(summary));
-            } catch (Exception ex) {
-                javax.swing.SwingUtilities.invokeLater(() -> summaryArea.setText("Error generating summary: " + ex.getMessage()));
-            }
-        }).start();
-
-        new Thread(() -> {
-            try {
-                String sentiment = app.analyzeArticleSentiment(article);
-                javax.swing.SwingUtilities.invokeLater(() -> {
-                    sentimentArea.setText("Sentiment Analysis: " + sentiment + "\n\nThis article has a " +
-                            sentiment.toLowerCase() + " tone.");
-                });
-            } catch (Exception ex) {
-                javax.swing.SwingUtilities.invokeLater(() -> sentimentArea.setText("Error analyzing sentiment: " + ex.getMessage()));
-            }
-        }).start();
-
-        new Thread(() -> {
-            try {
-                String relatedTopics = app.getRelatedTopics(article);
-                javax.swing.SwingUtilities.invokeLater(() -> relatedArea.setText(relatedTopics));
-            } catch (Exception ex) {
-                javax.swing.SwingUtilities.invokeLater(() -> relatedArea.setText("Error finding related topics: " + ex.getMessage()));
+        // One request answers all three tabs; closing the window stops waiting for it. While the answer
+        // streams in, a frame timer shows the newest text, so there is at most one update per frame however
+        // fast the pieces arrive.
+        java.util.concurrent.atomic.AtomicReference<String> partial = new java.util.concurrent.atomic.AtomicReference<>();
+        // Set on the EDT once OpenAI's text is showing, so a late local preview doesn't cover it
+        boolean[] answered = new boolean[1];
+        javax.swing.Timer frames = new javax.swing.Timer(16, e -> {
+            String text = partial.getAndSet(null);
+            if (text == null) return;
+            answered[0] = true;
+            AnalysisBackend.Analysis sofar = OpenAIService.parsePartial(text);
+            if (!sofar.summary.isEmpty()) summaryArea.setText(sofar.summary);
+            if (!sofar.sentiment.isEmpty()) sentimentArea.setText("Sentiment Analysis: " + sofar.sentiment);
+            if (!sofar.relatedTopics.isEmpty()) relatedArea.setText(sofar.relatedTopics);
+        });
+        frames.start();
+        java.util.concurrent.CompletableFuture<AnalysisBackend.Analysis> analysis =
+                app.analyzeArticleAsync(article, partial::set, preview -> javax.swing.SwingUtilities.invokeLater(() -> {
+                    // The local analyzer's answer, until whatever OpenAI sends replaces it
+                    if (answered[0]) return;
+                    summaryArea.setText(preview.summary + "\n\n(Quick preview, the AI summary is on its way.)");
+                    sentimentArea.setText("Sentiment Analysis: " + preview.sentiment + " (quick preview)");
+                    relatedArea.setText(preview.relatedTopics + "\n\n(Quick preview, AI suggestions are on their way.)");
+                }));
+        analysis.whenComplete((result, error) -> javax.swing.SwingUtilities.invokeLater(() -> {
+            answered[0] = true;
+            frames.stop();
+            if (analysis.isCancelled()) return;
+            if (error != null) {
+                String message = (error.getCause() != null ? error.getCause() : error).getMessage();
+                summaryArea.setText("Error generating summary: " + message);
+                sentimentArea.setText("Error analyzing sentiment: " + message);
+                relatedArea.setText("Error finding related topics: " + message);
+                return;
             }
-        }).start();
-    }
-
-    private MyList<Article> mergeSort(MyList<Article> list, String sortBy) {
-        if (list.size() <= 1) return list;
-
-        int mid = list.size() / 2;
-        MyList<Article> left = new MyList<>();
-        MyList<Article> right = new MyList<>();
-        for (int i = 0; i < mid; i++) left.add(list.get(i));
-        for (int i = mid; i < list.size(); i++) right.add(list.get(i));
-
-        left = mergeSort(left, sortBy);
-        right = mergeSort(right, sortBy);
-        return merge(left, right, sortBy);
-    }
-
-    private MyList<Article> merge(MyList<Article> left, MyList<Article> right, String sortBy) {
-        MyList<Article> merged = new MyList<>();
-        int i = 0, j = 0;
-
-        while (i < left.size() && j < right.size()) {
-            Article a = left.get(i);
-            Article b = right.get(j);
-            boolean condition = sortBy.equals("date")
-                    ? a.date.compareTo(b.date) >= 0
-                    : a.popularity >= b.popularity;
-
-            if (condition) {
-                merged.add(a);
-                i++;
-            } else {
-                merged.add(b);
-                j++;
+            summaryArea.setText(result.summary);
+            sentimentArea.setText("Sentiment Analysis: " + result.sentiment + "\n\nThis article has a " +
+                    result.sentiment.toLowerCase() + " tone.");
+            relatedArea.setText(result.relatedTopics);
+        }));
+        detailFrame.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                frames.stop();
+                analysis.cancel(true);
             }
-        }
-
-        while (i < left.size()) merged.add(left.get(i++));
-        while (j < right.size()) merged.add(right.get(j++));
-
-        return merged;
-    }
-
-    private void sortAndReload(String sortBy) {
-        MyList<Article> articles = app.getAllArticles();
-        MyList<Article> sorted = mergeSort(articles, sortBy);
-        loadArticles(sorted);
+        });
     }
 
 }
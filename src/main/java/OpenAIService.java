@@ -1,16 +1,76 @@
+import com.theokanning.openai.client.OpenAiApi;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest;
 import com.theokanning.openai.completion.chat.ChatCompletionResult;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import com.theokanning.openai.service.OpenAiService;
+import okhttp3.OkHttpClient;
+import retrofit2.Retrofit;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 // A simple helper class to talk to OpenAI and get cool stuff like summaries, sentiment, and related topics from news articles
-public class OpenAIService {
+public class OpenAIService implements AnalysisBackend {
   private final OpenAiService service;
-  private static final String MODEL = "gpt-3.5-turbo"; // Yep, we're using ChatGPT under the hood
+  static final String MODEL = "gpt-3.5-turbo"; // Yep, we're using ChatGPT under the hood
+  // Bump this whenever a prompt below changes, so cached answers to the old prompt aren't reused
+  static final String PROMPT_VERSION = "1";
+
+  // How much article (in estimated tokens) we send in one prompt. gpt-3.5-turbo reads
+  // 4k tokens including the instructions and the answer, so this leaves room for both.
+  static final int MAX_ARTICLE_TOKENS = 3000;
+  // Longer articles get cut into parts of at most this size and each part is
+  // summarized on its own (map), then the part summaries are summarized (reduce)
+  static final int CHUNK_TOKENS = 1500;
+  // How many part summaries can be on their way at once, over all articles
+  private static final int PARALLEL_CHUNKS = 4;
+  // A part may end after a sentence once it is half full, and does so after about
+  // one sentence in CUT_ODDS, picked by the sentence's hash (see chunks)
+  private static final int CUT_ODDS = 8;
+  // Completion tokens a part summary asks for, charged to the throttle with its prompt
+  private static final int CHUNK_COMPLETION_TOKENS = 120;
+  // How many recently condensed articles to remember (see condense)
+  private static final int CONDENSED_ARTICLES = 16;
+
+  // Something that makes a request wait for its share of a rate limit, e.g. RateLimiter::acquire
+  interface Throttle {
+    void acquire(int tokens) throws InterruptedException;
+  }
+
+  private int maxArticleTokens = MAX_ARTICLE_TOKENS;
+  // Where part summaries are kept, so a changed article only re-summarizes the parts that changed
+  private volatile AIResultCache chunkCache;
+  // Part summary requests wait on this first (null: send them straight away)
+  private volatile Throttle chunkThrottle;
+  // Condensed text of the last few long articles, so asking them three questions one by one
+  // condenses each only once, even without the cache
+  private final java.util.LinkedHashMap<String, String> condensed =
+      new java.util.LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(java.util.Map.Entry<String, String> eldest) {
+          return size() > CONDENSED_ARTICLES;
+        }
+      };
+  // Idle threads go away after a while, so a service that never sees a long article costs nothing
+  private final ThreadPoolExecutor chunkPool = new ThreadPoolExecutor(PARALLEL_CHUNKS, PARALLEL_CHUNKS,
+      30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+        Thread thread = new Thread(task, "ai-chunk-summaries");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  {
+    chunkPool.allowCoreThreadTimeOut(true);
+  }
 
   // When you create this service, just pass your OpenAI API key — we'll handle
   // the rest
@@ -19,12 +79,329 @@ public class OpenAIService {
     this.service = new OpenAiService(apiKey, Duration.ofSeconds(60));
   }
 
+  // Same thing, but talking to another server that speaks the chat-completions API
+  // (a proxy, or a local stand-in for trying things out), e.g. "http://localhost:8080/"
+  public OpenAIService(String apiKey, String baseUrl) {
+    OkHttpClient client = OpenAiService.defaultClient(apiKey, Duration.ofSeconds(60));
+    Retrofit retrofit = OpenAiService.defaultRetrofit(client, OpenAiService.defaultObjectMapper())
+        .newBuilder()
+        .baseUrl(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/")
+        .build();
+    this.service = new OpenAiService(retrofit.create(OpenAiApi.class));
+  }
 
+  @Override
+  public String version() {
+    return MODEL + '/' + PROMPT_VERSION;
+  }
 
+  // Keep part summaries of long articles here (null to always ask again)
+  public void setChunkCache(AIResultCache cache) {
+    this.chunkCache = cache;
+  }
+
+  // Make every part summary request of a long article wait on throttle first, so they count
+  // against the same rate limits as everything else (null to send them straight away)
+  public void setChunkThrottle(Throttle throttle) {
+    this.chunkThrottle = throttle;
+  }
+
+  // Send articles up to this many estimated tokens whole, and map-reduce longer ones
+  public void setMaxArticleTokens(int tokens) {
+    this.maxArticleTokens = Math.max(100, tokens);
+  }
 
   /**
-   * Want a quick summary of a long article? This will do it in ~30 words.
+   * About how many tokens the model will see for this text. Most English words are
+   * one token (long ones two or more) and punctuation usually gets its own, which
+   * is closer than counting characters for prose.
    */
+  static int estimateTokens(String text) {
+    int tokens = 0;
+    int word = 0;
+    for (int i = 0, n = text.length(); i <= n; i++) {
+      char c = i < n ? text.charAt(i) : ' ';
+      if (Character.isLetterOrDigit(c)) {
+        word++;
+        continue;
+      }
+      if (word > 0) tokens += 1 + word / 8;
+      word = 0;
+      if (!Character.isWhitespace(c)) tokens++;
+    }
+    return tokens;
+  }
+
+  /**
+   * Cut text into parts of at most maxTokens, between sentences (a single sentence
+   * that is too long is cut between words). Where a part ends depends only on the
+   * sentences near the cut, not on everything before it: once a part is half full
+   * it ends after any sentence whose hash says so. That way an edit only changes
+   * the part it is in (and at most the next one), and the other parts come out
+   * exactly the same, so their cached summaries still count.
+   */
+  static MyList<String> chunks(String text, int maxTokens) {
+    MyList<String> chunks = new MyList<>();
+    StringBuilder chunk = new StringBuilder();
+    int tokens = 0;
+    MyList<String> sentences = LocalAnalyzer.sentences(text);
+    for (int i = 0; i < sentences.size(); i++) {
+      String sentence = sentences.get(i);
+      int sentenceTokens = estimateTokens(sentence);
+      if (tokens > 0 && tokens + sentenceTokens > maxTokens) {
+        chunks.add(chunk.toString());
+        chunk.setLength(0);
+        tokens = 0;
+      }
+      if (sentenceTokens > maxTokens) {
+        // Too long for any part: fill parts word by word
+        for (String word : sentence.split("\\s+")) {
+          int wordTokens = estimateTokens(word);
+          if (tokens > 0 && tokens + wordTokens > maxTokens) {
+            chunks.add(chunk.toString());
+            chunk.setLength(0);
+            tokens = 0;
+          }
+          if (chunk.length() > 0) chunk.append(' ');
+          chunk.append(word);
+          tokens += wordTokens;
+        }
+        continue;
+      }
+      if (chunk.length() > 0) chunk.append(' ');
+      chunk.append(sentence);
+      tokens += sentenceTokens;
+      if (tokens >= maxTokens / 2 && Math.floorMod(sentence.hashCode(), CUT_ODDS) == 0) {
+        chunks.add(chunk.toString());
+        chunk.setLength(0);
+        tokens = 0;
+      }
+    }
+    if (chunk.length() > 0) chunks.add(chunk.toString());
+    return chunks;
+  }
+
+  // The article if it fits in a prompt; otherwise summaries of its parts, in order
+  // (and summaries of those for really long articles) until they fit
+  private String condense(String content) {
+    if (estimateTokens(content) <= maxArticleTokens) return content;
+    synchronized (condensed) {
+      String known = condensed.get(content);
+      if (known != null) return known;
+    }
+    String text = content;
+    while (estimateTokens(text) > maxArticleTokens) {
+      String shorter = String.join("\n\n", summarizeChunks(chunks(text, Math.min(CHUNK_TOKENS, maxArticleTokens))));
+      if (shorter.length() >= text.length()) break; // Summaries that don't get shorter won't help
+      text = shorter;
+    }
+    synchronized (condensed) {
+      condensed.put(content, text);
+    }
+    return text;
+  }
+
+  // Summaries of all parts, cached ones straight away and the rest in parallel
+  private List<String> summarizeChunks(MyList<String> chunks) {
+    AIResultCache cache = chunkCache;
+    String[] summaries = new String[chunks.size()];
+    List<Future<String>> pending = new ArrayList<>();
+    for (int i = 0; i < chunks.size(); i++) {
+      String chunk = chunks.get(i);
+      String key = AIResultCache.key(chunk, "chunk-summary", version());
+      summaries[i] = cache == null ? null : cache.get(key);
+      Throttle throttle = chunkThrottle;
+      pending.add(summaries[i] != null ? null : chunkPool.submit(() -> {
+        if (throttle != null) throttle.acquire(estimateTokens(chunk) + 50 + CHUNK_COMPLETION_TOKENS);
+        String summary = summarizeChunk(chunk);
+        if (cache != null) cache.put(key, summary);
+        return summary;
+      }));
+    }
+    try {
+      for (int i = 0; i < summaries.length; i++) {
+        if (pending.get(i) != null) summaries[i] = pending.get(i).get();
+      }
+    } catch (InterruptedException e) {
+      // Nobody is waiting for this summary anymore, so stop the other parts too
+      cancelAll(pending);
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Summary cancelled");
+    } catch (ExecutionException e) {
+      cancelAll(pending);
+      if (e.getCause() instanceof InterruptedException) throw new CancellationException("Summary cancelled");
+      if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+      throw new RuntimeException(e.getCause());
+    }
+    List<String> result = new ArrayList<>();
+    for (String summary : summaries) result.add(summary);
+    return result;
+  }
+
+  private static void cancelAll(List<Future<String>> futures) {
+    for (Future<String> future : futures) {
+      if (future != null) future.cancel(true);
+    }
+  }
+
+  // The map step: one part of a long article, keeping what the final summary may need
+  private String summarizeChunk(String chunk) {
+    List<ChatMessage> messages = new ArrayList<>();
+    messages.add(new ChatMessage("system",
+        "You are a helpful assistant that summarizes news articles concisely."));
+    messages.add(new ChatMessage("user",
+        "Please summarize this part of a longer news article in 60 words, keeping the names, numbers and claims: "
+            + chunk));
+
+    ChatCompletionRequest request = ChatCompletionRequest.builder()
+        .model(MODEL)
+        .messages(messages)
+        .maxTokens(CHUNK_COMPLETION_TOKENS) // About 60 words
+        .temperature(0.3) // Stick to what the part says
+        .build();
+
+    return service.createChatCompletion(request).getChoices().get(0).getMessage().getContent().trim();
+  }
+
+  /**
+   * Summary, sentiment and related topics in one go. The article is only sent
+   * once, instead of once per question like the three methods below, so this
+   * costs a third of the round trips and roughly a third of the prompt tokens.
+   *
+   * @throws IllegalArgumentException if the answer doesn't come back in the
+   *                                  format we asked for (then use the separate methods)
+   */
+  @Override
+  public Analysis analyzeArticle(String content) {
+    ChatCompletionResult result = service.createChatCompletion(analysisRequest(content));
+    return parseAnalysis(result.getChoices().get(0).getMessage().getContent());
+  }
+
+  /**
+   * Same as analyzeArticle, but the answer is streamed: onText gets the reply so far
+   * every time another piece arrives (first one usually within a few hundred ms),
+   * long before the whole thing is done. Use parsePartial to split it up.
+   *
+   * @param onText Called on the calling thread with the full reply text so far
+   * @throws IllegalArgumentException if the finished answer isn't in the format we asked for
+   */
+  @Override
+  public Analysis streamAnalysis(String content, Consumer<String> onText) {
+    StringBuilder reply = new StringBuilder();
+    service.streamChatCompletion(analysisRequest(content)).blockingForEach(chunk -> {
+      if (chunk.getChoices() == null || chunk.getChoices().isEmpty()) return;
+      // The first piece usually only says who is talking; skip anything without text
+      ChatMessage delta = chunk.getChoices().get(0).getMessage();
+      if (delta == null || delta.getContent() == null || delta.getContent().isEmpty()) return;
+      reply.append(delta.getContent());
+      onText.accept(reply.toString());
+    });
+    return parseAnalysis(reply.toString());
+  }
+
+  // The combined question, shared by the normal and the streaming version
+  private ChatCompletionRequest analysisRequest(String content) {
+    String text = condense(content);
+    List<ChatMessage> messages = new ArrayList<>();
+
+    messages.add(new ChatMessage("system",
+        "You are a news analysis assistant. Always answer in exactly the format you are given."));
+
+    // One labelled line per answer, so the reply is easy to pull apart
+    messages.add(new ChatMessage("user",
+        "Analyze the following news article. Answer in exactly this format and nothing else:\n"
+            + "SUMMARY: <summary of the article in 30 words>\n"
+            + "SENTIMENT: <one word: positive, negative, or neutral>\n"
+            + "TOPICS: <5 related topics or keywords, comma separated>\n\n"
+            + (text == content ? "Article: " : "Article (long, so given as summaries of its parts in order): ")
+            + text));
+
+    return ChatCompletionRequest.builder()
+        .model(MODEL)
+        .messages(messages)
+        .maxTokens(260) // Room for all three answers together
+        .temperature(0.5) // Somewhere between the summary and the sentiment settings
+        .build();
+  }
+
+  // Pull the three labelled answers out of a combined reply. Labels may be in any
+  // case and wrapped in markdown, and an answer may run over several lines.
+  static Analysis parseAnalysis(String reply) {
+    StringBuilder[] answers = sections(reply, false);
+    for (StringBuilder answer : answers) {
+      if (answer == null || answer.length() == 0) {
+        throw new IllegalArgumentException("Combined answer is missing a section: " + reply);
+      }
+    }
+    // Just the word, like analyzeSentiment gives
+    String sentiment = answers[1].toString().split("[\\s.,;!]+")[0];
+    return new Analysis(answers[0].toString(), sentiment, answers[2].toString());
+  }
+
+  // What a reply that is still streaming in says so far; sections that haven't
+  // started yet are empty
+  static Analysis parsePartial(String reply) {
+    StringBuilder[] answers = sections(reply, true);
+    String[] texts = new String[3];
+    for (int i = 0; i < 3; i++) texts[i] = answers[i] == null ? "" : answers[i].toString();
+    return new Analysis(texts[0], texts[1], texts[2]);
+  }
+
+  // Summary, sentiment and topics text (null where missing). With partial set, an
+  // unfinished last line that could still turn into a label is left out, so it
+  // doesn't flash up at the end of the previous section.
+  private static StringBuilder[] sections(String reply, boolean partial) {
+    StringBuilder[] answers = new StringBuilder[3];
+    int current = -1;
+    String[] lines = reply.split("\\r?\\n", -1);
+    for (int i = 0; i < lines.length; i++) {
+      String line = lines[i];
+      String plain = line.replaceAll("^[\\s*#>_-]+", "");
+      if (partial && i == lines.length - 1 && plain.indexOf(':') < 0 && couldBeLabel(plain)) break;
+      int colon = plain.indexOf(':');
+      int label = colon < 0 ? -1 : label(plain.substring(0, colon).replace("*", "").trim());
+      if (label >= 0) {
+        current = label;
+        answers[current] = new StringBuilder(plain.substring(colon + 1).replace("**", "").trim());
+      } else if (current >= 0 && !line.trim().isEmpty()) {
+        if (answers[current].length() > 0) answers[current].append('\n');
+        answers[current].append(line.trim());
+      }
+    }
+    return answers;
+  }
+
+  private static boolean couldBeLabel(String start) {
+    String text = start.replace("*", "").trim().toLowerCase(Locale.ROOT);
+    for (String label : new String[]{"summary", "sentiment", "topics", "related topics"}) {
+      if (label.startsWith(text)) return true;
+    }
+    return false;
+  }
+
+  private static int label(String name) {
+    switch (name.toLowerCase(Locale.ROOT)) {
+      case "summary":
+        return 0;
+      case "sentiment":
+        return 1;
+      case "topics":
+      case "related topics":
+        return 2;
+      default:
+        return -1;
+    }
+  }
+
+
+
+
+  /**
+   * Want a quick summary of a long article? This will do it in ~30 words. Articles
+   * too long for one prompt are summarized part by part first (see chunks), and the
+   * final summary is made from those.
+   */
+  @Override
   public String summarizeArticle(String content) {
     List<ChatMessage> messages = new ArrayList<>();
 
@@ -32,9 +409,12 @@ public class OpenAIService {
     messages.add(new ChatMessage("system",
         "You are a helpful assistant that summarizes news articles concisely."));
 
-    // Now feed it the actual article and ask for a summary
-    messages.add(new ChatMessage("user",
-        "Please summarize the following news article in 30 words: " + content));
+    // Now feed it the actual article (or its part summaries) and ask for a summary
+    String text = condense(content);
+    messages.add(new ChatMessage("user", text == content
+        ? "Please summarize the following news article in 30 words: " + content
+        : "Please summarize the news article these notes are about in 30 words. They summarize its parts, in order:\n\n"
+            + text));
 
     // Build the chat request with the model + how creative we want it to be
     ChatCompletionRequest request = ChatCompletionRequest.builder()
@@ -55,6 +435,7 @@ public class OpenAIService {
    * Need to know how a news article "feels"? This tells you if it's positive,
    * negative, or neutral — in one word.
    */
+  @Override
   public String analyzeSentiment(String content) {
     List<ChatMessage> messages = new ArrayList<>();
 
@@ -65,7 +446,7 @@ public class OpenAIService {
     // Ask it to be short and sweet — just one word
     messages.add(new ChatMessage("user",
         "Analyze the sentiment of this news article and respond with only one word: positive, negative, or neutral: "
-            + content));
+            + condense(content)));
 
     ChatCompletionRequest request = ChatCompletionRequest.builder()
         .model(MODEL)
@@ -84,6 +465,7 @@ public class OpenAIService {
    * This one gives you some related topics or keywords for an article — great for
    * tagging or recommendations.
    */
+  @Override
   public String suggestRelatedTopics(String content) {
     List<ChatMessage> messages = new ArrayList<>();
 
@@ -93,7 +475,7 @@ public class OpenAIService {
 
     // Ask for 5 related topics/keywords — nice and straightforward
     messages.add(new ChatMessage("user",
-        "Based on this news article, suggest 5 related topics or keywords: " + content));
+        "Based on this news article, suggest 5 related topics or keywords: " + condense(content)));
 
     ChatCompletionRequest request = ChatCompletionRequest.builder()
         .model(MODEL)
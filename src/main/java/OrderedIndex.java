@@ -0,0 +1,205 @@
+// Article ids sorted by a long key: publication time (epoch seconds) for date ranges, "latest N" and the
+// newest-first view, or popularity for the most-popular view.
+//
+// Entries are (key, id) pairs kept in order across a directory of sorted blocks of up to BLOCK_SIZE
+// entries, a flat B-tree of height one. Finding a position is a binary search over the blocks' first entries
+// and then within one block; an insert or removal shifts at most one block plus one slot of the directory,
+// so updates stay cheap at millions of articles and reads never need a full scan. Ties on the key are broken
+// by id, which makes every entry unique.
+class OrderedIndex {
+    static final int BLOCK_SIZE = 512;
+
+    private static class Block {
+        final long[] keys = new long[BLOCK_SIZE];
+        final int[] ids = new int[BLOCK_SIZE];
+        int size;
+    }
+
+    private Block[] blocks = new Block[8];
+    private int blockCount;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public void add(int articleId, long key) {
+        if (blockCount == 0) {
+            blocks[0] = new Block();
+            blockCount = 1;
+        }
+        int b = Math.max(0, findBlock(key, articleId));
+        Block block = blocks[b];
+        int pos = search(block, key, articleId);
+        if (pos >= 0) return; // already indexed
+        pos = -pos - 1;
+        if (block.size == BLOCK_SIZE) {
+            // Split the full block in half and insert into whichever half the entry belongs to
+            Block upper = new Block();
+            int half = BLOCK_SIZE / 2;
+            System.arraycopy(block.keys, half, upper.keys, 0, BLOCK_SIZE - half);
+            System.arraycopy(block.ids, half, upper.ids, 0, BLOCK_SIZE - half);
+            upper.size = BLOCK_SIZE - half;
+            block.size = half;
+            insertBlock(b + 1, upper);
+            if (pos > half) {
+                block = upper;
+                pos -= half;
+            }
+        }
+        System.arraycopy(block.keys, pos, block.keys, pos + 1, block.size - pos);
+        System.arraycopy(block.ids, pos, block.ids, pos + 1, block.size - pos);
+        block.keys[pos] = key;
+        block.ids[pos] = articleId;
+        block.size++;
+        size++;
+    }
+
+    // Remove an entry; the key must be the one it was added with
+    public boolean remove(int articleId, long key) {
+        int b = findBlock(key, articleId);
+        if (b < 0) return false;
+        Block block = blocks[b];
+        int pos = search(block, key, articleId);
+        if (pos < 0) return false;
+        System.arraycopy(block.keys, pos + 1, block.keys, pos, block.size - pos - 1);
+        System.arraycopy(block.ids, pos + 1, block.ids, pos, block.size - pos - 1);
+        block.size--;
+        size--;
+        if (block.size == 0) {
+            System.arraycopy(blocks, b + 1, blocks, b, blockCount - b - 1);
+            blocks[--blockCount] = null;
+        }
+        return true;
+    }
+
+    // Ids with keys in [fromKey, toKey), in ascending order
+    public IntList between(long fromKey, long toKey) {
+        IntList result = new IntList();
+        Cursor cursor = ascending(fromKey);
+        for (int id = cursor.next(); id >= 0 && cursor.key() < toKey; id = cursor.next()) result.add(id);
+        return result;
+    }
+
+    // The n ids with the highest keys, highest first
+    public IntList latest(int n) {
+        IntList result = new IntList(Math.max(0, Math.min(n, size)));
+        Cursor cursor = descending(Long.MAX_VALUE);
+        for (int id = cursor.next(); id >= 0 && result.size() < n; id = cursor.next()) result.add(id);
+        return result;
+    }
+
+    // Walks entries with key >= fromKey, in ascending order
+    public Cursor ascending(long fromKey) {
+        int b = findBlock(fromKey, Integer.MIN_VALUE);
+        if (b < 0) return new Cursor(0, 0, true);
+        int pos = -search(blocks[b], fromKey, Integer.MIN_VALUE) - 1;
+        return new Cursor(b, pos, true);
+    }
+
+    // Walks entries with key < toKey, in descending order
+    public Cursor descending(long toKey) {
+        return descending(toKey, Integer.MIN_VALUE);
+    }
+
+    // Walks entries that sort strictly before (key, id), in descending order; used to resume a page
+    public Cursor descending(long key, int id) {
+        int b = findBlock(key, id);
+        if (b < 0) return new Cursor(-1, -1, false);
+        int pos = search(blocks[b], key, id);
+        pos = pos >= 0 ? pos : -pos - 1;
+        return new Cursor(b, pos - 1, false);
+    }
+
+    // Walks entries in descending order starting at the rank-th highest (rank 0 is the highest). Skips whole
+    // blocks, so this is proportional to the number of blocks, not entries.
+    public Cursor descendingFromRank(int rank) {
+        int remaining = rank;
+        for (int b = blockCount - 1; b >= 0; b--) {
+            if (remaining < blocks[b].size) return new Cursor(b, blocks[b].size - 1 - remaining, false);
+            remaining -= blocks[b].size;
+        }
+        return new Cursor(-1, -1, false);
+    }
+
+    // Position in key order; next() moves one entry and returns its id, or -1 past the end
+    class Cursor {
+        private int block;
+        private int pos;
+        private final boolean forward;
+        private boolean started;
+        private long key;
+
+        private Cursor(int block, int pos, boolean forward) {
+            this.block = block;
+            this.pos = pos;
+            this.forward = forward;
+        }
+
+        public int next() {
+            if (started) pos += forward ? 1 : -1;
+            started = true;
+            if (forward) {
+                while (block < blockCount && pos >= blocks[block].size) {
+                    block++;
+                    pos = 0;
+                }
+                if (block >= blockCount) return -1;
+            } else {
+                while (block >= 0 && pos < 0) {
+                    block--;
+                    if (block >= 0) pos = blocks[block].size - 1;
+                }
+                if (block < 0) return -1;
+            }
+            key = blocks[block].keys[pos];
+            return blocks[block].ids[pos];
+        }
+
+        // Key of the entry last returned by next()
+        public long key() {
+            return key;
+        }
+    }
+
+    // Last block whose first entry is <= (key, id), or -1 if the entry sorts before everything
+    private int findBlock(long key, int id) {
+        int lo = 0, hi = blockCount - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            Block block = blocks[mid];
+            if (compare(block.keys[0], block.ids[0], key, id) <= 0) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    // Index of (key, id) in the block, or -(insertion point) - 1
+    private static int search(Block block, long key, int id) {
+        int lo = 0, hi = block.size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compare(block.keys[mid], block.ids[mid], key, id);
+            if (c < 0) lo = mid + 1;
+            else if (c > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -lo - 1;
+    }
+
+    private static int compare(long key1, int id1, long key2, int id2) {
+        int c = Long.compare(key1, key2);
+        return c != 0 ? c : Integer.compare(id1, id2);
+    }
+
+    private void insertBlock(int index, Block block) {
+        if (blockCount == blocks.length) blocks = java.util.Arrays.copyOf(blocks, blockCount * 2);
+        System.arraycopy(blocks, index, blocks, index + 1, blockCount - index);
+        blocks[index] = block;
+        blockCount++;
+    }
+}
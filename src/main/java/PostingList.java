@@ -0,0 +1,333 @@
+// Sorted, compressed list of article ids for one keyword.
+// Ids are grouped into blocks of up to BLOCK_SIZE; each block keeps its first and last id uncompressed
+// (the skip data) and the remaining ids as varint-encoded gaps. Appending increasing ids, which is what
+// sequential id assignment produces, only touches the tail block; out-of-order adds and removals re-encode
+// a single block.
+class PostingList {
+    static final int BLOCK_SIZE = 128;
+
+    private int[] blockFirst = new int[4];
+    private int[] blockLast = new int[4];
+    private int[] blockCount = new int[4];
+    private byte[][] blockData = new byte[4][];
+    private int[] blockBytes = new int[4];
+    private int blocks;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Number of bytes used by the compressed gaps, for diagnostics
+    public long compressedBytes() {
+        long total = 0;
+        for (int b = 0; b < blocks; b++) total += blockBytes[b] + 8;
+        return total;
+    }
+
+    // Add an id; returns false if it was already present
+    public boolean add(int id) {
+        if (id < 0) throw new IllegalArgumentException("Negative id: " + id);
+        if (blocks == 0 || id > blockLast[blocks - 1]) {
+            append(id);
+            return true;
+        }
+        int b = findBlock(id);
+        if (b < 0) b = 0;
+        int[] ids = decodeBlock(b);
+        int pos = java.util.Arrays.binarySearch(ids, id);
+        if (pos >= 0) return false;
+        pos = -pos - 1;
+        int[] grown = new int[ids.length + 1];
+        System.arraycopy(ids, 0, grown, 0, pos);
+        grown[pos] = id;
+        System.arraycopy(ids, pos, grown, pos + 1, ids.length - pos);
+        size++;
+        if (grown.length > 2 * BLOCK_SIZE) {
+            int half = grown.length / 2;
+            encodeBlock(b, grown, 0, half);
+            insertBlockSlot(b + 1);
+            encodeBlock(b + 1, grown, half, grown.length);
+        } else {
+            encodeBlock(b, grown, 0, grown.length);
+        }
+        return true;
+    }
+
+    // Remove an id; returns false if it was not present
+    public boolean remove(int id) {
+        int b = findBlock(id);
+        if (b < 0 || id > blockLast[b]) return false;
+        int[] ids = decodeBlock(b);
+        int pos = java.util.Arrays.binarySearch(ids, id);
+        if (pos < 0) return false;
+        size--;
+        if (ids.length == 1) {
+            removeBlockSlot(b);
+            return true;
+        }
+        int[] shrunk = new int[ids.length - 1];
+        System.arraycopy(ids, 0, shrunk, 0, pos);
+        System.arraycopy(ids, pos + 1, shrunk, pos, ids.length - pos - 1);
+        encodeBlock(b, shrunk, 0, shrunk.length);
+        return true;
+    }
+
+    public boolean contains(int id) {
+        int b = findBlock(id);
+        if (b < 0 || id > blockLast[b]) return false;
+        DocIdCursor cursor = cursor();
+        return cursor.advance(id) == id;
+    }
+
+    // All ids in ascending order
+    public IntList toIntList() {
+        IntList result = new IntList(size);
+        DocIdCursor cursor = cursor();
+        for (int id = cursor.nextDoc(); id != DocIdCursor.NO_MORE_DOCS; id = cursor.nextDoc()) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    // Ids as a count followed by varint gaps
+    void writeTo(java.io.DataOutputStream out) throws java.io.IOException {
+        IndexSnapshot.writeVarint(out, size);
+        int previous = 0;
+        DocIdCursor cursor = cursor();
+        for (int id = cursor.nextDoc(); id != DocIdCursor.NO_MORE_DOCS; id = cursor.nextDoc()) {
+            IndexSnapshot.writeVarint(out, id - previous);
+            previous = id;
+        }
+    }
+
+    static PostingList readFrom(java.nio.ByteBuffer in) {
+        PostingList list = new PostingList();
+        int count = IndexSnapshot.readVarint(in);
+        int id = 0;
+        for (int i = 0; i < count; i++) {
+            id += IndexSnapshot.readVarint(in);
+            list.append(id);
+        }
+        return list;
+    }
+
+    public DocIdCursor cursor() {
+        return new Cursor();
+    }
+
+    // Index of the last block whose first id is <= id, or -1
+    private int findBlock(int id) {
+        int lo = 0, hi = blocks - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (blockFirst[mid] <= id) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private void append(int id) {
+        int b = blocks - 1;
+        if (b < 0 || blockCount[b] >= BLOCK_SIZE) {
+            insertBlockSlot(blocks);
+            b = blocks - 1;
+            blockFirst[b] = id;
+            blockLast[b] = id;
+            blockCount[b] = 1;
+            blockData[b] = new byte[16];
+            blockBytes[b] = 0;
+        } else {
+            int gap = id - blockLast[b];
+            byte[] data = blockData[b];
+            if (blockBytes[b] + 5 > data.length) {
+                data = java.util.Arrays.copyOf(data, Math.max(data.length * 2, blockBytes[b] + 5));
+                blockData[b] = data;
+            }
+            blockBytes[b] = writeVarint(data, blockBytes[b], gap);
+            blockLast[b] = id;
+            blockCount[b]++;
+        }
+        size++;
+    }
+
+    private int[] decodeBlock(int b) {
+        int[] ids = new int[blockCount[b]];
+        byte[] data = blockData[b];
+        int id = blockFirst[b];
+        ids[0] = id;
+        int pos = 0;
+        for (int i = 1; i < ids.length; i++) {
+            int gap = 0, shift = 0;
+            byte x;
+            do {
+                x = data[pos++];
+                gap |= (x & 0x7F) << shift;
+                shift += 7;
+            } while (x < 0);
+            id += gap;
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    private void encodeBlock(int b, int[] ids, int from, int to) {
+        byte[] data = new byte[Math.max(16, (to - from) * 5)];
+        int pos = 0;
+        for (int i = from + 1; i < to; i++) {
+            pos = writeVarint(data, pos, ids[i] - ids[i - 1]);
+        }
+        blockFirst[b] = ids[from];
+        blockLast[b] = ids[to - 1];
+        blockCount[b] = to - from;
+        blockData[b] = java.util.Arrays.copyOf(data, Math.max(pos, 16));
+        blockBytes[b] = pos;
+    }
+
+    private static int writeVarint(byte[] data, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            data[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[pos++] = (byte) value;
+        return pos;
+    }
+
+    private void insertBlockSlot(int at) {
+        if (blocks == blockFirst.length) {
+            int cap = blocks * 2;
+            blockFirst = java.util.Arrays.copyOf(blockFirst, cap);
+            blockLast = java.util.Arrays.copyOf(blockLast, cap);
+            blockCount = java.util.Arrays.copyOf(blockCount, cap);
+            blockData = java.util.Arrays.copyOf(blockData, cap);
+            blockBytes = java.util.Arrays.copyOf(blockBytes, cap);
+        }
+        int tail = blocks - at;
+        System.arraycopy(blockFirst, at, blockFirst, at + 1, tail);
+        System.arraycopy(blockLast, at, blockLast, at + 1, tail);
+        System.arraycopy(blockCount, at, blockCount, at + 1, tail);
+        System.arraycopy(blockData, at, blockData, at + 1, tail);
+        System.arraycopy(blockBytes, at, blockBytes, at + 1, tail);
+        blocks++;
+    }
+
+    private void removeBlockSlot(int at) {
+        int tail = blocks - at - 1;
+        System.arraycopy(blockFirst, at + 1, blockFirst, at, tail);
+        System.arraycopy(blockLast, at + 1, blockLast, at, tail);
+        System.arraycopy(blockCount, at + 1, blockCount, at, tail);
+        System.arraycopy(blockData, at + 1, blockData, at, tail);
+        System.arraycopy(blockBytes, at + 1, blockBytes, at, tail);
+        blocks--;
+        blockData[blocks] = null;
+    }
+
+    // Decodes the current block lazily into a scratch buffer; advance() gallops over the block skip data
+    // and only decodes the gaps of the one block that can contain the target, up to the target
+    private class Cursor implements DocIdCursor {
+        private int[] buffer = new int[2 * BLOCK_SIZE];
+        private int block = -1;
+        private int count;       // ids in the current block
+        private int decoded;     // ids of the current block decoded into buffer so far
+        private int pos;         // byte offset of the next undecoded gap
+        private int index;       // position of doc in buffer
+        private int doc = -1;
+
+        @Override
+        public int docId() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+            if (doc == NO_MORE_DOCS) return doc;
+            if (++index < decoded) return doc = buffer[index];
+            if (decoded < count) return doc = decodeNext();
+            return enterBlock(block + 1);
+        }
+
+        @Override
+        public int advance(int target) {
+            if (doc >= target) return doc;
+            if (block < 0 || block >= blocks || blockLast[block] < target) {
+                if (enterBlock(gallopBlocks(block + 1, target)) >= target) return doc;
+            }
+            // The current block's last id is >= target, so the answer is inside it
+            if (buffer[decoded - 1] >= target) {
+                int lo = index + 1, hi = decoded - 1;
+                while (lo <= hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (buffer[mid] < target) lo = mid + 1;
+                    else hi = mid - 1;
+                }
+                index = lo;
+                return doc = buffer[lo];
+            }
+            int id;
+            do {
+                id = decodeNext();
+            } while (id < target);
+            index = decoded - 1;
+            return doc = id;
+        }
+
+        @Override
+        public long cost() {
+            return size;
+        }
+
+        private int decodeNext() {
+            byte[] data = blockData[block];
+            int gap = 0, shift = 0;
+            byte x;
+            do {
+                x = data[pos++];
+                gap |= (x & 0x7F) << shift;
+                shift += 7;
+            } while (x < 0);
+            int id = buffer[decoded - 1] + gap;
+            buffer[decoded++] = id;
+            return id;
+        }
+
+        private int enterBlock(int b) {
+            block = b;
+            index = 0;
+            pos = 0;
+            if (b >= blocks) {
+                count = decoded = 0;
+                return doc = NO_MORE_DOCS;
+            }
+            count = blockCount[b];
+            if (buffer.length < count) buffer = new int[count];
+            buffer[0] = blockFirst[b];
+            decoded = 1;
+            return doc = buffer[0];
+        }
+
+        // First block at or after from whose last id is >= target, found by exponential then binary search
+        private int gallopBlocks(int from, int target) {
+            int step = 1, lo = from, hi = from;
+            while (hi < blocks && blockLast[hi] < target) {
+                lo = hi + 1;
+                hi = from + step;
+                step <<= 1;
+            }
+            if (hi >= blocks) hi = blocks - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (blockLast[mid] < target) lo = mid + 1;
+                else hi = mid - 1;
+            }
+            return lo;
+        }
+    }
+}
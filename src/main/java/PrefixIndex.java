@@ -0,0 +1,291 @@
+import java.nio.charset.StandardCharsets;
+
+// Prefix index for autocomplete: which keys start with a prefix, best scores first.
+//
+// Keys are stored sorted as UTF-8 and front-coded in blocks of BLOCK_SIZE: the first key of a block is stored
+// whole, every other key as (bytes shared with the previous key, remaining bytes), both varints. That keeps
+// millions of keys in a single byte array with no per-key objects. A prefix maps to a contiguous range of keys,
+// found by binary search over the block heads plus a scan of one block. The top-n scores in that range come
+// from a best-first walk over a max-tree built on per-block maximum scores, so a query touches O(n log blocks)
+// tree nodes and a few blocks, however many keys share the prefix.
+//
+// Each key carries an int score (higher is better) and an int payload that the caller maps back to what the
+// key stands for. Scores can be changed in place with setScore, which only touches the key's block maximum
+// and its path up the max-tree; build a new index to add or remove keys.
+class PrefixIndex {
+    static final int BLOCK_SIZE = 16;
+    static final PrefixIndex EMPTY = build(new String[0], new int[0], new int[0], 0);
+
+    private final byte[] data;
+    private final int[] blockOffsets;
+    private final int size;
+    private final int[] scores;
+    private final int[] payloads;
+    private final int[] tree;      // max-tree over block maxima; leaves start at leafBase
+    private final int leafBase;
+    // Key index by payload, built by the first setScore
+    private IntIntMap indexByPayload;
+
+    private PrefixIndex(byte[] data, int[] blockOffsets, int size, int[] scores, int[] payloads) {
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+        this.size = size;
+        this.scores = scores;
+        this.payloads = payloads;
+        int blocks = blockOffsets.length;
+        int base = 1;
+        while (base < blocks) base <<= 1;
+        leafBase = base;
+        tree = new int[2 * base];
+        java.util.Arrays.fill(tree, Integer.MIN_VALUE);
+        for (int b = 0; b < blocks; b++) {
+            int max = Integer.MIN_VALUE;
+            for (int i = b * BLOCK_SIZE; i < Math.min(size, (b + 1) * BLOCK_SIZE); i++) max = Math.max(max, scores[i]);
+            tree[base + b] = max;
+        }
+        for (int node = base - 1; node >= 1; node--) tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+    }
+
+    /**
+     * Build an index from the first count keys. When a key occurs more than once, the occurrence with the
+     * highest score is kept.
+     */
+    static PrefixIndex build(String[] keys, int[] scores, int[] payloads, int count) {
+        byte[][] encoded = new byte[count][];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            encoded[i] = keys[i].getBytes(StandardCharsets.UTF_8);
+            order[i] = i;
+        }
+        java.util.Arrays.sort(order, (a, b) -> {
+            int c = java.util.Arrays.compareUnsigned(encoded[a], encoded[b]);
+            return c != 0 ? c : Integer.compare(scores[b], scores[a]);
+        });
+
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        IntList offsets = new IntList();
+        int[] sortedScores = new int[count];
+        int[] sortedPayloads = new int[count];
+        int size = 0;
+        byte[] previous = null;
+        for (int k = 0; k < count; k++) {
+            byte[] key = encoded[order[k]];
+            if (previous != null && java.util.Arrays.equals(previous, key)) continue; // best score came first
+            int shared = 0;
+            if (size % BLOCK_SIZE == 0) {
+                offsets.add(out.size());
+            } else {
+                int max = Math.min(previous.length, key.length);
+                while (shared < max && previous[shared] == key[shared]) shared++;
+            }
+            writeVarint(out, shared);
+            writeVarint(out, key.length - shared);
+            out.write(key, shared, key.length - shared);
+            sortedScores[size] = scores[order[k]];
+            sortedPayloads[size] = payloads[order[k]];
+            size++;
+            previous = key;
+        }
+        return new PrefixIndex(out.toByteArray(), offsets.toArray(), size,
+                java.util.Arrays.copyOf(sortedScores, size), java.util.Arrays.copyOf(sortedPayloads, size));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Bytes used by the keys, scores, payloads and tree
+    public long memoryBytes() {
+        return data.length + 4L * (blockOffsets.length + scores.length + payloads.length + tree.length);
+    }
+
+    /**
+     * Change the score of the key with the given payload. Lookups running at the same time may still rank it
+     * by its old score.
+     *
+     * @return false if no key has that payload (including duplicate keys dropped by build)
+     */
+    public synchronized boolean setScore(int payload, int score) {
+        if (indexByPayload == null) {
+            indexByPayload = new IntIntMap(size);
+            for (int i = 0; i < size; i++) indexByPayload.put(payloads[i], i);
+        }
+        int index = indexByPayload.get(payload, -1);
+        if (index < 0) return false;
+        if (scores[index] == score) return true;
+        scores[index] = score;
+        int block = index / BLOCK_SIZE;
+        int max = Integer.MIN_VALUE;
+        for (int i = block * BLOCK_SIZE; i < Math.min(size, (block + 1) * BLOCK_SIZE); i++) max = Math.max(max, scores[i]);
+        int node = leafBase + block;
+        tree[node] = max;
+        for (node >>= 1; node >= 1; node >>= 1) tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        return true;
+    }
+
+    /**
+     * Payloads of the keys starting with prefix that have the highest scores, best first.
+     *
+     * @param prefix The typed prefix, normalized the same way as the keys
+     * @param n Maximum number of completions
+     * @return Up to n payloads
+     */
+    public IntList complete(String prefix, int n) {
+        IntList result = new IntList(Math.max(1, n));
+        if (size == 0 || n <= 0) return result;
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        int lo = lowerBound(key, false);
+        int hi = lowerBound(key, true);
+        if (lo >= hi) return result;
+
+        // Candidates are tree nodes (worth their subtree's best score) or single keys, in a max-heap of
+        // (score << 32 | kind << 31 | index); partial blocks at the ends of the range go in key by key
+        long[] heap = new long[64];
+        int heapSize = 0;
+        int firstBlock = lo / BLOCK_SIZE, lastBlock = (hi - 1) / BLOCK_SIZE;
+        for (int i = lo; i < Math.min(hi, (firstBlock + 1) * BLOCK_SIZE); i++) heapSize = push(heap = grow(heap, heapSize), heapSize, entry(i));
+        if (lastBlock > firstBlock) {
+            for (int i = lastBlock * BLOCK_SIZE; i < hi; i++) heapSize = push(heap = grow(heap, heapSize), heapSize, entry(i));
+        }
+        // Whole blocks in between, as the canonical nodes of the tree range
+        int left = leafBase + firstBlock + 1, right = leafBase + lastBlock - 1;
+        while (left <= right) {
+            if ((left & 1) == 1) heapSize = push(heap = grow(heap, heapSize), heapSize, node(left++));
+            if ((right & 1) == 0) heapSize = push(heap = grow(heap, heapSize), heapSize, node(right--));
+            left >>= 1;
+            right >>= 1;
+        }
+
+        while (heapSize > 0 && result.size() < n) {
+            long top = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize, 0);
+            int index = (int) (top & 0x7FFFFFFF);
+            if ((top & 0x80000000L) != 0) {
+                result.add(payloads[index]);
+            } else if (index >= leafBase) {
+                int block = index - leafBase;
+                for (int i = block * BLOCK_SIZE; i < Math.min(size, (block + 1) * BLOCK_SIZE); i++) {
+                    heapSize = push(heap = grow(heap, heapSize), heapSize, entry(i));
+                }
+            } else {
+                heapSize = push(heap = grow(heap, heapSize), heapSize, node(2 * index));
+                heapSize = push(heap = grow(heap, heapSize), heapSize, node(2 * index + 1));
+            }
+        }
+        return result;
+    }
+
+    // Index of the first key >= prefix, or with upper set, of the first key > every key starting with prefix
+    private int lowerBound(byte[] prefix, boolean upper) {
+        int lo = 0, hi = blockOffsets.length - 1, block = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareHead(mid, prefix, upper) < 0) {
+                block = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        // Scan the block; keys are rebuilt into a scratch buffer one after another
+        byte[] current = new byte[64];
+        int pos = blockOffsets[block];
+        int length = 0;
+        for (int i = block * BLOCK_SIZE; i < Math.min(size, (block + 1) * BLOCK_SIZE); i++) {
+            int shared = readVarint(pos);
+            pos = skipVarint(pos);
+            int suffix = readVarint(pos);
+            pos = skipVarint(pos);
+            length = shared + suffix;
+            if (current.length < length) current = java.util.Arrays.copyOf(current, Math.max(length, current.length * 2));
+            System.arraycopy(data, pos, current, shared, suffix);
+            pos += suffix;
+            if (compare(current, length, prefix, upper) >= 0) return i;
+        }
+        return Math.min(size, (block + 1) * BLOCK_SIZE);
+    }
+
+    // Compare a block's first key with prefix (see compare)
+    private int compareHead(int block, byte[] prefix, boolean upper) {
+        int pos = skipVarint(blockOffsets[block]);
+        int length = readVarint(pos);
+        pos = skipVarint(pos);
+        return compare(java.util.Arrays.copyOfRange(data, pos, pos + length), length, prefix, upper);
+    }
+
+    // Unsigned byte order. With upper set, keys starting with prefix count as smaller than it, so the
+    // lower bound of the upper comparison is the end of the prefix range.
+    private static int compare(byte[] key, int length, byte[] prefix, boolean upper) {
+        int n = Math.min(length, prefix.length);
+        for (int i = 0; i < n; i++) {
+            int c = (key[i] & 0xFF) - (prefix[i] & 0xFF);
+            if (c != 0) return c;
+        }
+        if (length >= prefix.length) return upper ? -1 : (length == prefix.length ? 0 : 1);
+        return -1;
+    }
+
+    private long entry(int index) {
+        return ((long) scores[index] << 32) | 0x80000000L | index;
+    }
+
+    private long node(int index) {
+        return ((long) tree[index] << 32) | index;
+    }
+
+    private static long[] grow(long[] heap, int size) {
+        return size < heap.length ? heap : java.util.Arrays.copyOf(heap, heap.length * 2);
+    }
+
+    private static int push(long[] heap, int size, long value) {
+        int i = size;
+        heap[i] = value;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] >= heap[i]) break;
+            long tmp = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = tmp;
+            i = parent;
+        }
+        return size + 1;
+    }
+
+    private static void siftDown(long[] heap, int size, int i) {
+        while (true) {
+            int left = 2 * i + 1, largest = i;
+            if (left < size && heap[left] > heap[largest]) largest = left;
+            if (left + 1 < size && heap[left + 1] > heap[largest]) largest = left + 1;
+            if (largest == i) return;
+            long tmp = heap[largest];
+            heap[largest] = heap[i];
+            heap[i] = tmp;
+            i = largest;
+        }
+    }
+
+    private int readVarint(int pos) {
+        int value = 0, shift = 0;
+        byte b;
+        do {
+            b = data[pos++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private int skipVarint(int pos) {
+        while (data[pos] < 0) pos++;
+        return pos + 1;
+    }
+
+    private static void writeVarint(java.io.ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Runs app queries for the UI on background threads and hands results back on the Event Dispatch Thread.
+//
+// run() and runDebounced() are "latest wins": each call supersedes the previous one. A superseded query is
+// cancelled if it hasn't started (or is still waiting out its debounce delay), interrupted if it has, and its
+// result is dropped even if it finishes anyway; a generation number checked both before publishing and on the
+// EDT makes sure stale results never reach the screen. fetch() is for independent background work, such as
+// loading list pages, that must not cancel or be cancelled by searches.
+class QueryExecutor {
+    private final ScheduledExecutorService executor;
+    private final Consumer<String> onError;
+    private final AtomicLong generation = new AtomicLong();
+    private Future<?> pending;
+
+    /**
+     * @param threads Number of background threads
+     * @param onError Called on the EDT with a message when a query fails
+     */
+    public QueryExecutor(int threads, Consumer<String> onError) {
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread t = new Thread(r, "query-runner");
+            t.setDaemon(true);
+            return t;
+        });
+        pool.setRemoveOnCancelPolicy(true);
+        this.executor = pool;
+        this.onError = onError;
+    }
+
+    // Run a query now, superseding any earlier one
+    public <T> void run(Supplier<T> query, Consumer<T> onResult) {
+        runDebounced(0, query, onResult);
+    }
+
+    // Run a query after delayMillis unless another query is submitted first, e.g. to wait for typing to pause
+    public synchronized <T> void runDebounced(long delayMillis, Supplier<T> query, Consumer<T> onResult) {
+        long ticket = generation.incrementAndGet();
+        if (pending != null) pending.cancel(true);
+        pending = executor.schedule(() -> {
+            if (generation.get() != ticket) return;
+            T result;
+            try {
+                result = query.get();
+            } catch (CancellationException e) {
+                return;
+            } catch (RuntimeException e) {
+                if (generation.get() == ticket) publishError(e);
+                return;
+            }
+            if (generation.get() != ticket) return;
+            javax.swing.SwingUtilities.invokeLater(() -> {
+                if (generation.get() == ticket) onResult.accept(result);
+            });
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Drop the current query, if any
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        if (pending != null) pending.cancel(true);
+        pending = null;
+    }
+
+    // Run independent background work and publish its result on the EDT; never superseded
+    public <T> void fetch(Supplier<T> work, Consumer<T> onResult) {
+        fetch(work, onResult, null);
+    }
+
+    // The same, also telling onFailure (on the EDT, after the error is reported) when the work failed
+    public <T> void fetch(Supplier<T> work, Consumer<T> onResult, Consumer<RuntimeException> onFailure) {
+        executor.execute(() -> {
+            T result;
+            try {
+                result = work.get();
+            } catch (RuntimeException e) {
+                publishError(e);
+                if (onFailure != null) javax.swing.SwingUtilities.invokeLater(() -> onFailure.accept(e));
+                return;
+            }
+            javax.swing.SwingUtilities.invokeLater(() -> onResult.accept(result));
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void publishError(RuntimeException e) {
+        System.err.println("Query failed: " + e);
+        String message = e.getMessage() != null ? e.getMessage() : e.toString();
+        javax.swing.SwingUtilities.invokeLater(() -> onError.accept(message));
+    }
+}
@@ -0,0 +1,58 @@
+// Token-bucket limiter for API quotas given per minute, such as OpenAI's requests per minute and tokens per
+// minute. Each bucket refills continuously at its rate; a request needs one request and its estimated tokens,
+// and waits until both buckets have them. Providers enforce per-minute limits over shorter windows too, so a
+// bucket only holds BURST_MILLIS worth of allowance: a burst that size goes out at once, after which requests
+// are paced at the configured rates.
+class RateLimiter {
+    private static final long BURST_MILLIS = 6_000;
+
+    private final double requestsPerMilli;
+    private final double tokensPerMilli;
+    private final double maxRequests;
+    private final double maxTokens;
+    private double requests;
+    private double tokens;
+    private long last = System.nanoTime();
+
+    /**
+     * @param requestsPerMinute Requests allowed per minute
+     * @param tokensPerMinute Tokens (prompt plus completion) allowed per minute
+     */
+    public RateLimiter(int requestsPerMinute, int tokensPerMinute) {
+        requestsPerMilli = Math.max(1, requestsPerMinute) / 60_000.0;
+        tokensPerMilli = Math.max(1, tokensPerMinute) / 60_000.0;
+        maxRequests = Math.max(1, requestsPerMilli * BURST_MILLIS);
+        maxTokens = Math.max(1, tokensPerMilli * BURST_MILLIS);
+        requests = maxRequests;
+        tokens = maxTokens;
+    }
+
+    /**
+     * Wait until a request of the given size fits in both budgets, then take it out of them. A request larger
+     * than the bucket waits for a full bucket instead of forever.
+     */
+    public void acquire(int tokenCost) throws InterruptedException {
+        double cost = Math.min(tokenCost, maxTokens);
+        while (true) {
+            long waitMillis;
+            synchronized (this) {
+                refill();
+                if (requests >= 1 && tokens >= cost) {
+                    requests -= 1;
+                    tokens -= cost;
+                    return;
+                }
+                waitMillis = (long) Math.ceil(Math.max((1 - requests) / requestsPerMilli, (cost - tokens) / tokensPerMilli));
+            }
+            Thread.sleep(Math.max(1, waitMillis));
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double millis = (now - last) / 1e6;
+        last = now;
+        requests = Math.min(maxRequests, requests + millis * requestsPerMilli);
+        tokens = Math.min(maxTokens, tokens + millis * tokensPerMilli);
+    }
+}
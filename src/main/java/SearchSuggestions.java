@@ -0,0 +1,147 @@
+// Completion popup under the search field. As the user types, it lists keywords that complete the word being
+// typed and articles whose title starts with the whole text. Up/Down pick a suggestion, Enter or a click takes
+// it, Escape closes the popup. Taking a keyword replaces the word being typed; taking a title opens the article.
+// Lookups are lock-free prefix index reads, so they run on the EDT for every keystroke.
+class SearchSuggestions {
+    private static final int MAX_KEYWORDS = 6;
+    private static final int MAX_TITLES = 4;
+    private static final int MIN_TITLE_PREFIX = 2;
+
+    private final NewsAggregatorApp app;
+    private final javax.swing.JTextField field;
+    private final java.util.function.Consumer<Article> openArticle;
+    private final javax.swing.JPopupMenu popup = new javax.swing.JPopupMenu();
+    private final javax.swing.DefaultListModel<Object> suggestions = new javax.swing.DefaultListModel<>();
+    private final javax.swing.JList<Object> list = new javax.swing.JList<>(suggestions);
+    private boolean accepting;
+
+    /**
+     * @param app Source of the completions
+     * @param field The search field to complete
+     * @param openArticle Called on the EDT when a title suggestion is taken
+     */
+    public SearchSuggestions(NewsAggregatorApp app, javax.swing.JTextField field,
+                             java.util.function.Consumer<Article> openArticle) {
+        this.app = app;
+        this.field = field;
+        this.openArticle = openArticle;
+
+        list.setFocusable(false);
+        list.setSelectionMode(javax.swing.ListSelectionModel.SINGLE_SELECTION);
+        list.setCellRenderer(new javax.swing.DefaultListCellRenderer() {
+            @Override
+            public java.awt.Component getListCellRendererComponent(javax.swing.JList<?> l, Object value, int index,
+                                                                   boolean isSelected, boolean cellHasFocus) {
+                String text = value instanceof Article ? "Article: " + ((Article) value).title : (String) value;
+                return super.getListCellRendererComponent(l, text, index, isSelected, cellHasFocus);
+            }
+        });
+        list.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                int index = list.locationToIndex(e.getPoint());
+                if (index >= 0) accept(suggestions.get(index));
+            }
+        });
+        popup.setFocusable(false);
+        popup.add(new javax.swing.JScrollPane(list));
+
+        field.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                update();
+            }
+
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                update();
+            }
+
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+            }
+        });
+        bind("DOWN", "suggestionDown", () -> move(1));
+        bind("UP", "suggestionUp", () -> move(-1));
+        bind("ESCAPE", "suggestionHide", () -> popup.setVisible(false));
+        // Enter takes the selected suggestion, otherwise it still submits the field
+        bind("ENTER", "suggestionAccept", () -> {
+            if (popup.isVisible() && list.getSelectedIndex() >= 0) {
+                accept(list.getSelectedValue());
+            } else {
+                popup.setVisible(false);
+                field.postActionEvent();
+            }
+        });
+    }
+
+    private void bind(String key, String name, Runnable action) {
+        field.getInputMap().put(javax.swing.KeyStroke.getKeyStroke(key), name);
+        field.getActionMap().put(name, new javax.swing.AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                action.run();
+            }
+        });
+    }
+
+    private void update() {
+        if (accepting) return;
+        String text = field.getText();
+        String word = currentWord(text);
+        suggestions.clear();
+        if (!word.isEmpty()) {
+            MyList<String> keywords = app.completeKeywords(word, MAX_KEYWORDS);
+            for (int i = 0; i < keywords.size(); i++) {
+                if (!keywords.get(i).equals(word)) suggestions.addElement(keywords.get(i));
+            }
+        }
+        if (text.trim().length() >= MIN_TITLE_PREFIX) {
+            MyList<Article> titles = app.completeTitles(text, MAX_TITLES);
+            for (int i = 0; i < titles.size(); i++) suggestions.addElement(titles.get(i));
+        }
+        if (suggestions.isEmpty() || !field.isShowing()) {
+            popup.setVisible(false);
+            return;
+        }
+        list.setVisibleRowCount(suggestions.size());
+        list.clearSelection();
+        popup.pack();
+        popup.setPopupSize(Math.max(field.getWidth(), popup.getPreferredSize().width), popup.getPreferredSize().height);
+        popup.show(field, 0, field.getHeight());
+    }
+
+    // The keyword being typed: what follows the last space or '|', without a leading '-'
+    static String currentWord(String text) {
+        return Autocomplete.normalize(text.substring(wordStart(text)));
+    }
+
+    private static int wordStart(String text) {
+        int start = text.length();
+        while (start > 0 && !Character.isWhitespace(text.charAt(start - 1)) && text.charAt(start - 1) != '|') start--;
+        if (start < text.length() && text.charAt(start) == '-') start++;
+        return start;
+    }
+
+    private void move(int step) {
+        if (!popup.isVisible() || suggestions.isEmpty()) return;
+        int index = Math.floorMod(list.getSelectedIndex() + step, suggestions.size());
+        list.setSelectedIndex(index);
+        list.ensureIndexIsVisible(index);
+    }
+
+    private void accept(Object suggestion) {
+        popup.setVisible(false);
+        if (suggestion instanceof Article) {
+            openArticle.accept((Article) suggestion);
+            return;
+        }
+        String text = field.getText();
+        accepting = true;
+        try {
+            field.setText(text.substring(0, wordStart(text)) + suggestion + " ");
+        } finally {
+            accepting = false;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+import java.util.function.Consumer;
+
+// Text that is still arriving, such as a streamed AI answer, for any number of readers. Every update is the
+// whole text so far. A reader that subscribes late gets the current text straight away, then each update, in
+// order. Readers are called on the updating thread and should only hand the text off.
+class StreamingText {
+    private final MyList<Consumer<String>> readers = new MyList<>();
+    private String text = "";
+
+    public synchronized void update(String text) {
+        this.text = text;
+        for (int i = 0; i < readers.size(); i++) readers.get(i).accept(text);
+    }
+
+    public synchronized void subscribe(Consumer<String> reader) {
+        readers.add(reader);
+        if (!text.isEmpty()) reader.accept(text);
+    }
+
+    public synchronized boolean hasReaders() {
+        return readers.size() > 0;
+    }
+
+    public synchronized void unsubscribe(Consumer<String> reader) {
+        for (int i = 0; i < readers.size(); i++) {
+            if (readers.get(i) == reader) {
+                readers.set(i, readers.get(readers.size() - 1));
+                readers.removeLast();
+                return;
+            }
+        }
+    }
+}
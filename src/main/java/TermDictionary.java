@@ -0,0 +1,112 @@
+// Maps normalized terms to dense int ids (0, 1, 2, ...).
+// Lookups hash the characters in place, so tokenizing a document does not allocate a String per token;
+// a String is only created the first time a term is seen.
+class TermDictionary {
+    private String[] terms = new String[64];
+    private int[] hashes = new int[64];
+    private int[] table;          // slot -> term id + 1, 0 means empty
+    private int mask;
+    private int size;
+
+    public TermDictionary() {
+        table = new int[128];
+        mask = table.length - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Term text for an id
+    public String term(int id) {
+        if (id < 0 || id >= size) throw new IndexOutOfBoundsException();
+        return terms[id];
+    }
+
+    // Id of the term, or -1 if it is unknown
+    public int lookup(CharSequence term) {
+        int hash = hash(term, 0, term.length());
+        int slot = hash & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && terms[id].contentEquals(term)) return id;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Id of chars[off, off + len), adding the term if it is new
+    public int intern(char[] chars, int off, int len) {
+        int hash = hash(chars, off, len);
+        int slot = hash & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && sameChars(terms[id], chars, off, len)) return id;
+            slot = (slot + 1) & mask;
+        }
+        return add(new String(chars, off, len), hash, slot);
+    }
+
+    // Id of the term, adding it if it is new
+    public int intern(String term) {
+        int hash = hash(term, 0, term.length());
+        int slot = hash & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && terms[id].equals(term)) return id;
+            slot = (slot + 1) & mask;
+        }
+        return add(term, hash, slot);
+    }
+
+    private int add(String term, int hash, int slot) {
+        if (size == terms.length) {
+            terms = java.util.Arrays.copyOf(terms, size * 2);
+            hashes = java.util.Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        terms[id] = term;
+        hashes[id] = hash;
+        table[slot] = id + 1;
+        if (size * 2 > table.length) rehash();
+        return id;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = id + 1;
+        }
+    }
+
+    private static boolean sameChars(String term, char[] chars, int off, int len) {
+        if (term.length() != len) return false;
+        for (int i = 0; i < len; i++) {
+            if (term.charAt(i) != chars[off + i]) return false;
+        }
+        return true;
+    }
+
+    private static int hash(char[] chars, int off, int len) {
+        int h = 0;
+        for (int i = 0; i < len; i++) h = 31 * h + chars[off + i];
+        return spread(h);
+    }
+
+    private static int hash(CharSequence term, int off, int len) {
+        int h = 0;
+        for (int i = 0; i < len; i++) h = 31 * h + term.charAt(off + i);
+        return spread(h);
+    }
+
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,637 @@
+// Positional inverted index over article titles and bodies with BM25 ranking.
+// Terms are interned in a TermDictionary and every term owns one Postings record of primitive arrays:
+// ascending document ordinals, term frequencies, and varint-encoded position gaps. Nothing is allocated
+// per token at index time apart from the packed (term, position) scratch buffer reused across documents.
+class TextIndex {
+    // BM25 parameters
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    // Position gap between title and body so phrases never match across them
+    private static final int TITLE_GAP = 100;
+
+    // Postings are grouped into blocks of this many for block-max score bounds
+    private static final int BLOCK_SHIFT = 7;
+
+    // One term's postings, ordered by document ordinal
+    private static class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int[] posOffsets = new int[4];
+        byte[] positions = new byte[16];
+        int count;
+        int posBytes;
+        // Per block: highest term frequency and shortest document, which bound any score in the block
+        int[] blockMaxFreq = new int[1];
+        int[] blockMinLength = new int[1];
+
+        void add(int doc, int length, long[] pairs, int from, int to) {
+            if (count == docs.length) {
+                int cap = count * 2;
+                docs = java.util.Arrays.copyOf(docs, cap);
+                freqs = java.util.Arrays.copyOf(freqs, cap);
+                posOffsets = java.util.Arrays.copyOf(posOffsets, cap);
+            }
+            int freq = to - from;
+            int block = count >>> BLOCK_SHIFT;
+            if (block == blockMaxFreq.length) {
+                blockMaxFreq = java.util.Arrays.copyOf(blockMaxFreq, block * 2);
+                blockMinLength = java.util.Arrays.copyOf(blockMinLength, block * 2);
+            }
+            if ((count & ((1 << BLOCK_SHIFT) - 1)) == 0) {
+                blockMaxFreq[block] = freq;
+                blockMinLength[block] = length;
+            } else {
+                blockMaxFreq[block] = Math.max(blockMaxFreq[block], freq);
+                blockMinLength[block] = Math.min(blockMinLength[block], length);
+            }
+            docs[count] = doc;
+            freqs[count] = freq;
+            posOffsets[count] = posBytes;
+            count++;
+            int previous = 0;
+            for (int i = from; i < to; i++) {
+                int position = (int) pairs[i];
+                if (posBytes + 5 > positions.length) {
+                    positions = java.util.Arrays.copyOf(positions, Math.max(positions.length * 2, posBytes + 5));
+                }
+                int gap = position - previous;
+                previous = position;
+                while ((gap & ~0x7F) != 0) {
+                    positions[posBytes++] = (byte) ((gap & 0x7F) | 0x80);
+                    gap >>>= 7;
+                }
+                positions[posBytes++] = (byte) gap;
+            }
+        }
+
+        // Decode the positions of posting i into out, returns how many there are
+        int positions(int i, int[] out) {
+            int n = freqs[i];
+            int pos = posOffsets[i];
+            int position = 0;
+            for (int j = 0; j < n; j++) {
+                int gap = 0, shift = 0;
+                byte x;
+                do {
+                    x = positions[pos++];
+                    gap |= (x & 0x7F) << shift;
+                    shift += 7;
+                } while (x < 0);
+                position += gap;
+                out[j] = position;
+            }
+            return n;
+        }
+
+        // Recompute the block-max bounds from the postings, given each document's length
+        void rebuildBlocks(int[] docLength) {
+            int blocks = Math.max(1, (count + (1 << BLOCK_SHIFT) - 1) >>> BLOCK_SHIFT);
+            blockMaxFreq = new int[blocks];
+            blockMinLength = new int[blocks];
+            for (int i = 0; i < count; i++) {
+                int block = i >>> BLOCK_SHIFT;
+                int length = docLength[docs[i]];
+                if ((i & ((1 << BLOCK_SHIFT) - 1)) == 0) {
+                    blockMaxFreq[block] = freqs[i];
+                    blockMinLength[block] = length;
+                } else {
+                    blockMaxFreq[block] = Math.max(blockMaxFreq[block], freqs[i]);
+                    blockMinLength[block] = Math.min(blockMinLength[block], length);
+                }
+            }
+        }
+
+        // Drop the postings of documents whose new ordinal is -1 and renumber the rest, keeping their
+        // position bytes as they are
+        void compact(int[] newOrdinal, int[] docLength) {
+            int kept = 0, bytes = 0;
+            for (int i = 0; i < count; i++) {
+                int doc = newOrdinal[docs[i]];
+                if (doc < 0) continue;
+                int from = posOffsets[i];
+                int to = i + 1 < count ? posOffsets[i + 1] : posBytes;
+                System.arraycopy(positions, from, positions, bytes, to - from);
+                docs[kept] = doc;
+                freqs[kept] = freqs[i];
+                posOffsets[kept] = bytes;
+                bytes += to - from;
+                kept++;
+            }
+            count = kept;
+            posBytes = bytes;
+            if (docs.length > 4 * Math.max(count, 1)) {
+                int cap = Math.max(count, 4);
+                docs = java.util.Arrays.copyOf(docs, cap);
+                freqs = java.util.Arrays.copyOf(freqs, cap);
+                posOffsets = java.util.Arrays.copyOf(posOffsets, cap);
+            }
+            if (positions.length > 4 * Math.max(posBytes, 16)) {
+                positions = java.util.Arrays.copyOf(positions, Math.max(posBytes, 16));
+            }
+            rebuildBlocks(docLength);
+        }
+
+        // First index >= from whose doc is >= target, by galloping search
+        int advance(int from, int target) {
+            int step = 1, lo = from, hi = from;
+            while (hi < count && docs[hi] < target) {
+                lo = hi + 1;
+                hi = from + step;
+                step <<= 1;
+            }
+            if (hi >= count) hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (docs[mid] < target) lo = mid + 1;
+                else hi = mid - 1;
+            }
+            return lo;
+        }
+    }
+
+    // Ranked results: article ids with their BM25 scores, best first
+    static class Hits {
+        final int[] articleIds;
+        final float[] scores;
+        final int size;
+
+        Hits(int[] articleIds, float[] scores, int size) {
+            this.articleIds = articleIds;
+            this.scores = scores;
+            this.size = size;
+        }
+    }
+
+    private final TermDictionary dictionary = new TermDictionary();
+    private final Tokenizer tokenizer = new Tokenizer();
+    private Postings[] postings = new Postings[64];
+
+    // Compact once at least this many removed documents make up this share of all ordinals
+    private static final int MIN_DEAD_TO_COMPACT = 64;
+    private static final double DEAD_SHARE_TO_COMPACT = 0.25;
+
+    // Per-document data indexed by ordinal; ordinals are assigned in insertion order and only renumbered by
+    // compaction, which drops the removed ones
+    private int[] docArticle = new int[64];
+    private int[] docLength = new int[64];
+    private final java.util.BitSet deleted = new java.util.BitSet();
+    private final IntIntMap ordinalByArticle = new IntIntMap();
+    private int nextOrdinal;
+    private int deadDocs;
+    private int liveDocs;
+    private long liveLength;
+
+    // Scratch buffer of (term id << 32 | position) for the document being indexed
+    private long[] pairs = new long[1024];
+    private int pairCount;
+
+    // Scratch buffers for phrase matching
+    private int[] phraseStarts = new int[64];
+    private int[] phrasePositions = new int[64];
+
+    private final Tokenizer.Sink collector = (chars, length, position) -> {
+        if (pairCount == pairs.length) pairs = java.util.Arrays.copyOf(pairs, pairCount * 2);
+        pairs[pairCount++] = ((long) dictionary.intern(chars, 0, length) << 32) | position;
+    };
+
+    public int size() {
+        return liveDocs;
+    }
+
+    public int termCount() {
+        return dictionary.size();
+    }
+
+    // Articles containing the (already lowercased) term, counted the way search's IDF counts them
+    public synchronized int documentFrequency(String term) {
+        int id = dictionary.lookup(term);
+        if (id < 0 || id >= postings.length || postings[id] == null) return 0;
+        return Math.min(postings[id].count, liveDocs);
+    }
+
+    // Index (or re-index) an article's title and body
+    public synchronized void add(int articleId, String title, String content) {
+        remove(articleId);
+        pairCount = 0;
+        int next = tokenizer.tokenize(title == null ? "" : title, 0, collector);
+        tokenizer.tokenize(content == null ? "" : content, next + TITLE_GAP, collector);
+        // Group by term; positions within a term stay ascending because they are the low bits
+        java.util.Arrays.sort(pairs, 0, pairCount);
+
+        int ordinal = nextOrdinal++;
+        if (ordinal == docArticle.length) {
+            docArticle = java.util.Arrays.copyOf(docArticle, ordinal * 2);
+            docLength = java.util.Arrays.copyOf(docLength, ordinal * 2);
+        }
+        docArticle[ordinal] = articleId;
+        docLength[ordinal] = pairCount;
+        ordinalByArticle.put(articleId, ordinal);
+        liveDocs++;
+        liveLength += pairCount;
+
+        int start = 0;
+        while (start < pairCount) {
+            int term = (int) (pairs[start] >>> 32);
+            int end = start + 1;
+            while (end < pairCount && (int) (pairs[end] >>> 32) == term) end++;
+            postingsFor(term).add(ordinal, pairCount, pairs, start, end);
+            start = end;
+        }
+    }
+
+    // Drop an article from search results. Its postings stay in place and still count towards document
+    // frequencies, which only nudges idf slightly, until enough articles are removed to compact the index
+    // (or a snapshot is written).
+    public synchronized void remove(int articleId) {
+        int ordinal = ordinalByArticle.remove(articleId, -1);
+        if (ordinal < 0) return;
+        deleted.set(ordinal);
+        deadDocs++;
+        liveDocs--;
+        liveLength -= docLength[ordinal];
+        if (deadDocs >= MIN_DEAD_TO_COMPACT && deadDocs >= nextOrdinal * DEAD_SHARE_TO_COMPACT) compact();
+    }
+
+    // Renumber the live documents 0..liveDocs-1 in their current order and drop every trace of removed ones:
+    // their postings and position bytes, and their per-document data
+    private void compact() {
+        if (deadDocs == 0) return;
+        int[] newOrdinal = new int[nextOrdinal];
+        int live = 0;
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            if (deleted.get(ordinal)) {
+                newOrdinal[ordinal] = -1;
+                continue;
+            }
+            newOrdinal[ordinal] = live;
+            docArticle[live] = docArticle[ordinal];
+            docLength[live] = docLength[ordinal];
+            ordinalByArticle.put(docArticle[live], live);
+            live++;
+        }
+        int capacity = Math.max(64, Integer.highestOneBit(Math.max(live, 1)) * 2);
+        if (capacity < docArticle.length) {
+            docArticle = java.util.Arrays.copyOf(docArticle, capacity);
+            docLength = java.util.Arrays.copyOf(docLength, capacity);
+        }
+        for (Postings p : postings) {
+            if (p != null) p.compact(newOrdinal, docLength);
+        }
+        deleted.clear();
+        deadDocs = 0;
+        nextOrdinal = live;
+    }
+
+    // Terms in id order with their postings, then per-document data including deletions (none, since the
+    // index is compacted first)
+    synchronized void writeTo(java.io.DataOutputStream out) throws java.io.IOException {
+        compact();
+        int terms = dictionary.size();
+        IndexSnapshot.writeVarint(out, terms);
+        for (int term = 0; term < terms; term++) {
+            IndexSnapshot.writeString(out, dictionary.term(term));
+            Postings p = postings[term];
+            IndexSnapshot.writeVarint(out, p.count);
+            int previous = 0;
+            for (int i = 0; i < p.count; i++) {
+                IndexSnapshot.writeVarint(out, p.docs[i] - previous);
+                previous = p.docs[i];
+                IndexSnapshot.writeVarint(out, p.freqs[i]);
+            }
+            IndexSnapshot.writeVarint(out, p.posBytes);
+            out.write(p.positions, 0, p.posBytes);
+        }
+        IndexSnapshot.writeVarint(out, nextOrdinal);
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            out.writeInt(docArticle[ordinal]);
+            IndexSnapshot.writeVarint(out, docLength[ordinal]);
+        }
+        long[] deletedWords = deleted.toLongArray();
+        IndexSnapshot.writeVarint(out, deletedWords.length);
+        for (long word : deletedWords) out.writeLong(word);
+    }
+
+    static TextIndex readFrom(java.nio.ByteBuffer in) {
+        TextIndex index = new TextIndex();
+        int terms = IndexSnapshot.readVarint(in);
+        index.postings = new Postings[Math.max(terms, 64)];
+        MyList<Postings> all = new MyList<>(terms);
+        for (int term = 0; term < terms; term++) {
+            if (index.dictionary.intern(IndexSnapshot.readString(in)) != term) {
+                throw new IllegalStateException("Duplicate term in snapshot");
+            }
+            Postings p = new Postings();
+            int count = IndexSnapshot.readVarint(in);
+            p.docs = new int[Math.max(count, 1)];
+            p.freqs = new int[Math.max(count, 1)];
+            p.posOffsets = new int[Math.max(count, 1)];
+            int doc = 0;
+            for (int i = 0; i < count; i++) {
+                doc += IndexSnapshot.readVarint(in);
+                p.docs[i] = doc;
+                p.freqs[i] = IndexSnapshot.readVarint(in);
+            }
+            p.count = count;
+            p.posBytes = IndexSnapshot.readVarint(in);
+            p.positions = new byte[Math.max(p.posBytes, 16)];
+            in.get(p.positions, 0, p.posBytes);
+            // Each posting's positions are freq varints; walk them to recover the offsets
+            int pos = 0;
+            for (int i = 0; i < count; i++) {
+                p.posOffsets[i] = pos;
+                for (int j = 0; j < p.freqs[i]; j++) {
+                    while (p.positions[pos++] < 0) { }
+                }
+            }
+            index.postings[term] = p;
+            all.add(p);
+        }
+
+        int ordinals = IndexSnapshot.readVarint(in);
+        index.docArticle = new int[Math.max(ordinals, 64)];
+        index.docLength = new int[Math.max(ordinals, 64)];
+        for (int ordinal = 0; ordinal < ordinals; ordinal++) {
+            index.docArticle[ordinal] = in.getInt();
+            index.docLength[ordinal] = IndexSnapshot.readVarint(in);
+        }
+        long[] deletedWords = new long[IndexSnapshot.readVarint(in)];
+        for (int i = 0; i < deletedWords.length; i++) deletedWords[i] = in.getLong();
+        index.deleted.or(java.util.BitSet.valueOf(deletedWords));
+        index.nextOrdinal = ordinals;
+        for (int ordinal = 0; ordinal < ordinals; ordinal++) {
+            if (index.deleted.get(ordinal)) {
+                index.deadDocs++;
+                continue;
+            }
+            index.ordinalByArticle.put(index.docArticle[ordinal], ordinal);
+            index.liveDocs++;
+            index.liveLength += index.docLength[ordinal];
+        }
+
+        // Block-max bounds are derived data
+        for (int t = 0; t < all.size(); t++) all.get(t).rebuildBlocks(index.docLength);
+        return index;
+    }
+
+    private Postings postingsFor(int term) {
+        if (term >= postings.length) {
+            postings = java.util.Arrays.copyOf(postings, Math.max(postings.length * 2, term + 1));
+        }
+        Postings p = postings[term];
+        if (p == null) {
+            p = new Postings();
+            postings[term] = p;
+        }
+        return p;
+    }
+
+    /**
+     * Top-K articles for a free-text query ranked by BM25. Words are optional and ranked by how well
+     * they match; text in double quotes is a phrase that must appear verbatim (ignoring case and
+     * punctuation), e.g. {@code "virtual threads" java performance}.
+     */
+    public synchronized Hits search(String query, int k) {
+        MyList<int[]> phrases = new MyList<>();
+        IntList scoring = new IntList();
+        IntSet requiredTerms = new IntSet();
+        boolean unmatchable = false;
+
+        String[] parts = query.split("\"", -1);
+        for (int p = 0; p < parts.length; p++) {
+            MyList<String> words = Tokenizer.terms(parts[p]);
+            boolean isPhrase = p % 2 == 1 && words.size() > 0;
+            int[] phrase = new int[words.size()];
+            for (int w = 0; w < words.size(); w++) {
+                int term = dictionary.lookup(words.get(w));
+                // A term whose documents were all removed and compacted away has an empty list
+                if (term < 0 || postings[term] == null || postings[term].count == 0) {
+                    if (isPhrase) unmatchable = true;
+                    continue;
+                }
+                phrase[w] = term;
+                if (isPhrase) requiredTerms.add(term);
+                boolean seen = false;
+                for (int i = 0; i < scoring.size(); i++) seen |= scoring.get(i) == term;
+                if (!seen) scoring.add(term);
+            }
+            if (isPhrase) phrases.add(phrase);
+        }
+        if (unmatchable || scoring.size() == 0 || k <= 0 || liveDocs == 0) return new Hits(new int[0], new float[0], 0);
+
+        // Order terms by their highest possible contribution so that a prefix of "non-essential" terms can
+        // be identified cheaply once the heap threshold is known (MaxScore)
+        int n = scoring.size();
+        Postings[] lists = new Postings[n];
+        float[] idf = new float[n];
+        float[] termMax = new float[n];
+        boolean[] required = new boolean[n];
+        float avgLength = Math.max(1f, liveLength / (float) liveDocs);
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            Postings list = postings[scoring.get(i)];
+            // Deleted documents keep their postings, so clamp df to the live count
+            int df = Math.min(list.count, liveDocs);
+            float termIdf = (float) Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+            float max = 0f;
+            for (int block = 0; block <= (list.count - 1) >>> BLOCK_SHIFT; block++) {
+                max = Math.max(max, blockBound(list, block, termIdf, avgLength));
+            }
+            lists[i] = list;
+            idf[i] = termIdf;
+            termMax[i] = max;
+            order[i] = i;
+        }
+        float[] unsortedMax = termMax;
+        java.util.Arrays.sort(order, (x, y) -> Float.compare(unsortedMax[x], unsortedMax[y]));
+        {
+            Postings[] sortedLists = new Postings[n];
+            float[] sortedIdf = new float[n];
+            float[] sortedMax = new float[n];
+            for (int i = 0; i < n; i++) {
+                sortedLists[i] = lists[order[i]];
+                sortedIdf[i] = idf[order[i]];
+                sortedMax[i] = termMax[order[i]];
+                required[i] = requiredTerms.contains(scoring.get(order[i]));
+            }
+            lists = sortedLists;
+            idf = sortedIdf;
+            termMax = sortedMax;
+        }
+        float[] prefixMax = new float[n + 1];
+        for (int i = 0; i < n; i++) prefixMax[i + 1] = prefixMax[i] + termMax[i];
+
+        int[] cursor = new int[n];
+        // Cached block-max bound of each term's current block
+        int[] boundBlock = new int[n];
+        float[] bound = new float[n];
+        java.util.Arrays.fill(boundBlock, -1);
+
+        // Bounded min-heap of the best k (score, ordinal) pairs
+        float[] heapScore = new float[k];
+        int[] heapDoc = new int[k];
+        int heapSize = 0;
+
+        search:
+        while (true) {
+            // Terms [0, essential) cannot lift a document into the top k on their own
+            int essential = 0;
+            if (heapSize == k) {
+                while (essential < n && prefixMax[essential + 1] <= heapScore[0]) essential++;
+                if (essential == n) break;
+            }
+            int doc = Integer.MAX_VALUE;
+            for (int i = essential; i < n; i++) {
+                if (cursor[i] < lists[i].count) doc = Math.min(doc, lists[i].docs[cursor[i]]);
+            }
+            if (doc == Integer.MAX_VALUE) break;
+
+            // Phrase terms are required: leapfrog them before looking at anything else
+            for (int i = 0; i < n; i++) {
+                if (!required[i]) continue;
+                cursor[i] = lists[i].advance(cursor[i], doc);
+                if (cursor[i] >= lists[i].count) break search;
+                int d = lists[i].docs[cursor[i]];
+                if (d > doc) {
+                    skipTo(lists, cursor, d);
+                    continue search;
+                }
+            }
+
+            // Position the non-essential terms and apply the block-max bound
+            float maxScore = 0f;
+            int windowEnd = Integer.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                Postings list = lists[i];
+                if (i < essential && cursor[i] < list.count && list.docs[cursor[i]] < doc) {
+                    cursor[i] = list.advance(cursor[i], doc);
+                }
+                int c = cursor[i];
+                if (c >= list.count) continue;
+                int block = c >>> BLOCK_SHIFT;
+                if (boundBlock[i] != block) {
+                    bound[i] = blockBound(list, block, idf[i], avgLength);
+                    boundBlock[i] = block;
+                }
+                maxScore += bound[i];
+                int last = Math.min(list.count, (block + 1) << BLOCK_SHIFT) - 1;
+                windowEnd = Math.min(windowEnd, list.docs[last]);
+            }
+            if (heapSize == k && maxScore <= heapScore[0]) {
+                // Nothing up to the nearest block end can beat the k-th best hit
+                skipTo(lists, cursor, windowEnd + 1);
+                continue;
+            }
+
+            float score = 0f;
+            float norm = K1 * (1 - B + B * docLength[doc] / avgLength);
+            for (int i = 0; i < n; i++) {
+                Postings list = lists[i];
+                int c = cursor[i];
+                if (c < list.count && list.docs[c] == doc) {
+                    int tf = list.freqs[c];
+                    score += idf[i] * tf * (K1 + 1) / (tf + norm);
+                    cursor[i]++;
+                }
+            }
+            if (deleted.get(doc) || (heapSize == k && score <= heapScore[0])) continue;
+            for (int p = 0; p < phrases.size(); p++) {
+                if (!containsPhrase(phrases.get(p), doc)) continue search;
+            }
+            if (heapSize < k) {
+                heapScore[heapSize] = score;
+                heapDoc[heapSize] = doc;
+                siftUp(heapScore, heapDoc, heapSize++);
+            } else {
+                heapScore[0] = score;
+                heapDoc[0] = doc;
+                siftDown(heapScore, heapDoc, heapSize);
+            }
+        }
+
+        // Drain the min-heap from the back to get best-first order
+        int[] ids = new int[heapSize];
+        float[] scores = new float[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            ids[i] = docArticle[heapDoc[0]];
+            scores[i] = heapScore[0];
+            heapScore[0] = heapScore[i];
+            heapDoc[0] = heapDoc[i];
+            siftDown(heapScore, heapDoc, i);
+        }
+        return new Hits(ids, scores, ids.length);
+    }
+
+    // Highest BM25 contribution any document in the given block of list can get
+    private static float blockBound(Postings list, int block, float idf, float avgLength) {
+        int tf = list.blockMaxFreq[block];
+        float minNorm = K1 * (1 - B + B * list.blockMinLength[block] / avgLength);
+        return idf * tf * (K1 + 1) / (tf + minNorm);
+    }
+
+    private static void skipTo(Postings[] lists, int[] cursor, int target) {
+        for (int i = 0; i < lists.length; i++) {
+            Postings list = lists[i];
+            if (cursor[i] < list.count && list.docs[cursor[i]] < target) {
+                cursor[i] = list.advance(cursor[i], target);
+            }
+        }
+    }
+
+    // Whether the terms of phrase occur at consecutive positions in doc
+    private boolean containsPhrase(int[] phrase, int doc) {
+        int startCount = 0;
+        for (int w = 0; w < phrase.length; w++) {
+            Postings list = postings[phrase[w]];
+            int i = list.advance(0, doc);
+            if (i >= list.count || list.docs[i] != doc) return false;
+            int tf = list.freqs[i];
+            if (w == 0) {
+                if (tf > phraseStarts.length) phraseStarts = new int[tf];
+                startCount = list.positions(i, phraseStarts);
+                continue;
+            }
+            if (tf > phrasePositions.length) phrasePositions = new int[tf];
+            int count = list.positions(i, phrasePositions);
+            // Keep the starts s where word w occurs at s + w
+            int kept = 0, j = 0;
+            for (int c = 0; c < startCount; c++) {
+                int want = phraseStarts[c] + w;
+                while (j < count && phrasePositions[j] < want) j++;
+                if (j < count && phrasePositions[j] == want) phraseStarts[kept++] = phraseStarts[c];
+            }
+            startCount = kept;
+            if (startCount == 0) return false;
+        }
+        return startCount > 0;
+    }
+
+    private static void siftUp(float[] score, int[] doc, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (score[i] >= score[parent]) break;
+            swap(score, doc, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(float[] score, int[] doc, int size) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1, right = left + 1, smallest = i;
+            if (left < size && score[left] < score[smallest]) smallest = left;
+            if (right < size && score[right] < score[smallest]) smallest = right;
+            if (smallest == i) return;
+            swap(score, doc, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(float[] score, int[] doc, int i, int j) {
+        float s = score[i];
+        score[i] = score[j];
+        score[j] = s;
+        int d = doc[i];
+        doc[i] = doc[j];
+        doc[j] = d;
+    }
+}
@@ -0,0 +1,38 @@
+// Splits text into lowercase letter/digit runs. Tokens are handed out as a shared char buffer so that
+// callers can look them up in a TermDictionary without allocating a String per token.
+class Tokenizer {
+    static final int MAX_TOKEN_LENGTH = 64;
+
+    interface Sink {
+        void token(char[] chars, int length, int position);
+    }
+
+    private final char[] buffer = new char[MAX_TOKEN_LENGTH];
+
+    // Feed each token of text to sink, numbering positions from startPosition; returns the next free position
+    public int tokenize(String text, int startPosition, Sink sink) {
+        int position = startPosition;
+        int length = 0;
+        boolean tooLong = false;
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (length < MAX_TOKEN_LENGTH) buffer[length++] = Character.toLowerCase(c);
+                else tooLong = true;
+            } else if (length > 0) {
+                // Overlong runs (URLs, base64 blobs) are not useful search terms
+                if (!tooLong) sink.token(buffer, length, position++);
+                length = 0;
+                tooLong = false;
+            }
+        }
+        return position;
+    }
+
+    // Tokens of text as Strings, for parsing queries
+    public static MyList<String> terms(String text) {
+        MyList<String> result = new MyList<>();
+        new Tokenizer().tokenize(text, 0, (chars, length, position) -> result.add(new String(chars, 0, length)));
+        return result;
+    }
+}
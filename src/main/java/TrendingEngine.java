@@ -0,0 +1,222 @@
+// Time-decayed trending scores.
+//
+// Every view counts 2^((t - t0) / halfLife) towards an article's score, where t0 is a fixed reference time.
+// Scores of all articles decay by the same factor as time passes, so their relative order only changes when
+// events arrive: an event is a single O(log n) re-sift in the indexed heap and nothing has to be re-ranked on
+// a timer. Scores are kept as log2 of the weighted sum, so neither years-old articles (tiny weights) nor a
+// long-running process (huge weights) under- or overflow a double.
+//
+// Alongside the score each article has a ring buffer of per-bucket view counts (hourly by default) in one
+// flat int array, for "views in the last N hours" questions.
+class TrendingEngine {
+    private final double halfLifeMillis;
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final java.util.function.LongSupplier clock;
+
+    private final long referenceMillis;
+    private double[] scores = new double[64];       // log2 of the weighted view sum, by slot
+    private int[] counts = new int[0];              // slot * bucketCount + bucket
+    private long[] lastBucket = new long[64];       // absolute bucket number of each slot's newest count
+    private final IntIntMap slotById = new IntIntMap();
+    private int slots;
+
+    private final MyHeap<Article> heap;
+
+    public TrendingEngine(long halfLifeMillis, long bucketMillis, int bucketCount) {
+        this(halfLifeMillis, bucketMillis, bucketCount, System::currentTimeMillis);
+    }
+
+    public TrendingEngine(long halfLifeMillis, long bucketMillis, int bucketCount, java.util.function.LongSupplier clock) {
+        if (halfLifeMillis <= 0) throw new IllegalArgumentException("Half-life must be positive: " + halfLifeMillis);
+        if (bucketMillis <= 0 || bucketCount <= 0) throw new IllegalArgumentException("Buckets must be positive");
+        this.halfLifeMillis = halfLifeMillis;
+        this.bucketMillis = bucketMillis;
+        this.bucketCount = bucketCount;
+        this.clock = clock;
+        this.referenceMillis = clock.getAsLong();
+        this.heap = new MyHeap<>((a1, a2) -> Double.compare(scores[slotOf(a1.id)], scores[slotOf(a2.id)]), a -> a.id);
+    }
+
+    public synchronized int size() {
+        return heap.size();
+    }
+
+    /**
+     * Start tracking an article. Its popularity counts as views at publication time, so older articles
+     * start out proportionally lower. Adding an article that is already tracked resets it.
+     */
+    public synchronized void add(Article article, long publishedMillis) {
+        heap.removeById(article.id);
+        int slot = slotById.get(article.id, -1);
+        if (slot < 0) {
+            slot = slots++;
+            ensureCapacity(slots);
+            slotById.put(article.id, slot);
+        }
+        java.util.Arrays.fill(counts, slot * bucketCount, (slot + 1) * bucketCount, 0);
+        lastBucket[slot] = Long.MIN_VALUE;
+        scores[slot] = logAdd(Double.NEGATIVE_INFINITY, article.popularity,
+                exponent(Math.min(publishedMillis, clock.getAsLong())));
+        heap.add(article);
+    }
+
+    // Stop tracking an article; its slot is not reused
+    public synchronized void remove(int articleId) {
+        heap.removeById(articleId);
+    }
+
+    // Record views of an article at the current time; returns false if it is not tracked
+    public boolean recordEvent(int articleId, int views) {
+        return recordEvent(articleId, views, clock.getAsLong());
+    }
+
+    public synchronized boolean recordEvent(int articleId, int views, long timeMillis) {
+        Article article = heap.getById(articleId);
+        if (article == null) return false;
+        int slot = slotOf(articleId);
+        long bucket = Math.floorDiv(timeMillis, bucketMillis);
+        advanceBuckets(slot, bucket);
+        if (bucket > lastBucket[slot] - bucketCount) {
+            counts[slot * bucketCount + (int) Math.floorMod(bucket, (long) bucketCount)] += views;
+        }
+        scores[slot] = logAdd(scores[slot], views, exponent(timeMillis));
+        if (views > 0) heap.increaseKey(article);
+        else if (views < 0) heap.decreaseKey(article);
+        return true;
+    }
+
+    // The k articles with the highest decayed score, best first
+    public synchronized MyList<Article> topK(int k) {
+        return heap.topK(k);
+    }
+
+    // Decayed score of an article as of now, in views
+    public synchronized double score(int articleId) {
+        int slot = slotById.get(articleId, -1);
+        if (slot < 0) return 0;
+        return Math.pow(2, scores[slot] - exponent(clock.getAsLong()));
+    }
+
+    // Views of an article over the last windowMillis (rounded up to whole buckets, at most the ring length)
+    public synchronized int windowCount(int articleId, long windowMillis) {
+        int slot = slotById.get(articleId, -1);
+        if (slot < 0) return 0;
+        long now = Math.floorDiv(clock.getAsLong(), bucketMillis);
+        int buckets = (int) Math.min(bucketCount, (windowMillis + bucketMillis - 1) / bucketMillis);
+        int total = 0;
+        for (long b = now - buckets + 1; b <= now; b++) {
+            // Only buckets that are still in the ring and not ahead of the newest write hold counts for b
+            if (b > lastBucket[slot] || b <= lastBucket[slot] - bucketCount) continue;
+            total += counts[slot * bucketCount + (int) Math.floorMod(b, (long) bucketCount)];
+        }
+        return total;
+    }
+
+    // log2 of the weight of one view at the given time
+    private double exponent(long timeMillis) {
+        return (timeMillis - referenceMillis) / halfLifeMillis;
+    }
+
+    // log2(2^logSum + views * 2^exponent), with -Infinity standing for an empty sum
+    private static double logAdd(double logSum, int views, double exponent) {
+        if (views == 0) return logSum;
+        double term = Math.log(Math.abs(views)) / Math.log(2) + exponent;
+        if (views > 0) {
+            if (logSum == Double.NEGATIVE_INFINITY) return term;
+            double hi = Math.max(logSum, term), lo = Math.min(logSum, term);
+            return hi + Math.log1p(Math.pow(2, lo - hi)) / Math.log(2);
+        }
+        // Corrections can take the score down to zero but not below
+        if (term >= logSum) return Double.NEGATIVE_INFINITY;
+        return logSum + Math.log1p(-Math.pow(2, term - logSum)) / Math.log(2);
+    }
+
+    // Zero the ring entries that fall between the slot's newest bucket and the given bucket
+    private void advanceBuckets(int slot, long bucket) {
+        long last = lastBucket[slot];
+        if (bucket <= last) return;
+        int base = slot * bucketCount;
+        if (last == Long.MIN_VALUE || bucket - last >= bucketCount) {
+            java.util.Arrays.fill(counts, base, base + bucketCount, 0);
+        } else {
+            for (long b = last + 1; b <= bucket; b++) {
+                counts[base + (int) Math.floorMod(b, (long) bucketCount)] = 0;
+            }
+        }
+        lastBucket[slot] = bucket;
+    }
+
+    // An engine with the same settings and clock but nothing tracked
+    TrendingEngine emptyCopy() {
+        return new TrendingEngine((long) halfLifeMillis, bucketMillis, bucketCount, clock);
+    }
+
+    // Settings, then every tracked article in heap order with its score and view buckets
+    synchronized void writeTo(java.io.DataOutputStream out) throws java.io.IOException {
+        out.writeDouble(halfLifeMillis);
+        out.writeLong(bucketMillis);
+        out.writeInt(bucketCount);
+        out.writeLong(referenceMillis);
+        IndexSnapshot.writeVarint(out, heap.size());
+        for (int i = 0; i < heap.size(); i++) {
+            int id = heap.elementAt(i).id;
+            int slot = slotOf(id);
+            out.writeInt(id);
+            out.writeDouble(scores[slot]);
+            out.writeLong(lastBucket[slot]);
+            for (int b = 0; b < bucketCount; b++) IndexSnapshot.writeVarint(out, counts[slot * bucketCount + b]);
+        }
+    }
+
+    /**
+     * Load state saved by writeTo into this (empty) engine. Articles are appended in the saved heap order,
+     * which already satisfies the heap property, so this is linear. Returns false without restoring
+     * anything if the snapshot was taken with different settings; the input is consumed either way.
+     */
+    synchronized boolean restoreFrom(java.nio.ByteBuffer in, IntObjectMap<Article> articles) {
+        double savedHalfLife = in.getDouble();
+        long savedBucketMillis = in.getLong();
+        int savedBucketCount = in.getInt();
+        long savedReference = in.getLong();
+        boolean compatible = savedHalfLife == halfLifeMillis && savedBucketMillis == bucketMillis
+                && savedBucketCount == bucketCount && heap.size() == 0;
+        // Scores are relative to the reference time, so shift them onto this engine's reference
+        double shift = (savedReference - referenceMillis) / halfLifeMillis;
+        int count = IndexSnapshot.readVarint(in);
+        for (int i = 0; i < count; i++) {
+            int id = in.getInt();
+            double score = in.getDouble();
+            long last = in.getLong();
+            Article article = articles.get(id);
+            if (!compatible || article == null) {
+                for (int b = 0; b < savedBucketCount; b++) IndexSnapshot.readVarint(in);
+                continue;
+            }
+            int slot = slots++;
+            ensureCapacity(slots);
+            slotById.put(id, slot);
+            scores[slot] = score + shift;
+            lastBucket[slot] = last;
+            for (int b = 0; b < bucketCount; b++) counts[slot * bucketCount + b] = IndexSnapshot.readVarint(in);
+            heap.add(article);
+        }
+        return compatible;
+    }
+
+    private int slotOf(int articleId) {
+        return slotById.get(articleId, -1);
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed > scores.length) {
+            int cap = Math.max(needed, scores.length * 2);
+            scores = java.util.Arrays.copyOf(scores, cap);
+            lastBucket = java.util.Arrays.copyOf(lastBucket, cap);
+        }
+        if ((long) needed * bucketCount > counts.length) {
+            long cap = Math.max((long) needed * bucketCount, (long) counts.length * 2);
+            counts = java.util.Arrays.copyOf(counts, (int) Math.min(cap, Integer.MAX_VALUE - 8));
+        }
+    }
+}
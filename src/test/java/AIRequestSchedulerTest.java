@@ -0,0 +1,111 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Single flight and cancellation: a caller giving up only affects the shared call once nobody else waits on it
+class AIRequestSchedulerTest {
+    private final AIRequestScheduler scheduler = new AIRequestScheduler(4, 1);
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void overlappingCallersShareOneCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> first = scheduler.submit("analysis", "k", () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "answer";
+        });
+        CompletableFuture<String> second = scheduler.submit("analysis", "k", () -> {
+            calls.incrementAndGet();
+            return "other";
+        });
+        release.countDown();
+        assertEquals("answer", first.get(5, TimeUnit.SECONDS));
+        assertEquals("answer", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(1, scheduler.upstreamCalls());
+    }
+
+    @Test
+    void cancellingOneCallerLeavesTheOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = scheduler.submit("analysis", "k", () -> {
+            await(release);
+            return "answer";
+        });
+        CompletableFuture<String> second = scheduler.submit("analysis", "k", () -> "other");
+        first.cancel(true);
+        release.countDown();
+        assertEquals("answer", second.get(5, TimeUnit.SECONDS));
+        assertTrue(first.isCancelled());
+    }
+
+    @Test
+    void queuedCallWithNoCallersLeftNeverRuns() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // The operation's cap is 1, so the second key waits behind the first
+        CompletableFuture<String> running = scheduler.submit("analysis", "a", () -> {
+            started.countDown();
+            await(release);
+            return "a";
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        AtomicInteger queuedCalls = new AtomicInteger();
+        CompletableFuture<String> queued = scheduler.submit("analysis", "b", () -> {
+            queuedCalls.incrementAndGet();
+            return "b";
+        });
+        queued.cancel(true);
+        release.countDown();
+        assertEquals("a", running.get(5, TimeUnit.SECONDS));
+        // A later call for another key runs, so the queue has moved past where "b" was
+        assertEquals("c", scheduler.submit("analysis", "c", () -> "c").get(5, TimeUnit.SECONDS));
+        assertEquals(0, queuedCalls.get());
+        assertEquals(2, scheduler.upstreamCalls());
+        assertThrows(CancellationException.class, queued::join);
+    }
+
+    @Test
+    void runningCallWithNoCallersLeftIsInterrupted() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<String> only = scheduler.submit("analysis", "k", () -> {
+            started.countDown();
+            try {
+                Thread.sleep(30_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "late";
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        only.cancel(true);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+
+        // The key is free again: a new caller starts a new call instead of joining the cancelled one
+        assertEquals("fresh", scheduler.submit("analysis", "k", () -> "fresh").get(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,660 @@
+// Small standalone benchmarks for the custom data structures.
+// Run with (after mvn test-compile): java -cp target/classes:target/test-classes:<dependencies> Benchmarks [footprint|postings|fulltext [articles]|trending|views|loader [files]|content [articles]|dates [articles]|complete [keys]|fuzzy [keywords]|ai [articles]|enrich [articles]]
+public class Benchmarks {
+
+    public static void main(String[] args) {
+        String which = args.length > 0 ? args[0] : "all";
+        if (which.equals("all") || which.equals("footprint")) footprint();
+        if (which.equals("all") || which.equals("postings")) postings();
+        if (which.equals("all") || which.equals("trending")) trending();
+        if (which.equals("all") || which.equals("views")) views();
+        if (which.equals("all") || which.equals("loader")) {
+            loader(args.length > 1 && which.equals("loader") ? Integer.parseInt(args[1]) : 20_000);
+        }
+        if (which.equals("all") || which.equals("content")) {
+            content(args.length > 1 && which.equals("content") ? Integer.parseInt(args[1]) : 100_000);
+        }
+        if (which.equals("all") || which.equals("dates")) {
+            dates(args.length > 1 && which.equals("dates") ? Integer.parseInt(args[1]) : 1_000_000);
+        }
+        if (which.equals("all") || which.equals("complete")) {
+            complete(args.length > 1 && which.equals("complete") ? Integer.parseInt(args[1]) : 1_000_000);
+        }
+        if (which.equals("all") || which.equals("fuzzy")) {
+            fuzzy(args.length > 1 && which.equals("fuzzy") ? Integer.parseInt(args[1]) : 300_000);
+        }
+        // Not part of "all": it needs the OpenAI client library on the class path
+        if (which.equals("ai")) ai(args.length > 1 ? Integer.parseInt(args[1]) : 100);
+        if (which.equals("enrich")) enrich(args.length > 1 ? Integer.parseInt(args[1]) : 300);
+        if (which.equals("all") || which.equals("fulltext")) {
+            fullText(args.length > 1 ? Integer.parseInt(args[1]) : 200_000);
+        }
+    }
+
+    // Compare retained heap of a 1M-posting keyword index on boxed vs primitive structures
+    static void footprint() {
+        final int keywords = 100;
+        final int postings = 1_000_000;
+        System.out.println("== Heap footprint: " + postings + " postings over " + keywords + " keywords ==");
+
+        long before = usedHeap();
+        MyMap<String, MySet<Integer>> boxed = new MyMap<>();
+        for (int i = 0; i < postings; i++) {
+            String kw = "kw" + (i % keywords);
+            MySet<Integer> ids = boxed.get(kw);
+            if (ids == null) {
+                ids = new MySet<>();
+                boxed.put(kw, ids);
+            }
+            ids.add(i + 1);
+        }
+        long boxedBytes = usedHeap() - before;
+        report("MyMap<String, MySet<Integer>>", boxedBytes, postings);
+        boxed = null;
+
+        before = usedHeap();
+        MyMap<String, IntSet> primitive = new MyMap<>();
+        for (int i = 0; i < postings; i++) {
+            String kw = "kw" + (i % keywords);
+            IntSet ids = primitive.get(kw);
+            if (ids == null) {
+                ids = new IntSet();
+                primitive.put(kw, ids);
+            }
+            ids.add(i + 1);
+        }
+        long primitiveBytes = usedHeap() - before;
+        report("MyMap<String, IntSet>", primitiveBytes, postings);
+        System.out.printf("  ratio: %.1fx smaller%n", boxedBytes / (double) Math.max(primitiveBytes, 1));
+        if (primitive.size() < 0) System.out.println(); // keep reachable until measured
+    }
+
+    // Multi-keyword AND/OR/NOT over popular tags with hundreds of thousands of ids each
+    static void postings() {
+        final int articles = 2_000_000;
+        System.out.println("== Posting list queries over " + articles + " articles ==");
+        KeywordIndex index = new KeywordIndex();
+        String[] tags = {"tech", "java", "cloud", "python", "rare"};
+        int[] every = {3, 5, 7, 11, 5000};
+        int[][] tagIds = new int[tags.length][];
+        for (int t = 0; t < tags.length; t++) tagIds[t] = new int[]{KeywordDictionary.intern(tags[t])};
+        for (int id = 1; id <= articles; id++) {
+            for (int t = 0; t < tags.length; t++) {
+                if (id % every[t] == 0) index.add(id, tagIds[t]);
+            }
+        }
+        for (String tag : tags) {
+            PostingList list = index.get(tag);
+            System.out.printf("  %-8s %8d ids, %6.2f bytes/id%n",
+                    tag, list.size(), list.compressedBytes() / (double) list.size());
+        }
+        timeQuery(index, "tech java");
+        timeQuery(index, "tech java cloud");
+        timeQuery(index, "tech rare");
+        timeQuery(index, "rare java|python -cloud");
+    }
+
+    static void timeQuery(KeywordIndex index, String text) {
+        KeywordQuery query = KeywordQuery.parse(text);
+        int hits = 0;
+        for (int i = 0; i < 200; i++) hits = query.execute(index).size(); // warm-up
+        int runs = 50;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) hits = query.execute(index).size();
+        double micros = (System.nanoTime() - start) / 1000.0 / runs;
+        System.out.printf("  %-28s %8d hits %10.1f us%n", "\"" + text + "\"", hits, micros);
+    }
+
+    // Top-3 trending at 10^6 articles: full copy-and-drain vs. bounded best-first traversal
+    static void trending() {
+        final int articles = 1_000_000;
+        System.out.println("== Top-3 trending over " + articles + " articles ==");
+        MyHeap<Article> heap = new MyHeap<>((a1, a2) -> Integer.compare(a1.popularity, a2.popularity));
+        java.util.Random random = new java.util.Random(7);
+        MyList<String> noKeywords = new MyList<>();
+        for (int i = 1; i <= articles; i++) {
+            heap.add(new Article(i, "Article " + i, "", noKeywords, "2025-01-01", random.nextInt(1_000_000)));
+        }
+
+        int runs = 5;
+        long start = System.nanoTime();
+        for (int r = 0; r < runs; r++) heap.toSortedList();
+        double sortedMillis = (System.nanoTime() - start) / 1e6 / runs;
+
+        for (int r = 0; r < 10_000; r++) heap.topK(3); // warm-up
+        runs = 100_000;
+        start = System.nanoTime();
+        for (int r = 0; r < runs; r++) heap.topK(3);
+        double topKMicros = (System.nanoTime() - start) / 1e3 / runs;
+
+        System.out.printf("  toSortedList + take 3  %10.1f ms%n", sortedMillis);
+        System.out.printf("  topK(3)                %10.3f us%n", topKMicros);
+    }
+
+    // Popularity events applied in place to an indexed heap of 10^6 articles
+    static void views() {
+        final int articles = 1_000_000;
+        final int events = 5_000_000;
+        System.out.println("== " + events + " popularity events over " + articles + " articles ==");
+        MyHeap<Article> heap = new MyHeap<>((a1, a2) -> Integer.compare(a1.popularity, a2.popularity), a -> a.id);
+        Article[] byId = new Article[articles + 1];
+        java.util.Random random = new java.util.Random(11);
+        MyList<String> noKeywords = new MyList<>();
+        for (int i = 1; i <= articles; i++) {
+            byId[i] = new Article(i, "Article " + i, "", noKeywords, "2025-01-01", random.nextInt(10_000));
+            heap.add(byId[i]);
+        }
+        int[] ids = new int[events];
+        int[] deltas = new int[events];
+        for (int e = 0; e < events; e++) {
+            // Skew reads towards a small set of hot articles
+            ids[e] = 1 + (int) (Math.pow(random.nextDouble(), 4) * articles);
+            deltas[e] = random.nextInt(10) == 0 ? -1 : 1 + random.nextInt(5);
+        }
+        long start = System.nanoTime();
+        for (int e = 0; e < events; e++) {
+            Article article = heap.getById(ids[e]);
+            article.popularity += deltas[e];
+            if (deltas[e] > 0) heap.increaseKey(article);
+            else heap.decreaseKey(article);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  %.0f events/s, top article now #%d%n", events / seconds, heap.peek().id);
+    }
+
+    // Loader throughput on a temporary directory of synthetic article files, single-threaded vs. all cores
+    static void loader(int files) {
+        System.out.println("== Loading " + files + " article files ==");
+        try {
+            java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("articles");
+            StringBuilder body = new StringBuilder();
+            for (int i = 0; i < 200; i++) body.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit. ");
+            for (int i = 0; i < files; i++) {
+                String text = "Title: Article " + i + "\nDate: 2025-03-" + (10 + i % 20)
+                        + "\nKeywords: tech, java, topic" + (i % 100) + "\nPopularity: " + (i % 500) + "\n---\n" + body;
+                java.nio.file.Files.write(dir.resolve("article" + i + ".txt"),
+                        text.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            }
+            ArticleFileLoader.loadArticlesFromDirectory(dir.toString(), 1); // warm-up and page cache
+            ArticleFileLoader.loadArticlesFromDirectory(dir.toString(), 1);
+            ArticleFileLoader.loadArticlesFromDirectory(dir.toString(), Runtime.getRuntime().availableProcessors());
+            try (java.util.stream.Stream<java.nio.file.Path> paths = java.nio.file.Files.list(dir)) {
+                paths.forEach(p -> p.toFile().delete());
+            }
+            java.nio.file.Files.delete(dir);
+        } catch (java.io.IOException e) {
+            System.err.println("Loader benchmark failed: " + e.getMessage());
+        }
+    }
+
+    // Retained heap of articles with bodies on the heap vs in the memory-mapped content store
+    static void content(int articles) {
+        System.out.println("== Article bodies for " + articles + " articles ==");
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 70; i++) body.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit. ");
+        MyList<String> keywords = new MyList<>();
+        keywords.add("tech");
+        try {
+            java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("content-store");
+            ContentStore store = new ContentStore(dir);
+            for (boolean stored : new boolean[]{false, true}) {
+                long before = usedHeap();
+                Article[] list = new Article[articles];
+                long start = System.nanoTime();
+                for (int i = 0; i < articles; i++) {
+                    list[i] = new Article(i + 1, "Article " + i, body.toString() + i, keywords, "2025-03-10", 0);
+                    if (stored) list[i].storeContent(store);
+                }
+                double ingestMillis = (System.nanoTime() - start) / 1e6;
+                report(stored ? "bodies in ContentStore" : "bodies on heap", usedHeap() - before, articles);
+                start = System.nanoTime();
+                long chars = 0;
+                for (int i = 0; i < articles; i++) chars += list[i].getContent().length();
+                System.out.printf("  ingest %.0f ms, read all bodies %.0f ms (%d chars)%n",
+                        ingestMillis, (System.nanoTime() - start) / 1e6, chars);
+            }
+            store.clear();
+            try (java.util.stream.Stream<java.nio.file.Path> paths = java.nio.file.Files.list(dir)) {
+                paths.forEach(p -> p.toFile().delete());
+            }
+            java.nio.file.Files.delete(dir);
+        } catch (java.io.IOException e) {
+            System.err.println("Content benchmark failed: " + e.getMessage());
+        }
+    }
+
+    // "Last 24 hours on topic X" over articles spread across three years: full scan vs date index walk
+    static void dates(int articles) {
+        System.out.println("== Date range queries over " + articles + " articles ==");
+        long now = 1_750_000_000L;
+        long span = 3L * 365 * 86400;
+        java.util.Random random = new java.util.Random(3);
+        Article[] byId = new Article[articles + 1];
+        OrderedIndex index = new OrderedIndex();
+        int[] tech = {KeywordDictionary.intern("tech")};
+        int[][] topics = new int[100][];
+        for (int t = 0; t < topics.length; t++) topics[t] = new int[]{tech[0], KeywordDictionary.intern("topic" + t)};
+        long start = System.nanoTime();
+        for (int id = 1; id <= articles; id++) {
+            Article article = new Article(id, "Article " + id, "", topics[random.nextInt(topics.length)], "", 0);
+            article.published = now - (long) (random.nextDouble() * span);
+            byId[id] = article;
+            index.add(id, article.published);
+        }
+        System.out.printf("  build (random order)             %8.0f ms%n", (System.nanoTime() - start) / 1e6);
+
+        java.util.function.Predicate<Article> topic = KeywordQuery.parse("topic7").matcher();
+        long from = now - 86400;
+        int hits = 0;
+        start = System.nanoTime();
+        for (int run = 0; run < 20; run++) {
+            hits = 0;
+            for (int id = 1; id <= articles; id++) {
+                if (byId[id].published >= from && topic.test(byId[id])) hits++;
+            }
+        }
+        System.out.printf("  scan: last 24h on topic7         %8.1f us (%d hits)%n", (System.nanoTime() - start) / 1e3 / 20, hits);
+        start = System.nanoTime();
+        for (int run = 0; run < 2000; run++) {
+            hits = 0;
+            OrderedIndex.Cursor cursor = index.descending(Long.MAX_VALUE);
+            for (int id = cursor.next(); id >= 0 && cursor.key() >= from; id = cursor.next()) {
+                if (topic.test(byId[id])) hits++;
+            }
+        }
+        System.out.printf("  index: last 24h on topic7        %8.1f us (%d hits)%n", (System.nanoTime() - start) / 1e3 / 2000, hits);
+        start = System.nanoTime();
+        for (int run = 0; run < 2000; run++) hits = index.latest(20).size();
+        System.out.printf("  index: latest 20                 %8.1f us%n", (System.nanoTime() - start) / 1e3 / 2000);
+    }
+
+    // Top-10 prefix completions over synthetic titles: prefix index vs scanning every key
+    static void complete(int keys) {
+        System.out.println("== Prefix completion over " + keys + " titles ==");
+        java.util.Random random = new java.util.Random(17);
+        String[] words = new String[5000];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 3 + random.nextInt(6);
+            for (int j = 0; j < length; j++) word.append((char) ('a' + random.nextInt(26)));
+            words[i] = word.toString();
+        }
+        String[] titles = new String[keys];
+        int[] scores = new int[keys];
+        int[] payloads = new int[keys];
+        for (int i = 0; i < keys; i++) {
+            double u = random.nextDouble();
+            titles[i] = words[(int) (u * u * words.length)] + " " + words[random.nextInt(words.length)] + " "
+                    + words[random.nextInt(words.length)];
+            scores[i] = random.nextInt(100_000);
+            payloads[i] = i;
+        }
+        long start = System.nanoTime();
+        PrefixIndex index = PrefixIndex.build(titles, scores, payloads, keys);
+        System.out.printf("  build                            %8.0f ms%n", (System.nanoTime() - start) / 1e6);
+        report("prefix index", index.memoryBytes(), index.size());
+
+        String[] prefixes = {"a", "ke", words[0].substring(0, 3), words[0] + " " + words[1].charAt(0), "zzzz"};
+        for (String prefix : prefixes) {
+            int found = 0;
+            for (int run = 0; run < 20_000; run++) found = index.complete(prefix, 10).size();
+            start = System.nanoTime();
+            for (int run = 0; run < 20_000; run++) found = index.complete(prefix, 10).size();
+            double indexMicros = (System.nanoTime() - start) / 1e3 / 20_000;
+            start = System.nanoTime();
+            MyHeap<Integer> best = null;
+            for (int run = 0; run < 5; run++) {
+                best = new MyHeap<>((a, b) -> Integer.compare(scores[b], scores[a]));
+                for (int i = 0; i < keys; i++) {
+                    if (titles[i].startsWith(prefix)) {
+                        best.add(i);
+                        if (best.size() > 10) best.poll();
+                    }
+                }
+            }
+            double scanMicros = (System.nanoTime() - start) / 1e3 / 5;
+            System.out.printf("  %-10s %2d results   index %8.2f us   scan %10.0f us%n",
+                    "'" + prefix + "'", found, indexMicros, scanMicros);
+        }
+    }
+
+    // Typo correction over a large keyword dictionary: gram candidates vs computing the distance to every keyword
+    static void fuzzy(int keywords) {
+        System.out.println("== Fuzzy keyword lookup over " + keywords + " keywords ==");
+        java.util.Random random = new java.util.Random(23);
+        KeywordIndex index = new KeywordIndex();
+        String[] real = {"programming", "javascript", "technology", "election", "climate", "football"};
+        for (int i = 0; i < real.length; i++) index.add(i + 1, new int[]{KeywordDictionary.intern(real[i])});
+        MyList<String> all = new MyList<>(keywords);
+        for (String word : real) all.add(word);
+        while (all.size() < keywords) {
+            StringBuilder word = new StringBuilder();
+            int length = 4 + random.nextInt(9);
+            for (int j = 0; j < length; j++) word.append((char) ('a' + random.nextInt(26)));
+            all.add(word.toString());
+            index.add(all.size(), new int[]{KeywordDictionary.intern(word.toString())});
+        }
+        FuzzyKeywords fuzzy = new FuzzyKeywords();
+        long start = System.nanoTime();
+        fuzzy.corrections("warmup", index, 1);
+        System.out.printf("  gram index build                 %8.0f ms%n", (System.nanoTime() - start) / 1e6);
+
+        String[] typos = {"progamming", "javascirpt", "tehcnology", "elecion", "climte", "footbal", "qqqqqqq"};
+        for (String typo : typos) {
+            IntList found = null;
+            for (int run = 0; run < 200; run++) found = fuzzy.corrections(typo, index, 3);
+            int runs = 2000;
+            start = System.nanoTime();
+            for (int run = 0; run < runs; run++) found = fuzzy.corrections(typo, index, 3);
+            double micros = (System.nanoTime() - start) / 1e3 / runs;
+            start = System.nanoTime();
+            int matches = 0;
+            int max = FuzzyKeywords.maxDistance(typo);
+            for (int i = 0; i < all.size(); i++) {
+                if (FuzzyKeywords.distance(typo, all.get(i), max) <= max) matches++;
+            }
+            double scanMicros = (System.nanoTime() - start) / 1e3;
+            System.out.printf("  %-12s -> %-12s %8.1f us   %3d found   (scan %8.0f us, %d within %d)%n", typo,
+                    found.isEmpty() ? "-" : KeywordDictionary.keyword(found.get(0)), micros,
+                    fuzzy.corrections(typo, index, Integer.MAX_VALUE).size(), scanMicros, matches, max);
+        }
+    }
+
+    // Separate vs combined AI requests against a local stand-in for the chat-completions endpoint
+    static void ai(int articles) {
+        System.out.println("== AI requests for " + articles + " articles (stand-in server, 20 ms per answer) ==");
+        java.util.Random random = new java.util.Random(5);
+        String[] contents = new String[articles];
+        for (int a = 0; a < articles; a++) {
+            StringBuilder body = new StringBuilder();
+            while (body.length() < 3000) body.append("word").append(random.nextInt(1000)).append(' ');
+            contents[a] = body.toString();
+        }
+        try (ChatCompletionStub stub = new ChatCompletionStub(20)) {
+            OpenAIService service = new OpenAIService("stub-key", stub.baseUrl());
+            service.analyzeArticle(contents[0]); // warm up the HTTP client
+            int requests = stub.requests();
+            long chars = stub.promptChars();
+            long start = System.nanoTime();
+            for (String content : contents) {
+                service.summarizeArticle(content);
+                service.analyzeSentiment(content);
+                service.suggestRelatedTopics(content);
+            }
+            System.out.printf("  separate  %5d requests %10d prompt chars %8.0f ms%n", stub.requests() - requests,
+                    stub.promptChars() - chars, (System.nanoTime() - start) / 1e6);
+            requests = stub.requests();
+            chars = stub.promptChars();
+            start = System.nanoTime();
+            boolean parsed = true;
+            for (String content : contents) {
+                AnalysisBackend.Analysis analysis = service.analyzeArticle(content);
+                parsed &= analysis.summary.equals(ChatCompletionStub.SUMMARY)
+                        && analysis.sentiment.equals(ChatCompletionStub.SENTIMENT)
+                        && analysis.relatedTopics.equals(ChatCompletionStub.TOPICS);
+            }
+            System.out.printf("  combined  %5d requests %10d prompt chars %8.0f ms   (answers parsed: %s)%n",
+                    stub.requests() - requests, stub.promptChars() - chars, (System.nanoTime() - start) / 1e6, parsed);
+
+            // A burst of windows opening the same few articles: one call per article, on a fixed pool
+            AIRequestScheduler scheduler = new AIRequestScheduler(4, 2);
+            int distinct = Math.min(10, articles);
+            int burst = 50 * distinct;
+            String[] hashes = new String[articles];
+            for (int a = 0; a < articles; a++) hashes[a] = AIResultCache.contentHash(contents[a]);
+            requests = stub.requests();
+            int threadsBefore = Thread.activeCount();
+            start = System.nanoTime();
+            MyList<java.util.concurrent.CompletableFuture<AnalysisBackend.Analysis>> waiting = new MyList<>(burst);
+            int peakThreads = 0;
+            for (int i = 0; i < burst; i++) {
+                String content = contents[i % distinct];
+                waiting.add(scheduler.submit("analysis", hashes[i % distinct],
+                        () -> service.analyzeArticle(content)));
+                peakThreads = Math.max(peakThreads, Thread.activeCount());
+            }
+            for (int i = 0; i < waiting.size(); i++) waiting.get(i).join();
+            System.out.printf("  burst     %5d requests for %d submissions of %d articles %6.0f ms   (%d more threads)%n",
+                    stub.requests() - requests, burst, distinct, (System.nanoTime() - start) / 1e6,
+                    peakThreads - threadsBefore);
+
+            // Windows closed before their turn: nothing is sent
+            requests = stub.requests();
+            MyList<java.util.concurrent.CompletableFuture<AnalysisBackend.Analysis>> closed = new MyList<>();
+            for (int i = 0; i < 20; i++) {
+                String content = contents[(i + distinct) % articles];
+                closed.add(scheduler.submit("analysis", hashes[(i + distinct) % articles],
+                        () -> service.analyzeArticle(content)));
+            }
+            for (int i = 0; i < closed.size(); i++) closed.get(i).cancel(true);
+            Thread.sleep(200);
+            System.out.printf("  cancelled %5d requests for 20 submissions closed straight away%n",
+                    stub.requests() - requests);
+            scheduler.shutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (java.io.IOException e) {
+            System.err.println("Could not start the stand-in server: " + e.getMessage());
+        }
+
+        // Time to first text: whole answer vs streamed, when the model takes 1.5 s to write it
+        try (ChatCompletionStub slow = new ChatCompletionStub(1500)) {
+            OpenAIService service = new OpenAIService("stub-key", slow.baseUrl());
+            service.streamAnalysis(contents[0], text -> { });
+            long start = System.nanoTime();
+            service.analyzeArticle(contents[0]);
+            double whole = (System.nanoTime() - start) / 1e6;
+            long[] first = new long[1];
+            int[] pieces = new int[1];
+            start = System.nanoTime();
+            AnalysisBackend.Analysis streamed = service.streamAnalysis(contents[0], text -> {
+                if (pieces[0]++ == 0) first[0] = System.nanoTime();
+            });
+            double done = (System.nanoTime() - start) / 1e6;
+            System.out.printf("  whole answer    first text after %6.0f ms%n", whole);
+            System.out.printf("  streamed        first text after %6.0f ms, done after %6.0f ms, %d pieces (parsed: %s)%n",
+                    (first[0] - start) / 1e6, done, pieces[0], streamed.summary.equals(ChatCompletionStub.SUMMARY));
+        } catch (java.io.IOException e) {
+            System.err.println("Could not start the stand-in server: " + e.getMessage());
+        }
+
+        // A long article: whole vs map-reduce, then again after editing one sentence
+        StringBuilder longArticle = new StringBuilder();
+        for (int sentence = 0; sentence < 1000; sentence++) {
+            for (int w = 0; w < 15; w++) longArticle.append(w == 0 ? "Word" : " word").append(random.nextInt(1000));
+            longArticle.append(". ");
+        }
+        String original = longArticle.toString();
+        int middle = original.indexOf(". ", original.length() / 2) + 2;
+        String edited = original.substring(0, middle) + "An inserted sentence about something new. "
+                + original.substring(middle);
+        java.nio.file.Path cacheFile = null;
+        try (ChatCompletionStub stub = new ChatCompletionStub(200)) {
+            cacheFile = java.nio.file.Files.createTempFile("chunk-cache", ".dat");
+            AIResultCache cache = new AIResultCache(cacheFile, 10_000, 60_000);
+            OpenAIService whole = new OpenAIService("stub-key", stub.baseUrl());
+            whole.setMaxArticleTokens(Integer.MAX_VALUE);
+            OpenAIService chunked = new OpenAIService("stub-key", stub.baseUrl());
+            chunked.setChunkCache(cache);
+            System.out.printf("  long article    %d chars, about %d tokens, %d parts (stand-in server, 200 ms per answer)%n",
+                    original.length(), OpenAIService.estimateTokens(original),
+                    OpenAIService.chunks(original, OpenAIService.CHUNK_TOKENS).size());
+            String[] labels = {"whole", "map-reduce", "after edit"};
+            OpenAIService[] services = {whole, chunked, chunked};
+            String[] texts = {original, original, edited};
+            for (int i = 0; i < 3; i++) {
+                int requests = stub.requests();
+                long chars = stub.promptChars();
+                long start = System.nanoTime();
+                services[i].summarizeArticle(texts[i]);
+                System.out.printf("  %-14s %3d requests %10d prompt chars %8.0f ms%n", labels[i],
+                        stub.requests() - requests, stub.promptChars() - chars, (System.nanoTime() - start) / 1e6);
+            }
+            cache.close();
+        } catch (java.io.IOException e) {
+            System.err.println("Could not run the long article benchmark: " + e.getMessage());
+        } finally {
+            try {
+                if (cacheFile != null) java.nio.file.Files.deleteIfExists(cacheFile);
+            } catch (java.io.IOException e) {
+                // temp file, never mind
+            }
+        }
+
+        // The offline analyzer on article-sized text in sentences, after a warm-up
+        StringBuilder prose = new StringBuilder();
+        for (int sentence = 0; sentence < 40; sentence++) {
+            for (int w = 0; w < 15; w++) prose.append(w == 0 ? "" : " ").append("word").append(random.nextInt(300));
+            prose.append(". ");
+        }
+        LocalAnalyzer local = new LocalAnalyzer(null);
+        for (int i = 0; i < 200; i++) local.analyzeArticle(prose.toString());
+        long start = System.nanoTime();
+        for (int i = 0; i < 200; i++) local.analyzeArticle(prose.toString());
+        System.out.printf("  local analyzer  whole answer after %6.2f ms (%d chars)%n",
+                (System.nanoTime() - start) / 200 / 1e6, prose.length());
+    }
+
+    // Bulk enrichment against the stand-in server turning 10% of requests away, then a restart from the cache
+    static void enrich(int articles) {
+        System.out.println("== Enrichment of " + articles + " articles (stand-in server, 50 ms per answer, "
+                + "10% rate-limited; 1200 requests/min, 4 in flight) ==");
+        java.util.Random random = new java.util.Random(9);
+        MyList<Article> batch = new MyList<>(articles);
+        for (int a = 0; a < articles; a++) {
+            StringBuilder body = new StringBuilder();
+            while (body.length() < 3000) body.append("word").append(random.nextInt(1000)).append(' ');
+            batch.add(new Article(a + 1, "Article " + a, body.toString(), new int[0], "2025-01-01", 0));
+        }
+        java.nio.file.Path file = null;
+        try (ChatCompletionStub stub = new ChatCompletionStub(50)) {
+            stub.setRejectRate(0.1);
+            file = java.nio.file.Files.createTempFile("enrich-bench", ".dat");
+            OpenAIService service = new OpenAIService("stub-key", stub.baseUrl());
+            AIRequestScheduler scheduler = new AIRequestScheduler(8, 2);
+            AIResultCache cache = new AIResultCache(file, 1000, 3_600_000);
+            EnrichmentPipeline pipeline = new EnrichmentPipeline(service, cache, scheduler,
+                    new RateLimiter(1200, 10_000_000), 4, 8, 20);
+            for (int i = 0; i < batch.size(); i++) pipeline.enqueue(batch.get(i));
+            int done = awaitEnriched(batch);
+            System.out.printf("  first run  %4d/%d enriched, %d requests (%d rate-limited), %.0f articles/min%n",
+                    done, articles, stub.requests(), stub.rejected(), pipeline.articlesPerMinute());
+            pipeline.stop();
+            cache.close();
+
+            // Restart: fresh articles and pipeline, same cache file
+            int requests = stub.requests();
+            MyList<Article> reloaded = new MyList<>(articles);
+            for (int i = 0; i < batch.size(); i++) {
+                Article a = batch.get(i);
+                reloaded.add(new Article(a.id, a.title, a.getContent(), new int[0], a.date, 0));
+            }
+            cache = new AIResultCache(file, 1000, 3_600_000);
+            long start = System.nanoTime();
+            pipeline = new EnrichmentPipeline(service, cache, scheduler, new RateLimiter(1200, 10_000_000), 4, 8, 20);
+            for (int i = 0; i < reloaded.size(); i++) pipeline.enqueue(reloaded.get(i));
+            done = awaitEnriched(reloaded);
+            System.out.printf("  restart    %4d/%d from the checkpoint, %d requests, %.0f ms%n",
+                    done, articles, stub.requests() - requests, (System.nanoTime() - start) / 1e6);
+            pipeline.stop();
+            scheduler.shutdown();
+            cache.close();
+        } catch (java.io.IOException e) {
+            System.err.println("Enrichment benchmark failed: " + e.getMessage());
+        } finally {
+            try {
+                if (file != null) java.nio.file.Files.deleteIfExists(file);
+            } catch (java.io.IOException ignored) {
+            }
+        }
+    }
+
+    // Wait (up to a minute) until every article has results; returns how many do
+    private static int awaitEnriched(MyList<Article> articles) {
+        long deadline = System.currentTimeMillis() + 60_000;
+        int done = 0;
+        while (System.currentTimeMillis() < deadline) {
+            done = 0;
+            for (int i = 0; i < articles.size(); i++) {
+                if (articles.get(i).analysis != null) done++;
+            }
+            if (done == articles.size()) break;
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return done;
+    }
+
+    // Indexing throughput and BM25 top-10 latency on a synthetic corpus with a Zipf-like vocabulary
+    static void fullText(int articles) {
+        System.out.println("== Full-text index over " + articles + " synthetic articles ==");
+        final int vocabulary = 50_000;
+        String[] words = new String[vocabulary];
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < vocabulary; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 3 + random.nextInt(7);
+            for (int j = 0; j < length; j++) word.append((char) ('a' + random.nextInt(26)));
+            words[i] = word.toString();
+        }
+        words[0] = "java";
+        words[1] = "virtual";
+        words[2] = "threads";
+
+        // Pre-generate bodies so the timing covers indexing only
+        String[] titles = new String[articles];
+        String[] bodies = new String[articles];
+        StringBuilder body = new StringBuilder();
+        for (int a = 0; a < articles; a++) {
+            body.setLength(0);
+            for (int t = 0; t < 80; t++) {
+                // Squaring a uniform sample skews towards low ranks, like word frequencies do
+                double u = random.nextDouble();
+                body.append(words[(int) (u * u * u * vocabulary)]).append(t % 12 == 11 ? ". " : " ");
+            }
+            bodies[a] = body.toString();
+            titles[a] = words[random.nextInt(vocabulary)] + " " + words[random.nextInt(vocabulary)];
+        }
+
+        TextIndex index = new TextIndex();
+        long start = System.nanoTime();
+        for (int a = 0; a < articles; a++) index.add(a + 1, titles[a], bodies[a]);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  indexed %d articles, %d terms in %.2f s (%.0f articles/s)%n",
+                articles, index.termCount(), seconds, articles / seconds);
+
+        String[] queries = {"java", "virtual threads", "\"virtual threads\"", "java virtual threads performance",
+                words[5000] + " " + words[20000]};
+        for (String query : queries) {
+            int hits = 0;
+            for (int i = 0; i < 200; i++) hits = index.search(query, 10).size;
+            int runs = 20;
+            long t0 = System.nanoTime();
+            for (int i = 0; i < runs; i++) hits = index.search(query, 10).size;
+            double millis = (System.nanoTime() - t0) / 1e6 / runs;
+            System.out.printf("  top-10 %-36s %3d hits %8.2f ms%n", "'" + query + "'", hits, millis);
+        }
+    }
+
+    static void report(String label, long bytes, int count) {
+        System.out.printf("  %-32s %8.1f MB  (%5.1f bytes/entry)%n",
+                label, bytes / (1024.0 * 1024.0), bytes / (double) count);
+    }
+
+    static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,179 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Local stand-in for the OpenAI chat-completions endpoint, for trying OpenAIService without an API key or
+// network: point OpenAIService(apiKey, stub.baseUrl()) at it. It answers each prompt the way the real model
+// is asked to (a short summary, one sentiment word, a topic list, or all three in the combined format) after
+// a fixed delay, and counts requests and prompt characters so the request paths can be compared. It can also
+// turn a share of requests away with 429 Too Many Requests, to exercise retries. Requests with "stream": true
+// get the answer as server-sent events, a word per chunk spread evenly over the delay, ending in [DONE].
+class ChatCompletionStub implements AutoCloseable {
+    static final String SUMMARY = "A stand-in summary of the article.";
+    static final String SENTIMENT = "neutral";
+    static final String TOPICS = "technology, software, news, business, science";
+
+    static {
+        // Without this the JDK server's small writes wait on delayed ACKs, ~40 ms per request
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final long latencyMillis;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicLong promptChars = new AtomicLong();
+    private final AtomicInteger rejected = new AtomicInteger();
+    private volatile double rejectRate;
+
+    /**
+     * Start serving on a free local port.
+     *
+     * @param latencyMillis How long each answer takes, like the model's processing time
+     */
+    public ChatCompletionStub(long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", this::handle);
+        server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "chat-stub");
+            t.setDaemon(true);
+            return t;
+        }));
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    // Answer this share of requests (0 to 1) with 429 instead
+    public void setRejectRate(double rejectRate) {
+        this.rejectRate = rejectRate;
+    }
+
+    // Requests answered with 429
+    public int rejected() {
+        return rejected.get();
+    }
+
+    // Characters of message content received, summed over all requests
+    public long promptChars() {
+        return promptChars.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            JsonNode request = mapper.readTree(in);
+            String prompt = "";
+            int chars = 0;
+            for (JsonNode message : request.path("messages")) {
+                String content = message.path("content").asText();
+                chars += content.length();
+                if (message.path("role").asText().equals("user")) prompt = content;
+            }
+            requests.incrementAndGet();
+            promptChars.addAndGet(chars);
+            if (java.util.concurrent.ThreadLocalRandom.current().nextDouble() < rejectRate) {
+                rejected.incrementAndGet();
+                send(exchange, 429, "{\"error\":{\"message\":\"Rate limit reached\",\"type\":\"requests\"}}");
+                return;
+            }
+            if (request.path("stream").asBoolean(false)) {
+                stream(exchange, answer(prompt));
+                return;
+            }
+            Thread.sleep(latencyMillis);
+            send(exchange, 200, completion(answer(prompt), chars / 4));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, "{\"error\":{\"message\":\"shutting down\"}}");
+        } catch (RuntimeException e) {
+            send(exchange, 400, "{\"error\":{\"message\":\"bad request\"}}");
+        }
+    }
+
+    // What the model is asked for in each OpenAIService prompt
+    private static String answer(String prompt) {
+        if (prompt.contains("SUMMARY:")) return "SUMMARY: " + SUMMARY + "\nSENTIMENT: " + SENTIMENT + "\nTOPICS: " + TOPICS;
+        if (prompt.startsWith("Please summarize")) return SUMMARY;
+        if (prompt.startsWith("Analyze the sentiment")) return SENTIMENT;
+        return TOPICS;
+    }
+
+    private String completion(String content, int promptTokens) {
+        ObjectNode result = mapper.createObjectNode();
+        result.put("id", "chatcmpl-stub").put("object", "chat.completion")
+                .put("created", System.currentTimeMillis() / 1000).put("model", OpenAIService.MODEL);
+        ObjectNode choice = result.putArray("choices").addObject();
+        choice.put("index", 0).put("finish_reason", "stop");
+        choice.putObject("message").put("role", "assistant").put("content", content);
+        int completionTokens = content.length() / 4;
+        result.putObject("usage").put("prompt_tokens", promptTokens).put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+        return result.toString();
+    }
+
+    private void stream(HttpExchange exchange, String answer) throws IOException, InterruptedException {
+        String[] words = answer.split("(?<= )");
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            ObjectNode first = chunk();
+            first.withArray("choices").addObject().put("index", 0).putObject("delta").put("role", "assistant");
+            event(out, first.toString());
+            for (String word : words) {
+                Thread.sleep(latencyMillis / words.length);
+                ObjectNode next = chunk();
+                next.withArray("choices").addObject().put("index", 0).putObject("delta").put("content", word);
+                event(out, next.toString());
+            }
+            ObjectNode last = chunk();
+            last.withArray("choices").addObject().put("index", 0).put("finish_reason", "stop").putObject("delta");
+            event(out, last.toString());
+            event(out, "[DONE]");
+        }
+    }
+
+    private ObjectNode chunk() {
+        ObjectNode chunk = mapper.createObjectNode();
+        chunk.put("id", "chatcmpl-stub").put("object", "chat.completion.chunk")
+                .put("created", System.currentTimeMillis() / 1000).put("model", OpenAIService.MODEL);
+        return chunk;
+    }
+
+    private static void event(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Boolean keyword queries against a brute-force scan of every article's keywords
+class KeywordQueryTest {
+    // Kept apart from other tests' keywords in the shared KeywordDictionary
+    private static final String[] KEYWORDS = {"kq-java", "kq-cloud", "kq-python", "kq-ai", "kq-rust", "kq-tech"};
+
+    private final KeywordIndex index = new KeywordIndex();
+    private final List<Set<String>> tags = new ArrayList<>();
+
+    KeywordQueryTest() {
+        Random random = new Random(5);
+        for (int id = 0; id < 3_000; id++) {
+            Set<String> keywords = new HashSet<>();
+            for (String keyword : KEYWORDS) {
+                // Skewed so some terms are rare and the intersection is driven from different lists
+                if (random.nextInt(KEYWORDS.length + 1) <= keywordIndex(keyword)) keywords.add(keyword);
+            }
+            tags.add(keywords);
+            int[] ids = new int[keywords.size()];
+            int i = 0;
+            for (String keyword : keywords) ids[i++] = KeywordDictionary.intern(keyword);
+            index.add(id, ids);
+        }
+    }
+
+    @Test
+    void andOfTerms() {
+        check("kq-java kq-cloud", article -> article.contains("kq-java") && article.contains("kq-cloud"));
+        check("kq-java kq-cloud kq-tech kq-ai",
+                article -> article.contains("kq-java") && article.contains("kq-cloud")
+                        && article.contains("kq-tech") && article.contains("kq-ai"));
+    }
+
+    @Test
+    void andWithExclusions() {
+        check("kq-tech -kq-python", article -> article.contains("kq-tech") && !article.contains("kq-python"));
+        check("kq-tech NOT kq-python -kq-rust", article -> article.contains("kq-tech")
+                && !article.contains("kq-python") && !article.contains("kq-rust"));
+        check("kq-java kq-ai -kq-cloud", article -> article.contains("kq-java") && article.contains("kq-ai")
+                && !article.contains("kq-cloud"));
+    }
+
+    @Test
+    void orGroupsInsideAnd() {
+        check("kq-java|kq-python kq-ai", article -> (article.contains("kq-java") || article.contains("kq-python"))
+                && article.contains("kq-ai"));
+        check("kq-rust OR kq-java kq-cloud -kq-tech",
+                article -> (article.contains("kq-rust") || article.contains("kq-java"))
+                        && article.contains("kq-cloud") && !article.contains("kq-tech"));
+    }
+
+    @Test
+    void unknownTermsAndOnlyExclusions() {
+        check("kq-java kq-unknown", article -> false);
+        check("-kq-java", article -> false);
+        check("kq-java -kq-unknown", article -> article.contains("kq-java"));
+    }
+
+    private void check(String text, java.util.function.Predicate<Set<String>> reference) {
+        KeywordQuery query = KeywordQuery.parse(text);
+        IntList expected = new IntList();
+        for (int id = 0; id < tags.size(); id++) {
+            if (reference.test(tags.get(id))) expected.add(id);
+        }
+        IntList actual = query.execute(index);
+        assertEquals(expected.size(), actual.size(), text);
+        for (int i = 0; i < expected.size(); i++) assertEquals(expected.get(i), actual.get(i), text);
+
+        // The per-article matcher must agree with the posting-list execution
+        java.util.function.Predicate<Article> matcher = query.matcher();
+        for (int id = 0; id < tags.size(); id++) {
+            MyList<String> keywords = new MyList<>();
+            for (String keyword : tags.get(id)) keywords.add(keyword);
+            Article article = new Article(id, "t", "", keywords, "2025-01-01", 0);
+            assertEquals(reference.test(tags.get(id)), matcher.test(article), text + " matcher, article " + id);
+        }
+    }
+
+    private static int keywordIndex(String keyword) {
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            if (KEYWORDS[i].equals(keyword)) return i;
+        }
+        return -1;
+    }
+}
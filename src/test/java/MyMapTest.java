@@ -0,0 +1,98 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// MyMap against java.util.HashMap, with deletes mixed in so probe chains are broken and repaired
+class MyMapTest {
+    // Keys whose hash codes collide in groups, so removals happen inside long probe chains
+    private static final class Colliding {
+        final int value;
+
+        Colliding(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value / 8;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Colliding && ((Colliding) other).value == value;
+        }
+    }
+
+    @Test
+    void randomPutsAndDeletesMatchHashMap() {
+        Random random = new Random(42);
+        MyMap<Integer, Integer> map = new MyMap<>();
+        Map<Integer, Integer> reference = new HashMap<>();
+        for (int step = 0; step < 200_000; step++) {
+            int key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(reference.remove(key), map.remove(key), "remove " + key);
+            } else {
+                map.put(key, step);
+                reference.put(key, step);
+            }
+            if (step % 1_000 == 0) assertSameContents(reference, map);
+        }
+        assertSameContents(reference, map);
+    }
+
+    @Test
+    void deletesInsideCollidingChainsKeepTheRestReachable() {
+        Random random = new Random(7);
+        MyMap<Colliding, Integer> map = new MyMap<>();
+        Map<Colliding, Integer> reference = new HashMap<>();
+        for (int step = 0; step < 50_000; step++) {
+            Colliding key = new Colliding(random.nextInt(400));
+            if (random.nextBoolean()) {
+                assertEquals(reference.remove(key), map.remove(key));
+            } else {
+                map.put(key, step);
+                reference.put(key, step);
+            }
+        }
+        assertEquals(reference.size(), map.size());
+        for (int value = 0; value < 400; value++) {
+            Colliding key = new Colliding(value);
+            assertEquals(reference.get(key), map.get(key), "get " + value);
+            assertEquals(reference.containsKey(key), map.containsKey(key));
+        }
+    }
+
+    @Test
+    void deleteEverythingThenReuse() {
+        MyMap<String, Integer> map = new MyMap<>();
+        for (int i = 0; i < 10_000; i++) map.put("key" + i, i);
+        for (int i = 0; i < 10_000; i++) assertEquals(Integer.valueOf(i), map.remove("key" + i));
+        assertTrue(map.isEmpty());
+        assertNull(map.remove("key0"));
+        assertFalse(map.iterator().hasNext());
+        map.put("key5", 5);
+        assertEquals(Integer.valueOf(5), map.get("key5"));
+        assertEquals(1, map.size());
+    }
+
+    private static void assertSameContents(Map<Integer, Integer> reference, MyMap<Integer, Integer> map) {
+        assertEquals(reference.size(), map.size());
+        int seen = 0;
+        for (MyMap.Entry<Integer, Integer> entry : map) {
+            assertEquals(reference.get(entry.getKey()), entry.getValue(), "entry " + entry.getKey());
+            seen++;
+        }
+        assertEquals(reference.size(), seen);
+        for (Map.Entry<Integer, Integer> entry : reference.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+}
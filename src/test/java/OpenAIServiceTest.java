@@ -0,0 +1,51 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Pulling the three answers out of a combined reply, as the model tends to format it
+class OpenAIServiceTest {
+    @Test
+    void parsesThePlainFormat() {
+        AnalysisBackend.Analysis analysis = OpenAIService.parseAnalysis(
+                "SUMMARY: Rates stay on hold.\nSENTIMENT: neutral\nTOPICS: rates, inflation, central banks");
+        assertEquals("Rates stay on hold.", analysis.summary);
+        assertEquals("neutral", analysis.sentiment);
+        assertEquals("rates, inflation, central banks", analysis.relatedTopics);
+    }
+
+    @Test
+    void acceptsMarkdownCaseAndMultilineAnswers() {
+        AnalysisBackend.Analysis analysis = OpenAIService.parseAnalysis(
+                "Here you go:\n\n**Summary:** Chip exports fall\nfor a third month.\n"
+                        + "### sentiment: Negative.\n"
+                        + "- **Related topics**: trade\n  semiconductors\n");
+        assertEquals("Chip exports fall\nfor a third month.", analysis.summary);
+        assertEquals("Negative", analysis.sentiment);
+        assertEquals("trade\nsemiconductors", analysis.relatedTopics);
+    }
+
+    @Test
+    void sentimentIsJustTheFirstWord() {
+        AnalysisBackend.Analysis analysis = OpenAIService.parseAnalysis(
+                "SUMMARY: s\nSENTIMENT: positive, on balance\nTOPICS: t");
+        assertEquals("positive", analysis.sentiment);
+    }
+
+    @Test
+    void missingOrEmptySectionIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> OpenAIService.parseAnalysis("SUMMARY: s\nSENTIMENT: neutral"));
+        assertThrows(IllegalArgumentException.class,
+                () -> OpenAIService.parseAnalysis("SUMMARY: s\nSENTIMENT:\nTOPICS: t"));
+        assertThrows(IllegalArgumentException.class, () -> OpenAIService.parseAnalysis("I can't help with that."));
+    }
+
+    @Test
+    void partialReplyLeavesOutAnUnfinishedLabel() {
+        AnalysisBackend.Analysis partial = OpenAIService.parsePartial("SUMMARY: Markets rally\nSENT");
+        assertEquals("Markets rally", partial.summary);
+        assertEquals("", partial.sentiment);
+        assertEquals("", partial.relatedTopics);
+    }
+}
@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// PostingList cursors against java.util.TreeSet, with skips landing inside, between and past blocks
+class PostingListTest {
+    @Test
+    void addAndRemoveMatchTreeSet() {
+        Random random = new Random(1);
+        PostingList list = new PostingList();
+        TreeSet<Integer> reference = new TreeSet<>();
+        for (int step = 0; step < 20_000; step++) {
+            int id = random.nextInt(3_000);
+            if (random.nextInt(4) == 0) {
+                assertEquals(reference.remove(id), list.remove(id), "remove " + id);
+            } else {
+                assertEquals(reference.add(id), list.add(id), "add " + id);
+            }
+        }
+        assertEquals(reference.size(), list.size());
+        IntList ids = list.toIntList();
+        int i = 0;
+        for (int id : reference) assertEquals(id, ids.get(i++));
+        for (int id = 0; id < 3_000; id++) assertEquals(reference.contains(id), list.contains(id), "contains " + id);
+    }
+
+    @Test
+    void nextDocVisitsEveryIdInOrder() {
+        PostingList list = new PostingList();
+        TreeSet<Integer> reference = randomIds(new Random(2), 1_000, 100_000, list);
+        DocIdCursor cursor = list.cursor();
+        assertEquals(-1, cursor.docId());
+        for (int id : reference) assertEquals(id, cursor.nextDoc());
+        assertEquals(DocIdCursor.NO_MORE_DOCS, cursor.nextDoc());
+    }
+
+    @Test
+    void advanceMatchesCeiling() {
+        Random random = new Random(3);
+        for (int round = 0; round < 50; round++) {
+            PostingList list = new PostingList();
+            // Dense and sparse lists, from one block to many
+            int bound = round % 2 == 0 ? 2_000 : 1_000_000;
+            int count = 1 + random.nextInt(12 * PostingList.BLOCK_SIZE);
+            TreeSet<Integer> reference = randomIds(random, count, bound, list);
+            DocIdCursor cursor = list.cursor();
+            int current = -1;
+            while (true) {
+                Integer expected;
+                int doc;
+                if (random.nextInt(4) == 0) {
+                    expected = reference.higher(current);
+                    doc = cursor.nextDoc();
+                } else {
+                    // Small steps stay in the block, large ones skip whole blocks
+                    int target = current + 1
+                            + (random.nextBoolean() ? random.nextInt(4) : random.nextInt(bound / 4 + 1));
+                    expected = reference.ceiling(target);
+                    doc = cursor.advance(target);
+                }
+                assertEquals(expected == null ? DocIdCursor.NO_MORE_DOCS : expected, doc);
+                if (doc == DocIdCursor.NO_MORE_DOCS) break;
+                assertEquals(doc, cursor.docId());
+                current = doc;
+            }
+        }
+    }
+
+    private static TreeSet<Integer> randomIds(Random random, int count, int bound, PostingList list) {
+        TreeSet<Integer> ids = new TreeSet<>();
+        while (ids.size() < count) ids.add(random.nextInt(bound));
+        for (int id : ids) list.add(id);
+        return ids;
+    }
+}